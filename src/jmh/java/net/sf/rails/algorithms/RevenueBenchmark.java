@@ -0,0 +1,156 @@
+package net.sf.rails.algorithms;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.sf.rails.common.Config;
+import net.sf.rails.common.ConfigManager;
+import net.sf.rails.game.Phase;
+import net.sf.rails.game.PublicCompany;
+import net.sf.rails.game.RailsRoot;
+import net.sf.rails.util.GameLoader;
+import rails.game.action.PossibleAction;
+import rails.game.action.SetDividend;
+
+/**
+ * Benchmarks the revenue calculation on positions of the saved games in src/test/resources/data/real.
+ * <p>
+ * Each game is replayed up to the first revenue step after the given checkpoint (in percent of all actions).
+ * The benchmark then calculates the revenue of each company that has operated and owns trains.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RevenueBenchmark {
+
+    private static final String GAME_DIRECTORY = "real";
+
+    @Param({"1830_B", "1835_KoIT3", "1856_A", "18AL_A", "18EU_A", "18EU_B"})
+    public String game;
+
+    @Param({"25", "50", "75", "100"})
+    public int checkpoint;
+
+    @Param({"true", "false"})
+    public boolean multiGraph;
+
+    private RailsRoot root;
+    private Phase phase;
+    private final List<PublicCompany> companies = new ArrayList<>();
+    private final List<RevenueAdapter> adapters = new ArrayList<>();
+
+    @Setup(Level.Trial)
+    public void loadGame() {
+        ConfigManager.initConfiguration(true);
+        File gameFile = new File(Config.get("save.directory") + File.separator + GAME_DIRECTORY,
+                game + "." + Config.get("save.filename.extension"));
+
+        GameLoader gameLoader = new GameLoader();
+        gameLoader.setReplayListener(new CheckpointListener(gameLoader, checkpoint));
+        if (!gameLoader.createFromFile(gameFile)) {
+            throw new IllegalStateException("Cannot load " + gameFile, gameLoader.getException());
+        }
+        root = gameLoader.getRoot();
+        phase = root.getPhaseManager().getCurrentPhase();
+
+        for (PublicCompany company : root.getCompanyManager().getAllPublicCompanies()) {
+            if (company.hasOperated() && !company.isClosed()
+                    && !company.getPortfolioModel().getTrainList().isEmpty()) {
+                companies.add(company);
+            }
+        }
+    }
+
+    /**
+     * creates the revenue adapters (including the route graphs) outside of the measurement
+     */
+    @Setup(Level.Invocation)
+    public void createAdapters() {
+        adapters.clear();
+        for (PublicCompany company : companies) {
+            adapters.add(RevenueAdapter.createRevenueAdapter(root, company, phase));
+        }
+    }
+
+    /**
+     * reports the number of evaluations of the revenue calculator as secondary result
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Statistics {
+        public long evaluations;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            evaluations = 0;
+        }
+    }
+
+    /**
+     * measures the revenue calculator setup (optimized graph) and the calculation itself
+     */
+    @Benchmark
+    public int calculateRevenue(Statistics statistics) {
+        int revenue = 0;
+        for (RevenueAdapter adapter : adapters) {
+            adapter.initRevenueCalculator(multiGraph);
+            revenue += adapter.calculateRevenue();
+            statistics.evaluations += adapter.getNumberOfEvaluations();
+        }
+        return revenue;
+    }
+
+    /**
+     * measures the complete pipeline from route graph to revenue
+     */
+    @Benchmark
+    public int createAndCalculateRevenue() {
+        int revenue = 0;
+        for (PublicCompany company : companies) {
+            RevenueAdapter adapter = RevenueAdapter.createRevenueAdapter(root, company, phase);
+            adapter.initRevenueCalculator(multiGraph);
+            revenue += adapter.calculateRevenue();
+        }
+        return revenue;
+    }
+
+    /**
+     * stops the replay at the first revenue step after the checkpoint
+     */
+    private static class CheckpointListener implements GameLoader.ReplayListener {
+
+        private final GameLoader gameLoader;
+        private final int checkpoint;
+
+        private CheckpointListener(GameLoader gameLoader, int checkpoint) {
+            this.gameLoader = gameLoader;
+            this.checkpoint = checkpoint;
+        }
+
+        @Override
+        public boolean beforeAction(RailsRoot root, PossibleAction action, int actionCount) {
+            int checkpointAction = gameLoader.getActions().size() * checkpoint / 100;
+            return !(action instanceof SetDividend && actionCount >= checkpointAction);
+        }
+    }
+
+}
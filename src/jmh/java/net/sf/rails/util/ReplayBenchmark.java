@@ -0,0 +1,92 @@
+package net.sf.rails.util;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.sf.rails.common.Config;
+import net.sf.rails.common.ConfigManager;
+import net.sf.rails.game.RailsRoot;
+
+/**
+ * Benchmarks the replay of saved games in src/test/resources/data, one game of each game family.
+ * <p>
+ * The game is loaded and created outside of the measurement, thus the benchmark measures
+ * the execution of the actions by the game engine (rounds, state changes and reports).
+ * The replayed actions are reported as secondary result (actions per second),
+ * the allocation per action follows from the gc profiler (-prof gc).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ReplayBenchmark {
+
+    @Param({"real/1826J42", "real/1830_B", "real/1835_KoIT3", "real/1856_A", "real/1880_ATG1", "real/1889_A",
+            "real/18AL_A", "real/18EU_A", "real/18VAZ22", "test/1837v2_MixedMergers", "test/1851_Late",
+            "test/18Scan_Final", "test/SOH_P126_Final"})
+    public String game;
+
+    private File gameFile;
+    private GameLoader gameLoader;
+
+    @Setup(Level.Trial)
+    public void findGame() {
+        ConfigManager.initConfiguration(true);
+        gameFile = new File(Config.get("save.directory"),
+                game.replace('/', File.separatorChar) + "." + Config.get("save.filename.extension"));
+        if (!gameFile.exists()) {
+            throw new IllegalStateException("Cannot find " + gameFile);
+        }
+    }
+
+    /**
+     * loads the saved game and creates a new game, both outside of the measurement
+     */
+    @Setup(Level.Invocation)
+    public void createGame() {
+        gameLoader = new GameLoader();
+        if (!gameLoader.createGame(gameFile)) {
+            throw new IllegalStateException("Cannot load " + gameFile, gameLoader.getException());
+        }
+    }
+
+    /**
+     * reports the number of replayed actions as secondary result
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Statistics {
+        public long actions;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            actions = 0;
+        }
+    }
+
+    @Benchmark
+    public RailsRoot replayGame(Statistics statistics) {
+        if (!gameLoader.replayGame()) {
+            throw new IllegalStateException("Cannot replay " + gameFile, gameLoader.getException());
+        }
+        statistics.actions += gameLoader.getActions().size();
+        return gameLoader.getRoot();
+    }
+
+}
@@ -0,0 +1,183 @@
+package net.sf.rails.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import net.sf.rails.common.Config;
+import net.sf.rails.common.ConfigManager;
+
+/**
+ * Replays all saved games in src/test/resources/data in parallel, each game in its own RailsRoot.
+ * <p>
+ * The report of each replay is compared with the stored report, like the TestGame tests do.
+ * For each game family the replay throughput (actions per second) and the allocation per action are printed.
+ * The allocation is measured per thread, thus it is not affected by games replayed in parallel.
+ * <p>
+ * Run with task replayRunner, the number of threads can be given by -Pthreads=n (default: number of processors).
+ * Exits with status 1 if a replay fails or differs from its report.
+ */
+public class ReplayRunner {
+
+    /**
+     * Result of the replay of a single game
+     */
+    private static class Result {
+        private final File gameFile;
+        private String family;
+        private int actions;
+        private long replayNanos;
+        private long allocatedBytes;
+        private String failure;
+
+        private Result(File gameFile) {
+            this.gameFile = gameFile;
+        }
+    }
+
+    /**
+     * Sums of the results of a game family
+     */
+    private static class Family {
+        private int games;
+        private long actions;
+        private long replayNanos;
+        private long allocatedBytes;
+
+        private void add(Result result) {
+            games++;
+            actions += result.actions;
+            replayNanos += result.replayNanos;
+            allocatedBytes += result.allocatedBytes;
+        }
+    }
+
+    private static final com.sun.management.ThreadMXBean threadBean =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    public static void main(String[] args) throws InterruptedException {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+
+        ConfigManager.initConfiguration(true);
+        List<File> gameFiles = new ArrayList<>();
+        findGames(new File(Config.get("save.directory")), gameFiles);
+        gameFiles.sort(null);
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        long start = System.nanoTime();
+        List<Future<Result>> futures = new ArrayList<>();
+        for (File gameFile : gameFiles) {
+            futures.add(executor.submit(() -> replay(gameFile)));
+        }
+
+        SortedMap<String, Family> families = new TreeMap<>();
+        List<Result> failures = new ArrayList<>();
+        long actions = 0;
+        for (Future<Result> future : futures) {
+            Result result;
+            try {
+                result = future.get();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException(e.getCause());
+            }
+            if (result.failure != null) {
+                failures.add(result);
+            }
+            families.computeIfAbsent(result.family, f -> new Family()).add(result);
+            actions += result.actions;
+        }
+        long elapsedNanos = System.nanoTime() - start;
+        executor.shutdown();
+
+        System.out.printf("%-10s %6s %8s %10s %10s %12s%n",
+                "Family", "Games", "Actions", "Replay ms", "Actions/s", "Bytes/action");
+        for (Map.Entry<String, Family> entry : families.entrySet()) {
+            Family family = entry.getValue();
+            System.out.printf("%-10s %6d %8d %10d %10.0f %12d%n", entry.getKey(), family.games, family.actions,
+                    TimeUnit.NANOSECONDS.toMillis(family.replayNanos),
+                    family.actions * 1e9 / Math.max(1, family.replayNanos),
+                    family.allocatedBytes / Math.max(1, family.actions));
+        }
+        System.out.printf("%d games with %d actions in %d ms on %d threads (%.0f actions/s)%n",
+                gameFiles.size(), actions, TimeUnit.NANOSECONDS.toMillis(elapsedNanos), threads,
+                actions * 1e9 / elapsedNanos);
+
+        for (Result result : failures) {
+            System.out.println("FAILED " + result.gameFile + ": " + result.failure);
+        }
+        System.exit(failures.isEmpty() ? 0 : 1);
+    }
+
+    private static void findGames(File directory, List<File> gameFiles) {
+        File[] files = directory.listFiles();
+        if (files == null) return;
+        for (File file : files) {
+            if (file.isDirectory()) {
+                findGames(file, gameFiles);
+            } else if (file.getName().endsWith("." + Config.get("save.filename.extension"))) {
+                gameFiles.add(file);
+            }
+        }
+    }
+
+    private static Result replay(File gameFile) throws IOException {
+        Result result = new Result(gameFile);
+        String gameName = gameFile.getName().substring(0, gameFile.getName().lastIndexOf('.'));
+        result.family = gameFile.getParentFile().getName();
+
+        GameLoader gameLoader = new GameLoader();
+        if (!gameLoader.createGame(gameFile)) {
+            result.failure = "load failed: " + gameLoader.getException();
+            return result;
+        }
+        result.family = gameLoader.getRoot().getGameName();
+        result.actions = gameLoader.getActions() == null ? 0 : gameLoader.getActions().size();
+
+        long threadId = Thread.currentThread().getId();
+        long allocatedBytes = threadBean.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        boolean replayed = gameLoader.replayGame();
+        result.replayNanos = System.nanoTime() - start;
+        result.allocatedBytes = threadBean.getThreadAllocatedBytes(threadId) - allocatedBytes;
+        if (!replayed) {
+            result.failure = "replay failed: " + gameLoader.getException();
+            return result;
+        }
+
+        File reportFile = new File(gameFile.getParentFile(), gameName + "." + Config.get("report.filename.extension"));
+        if (reportFile.exists()) {
+            result.failure = compareReports(Files.readAllLines(reportFile.toPath(), StandardCharsets.UTF_8),
+                    gameLoader.getRoot().getReportManager().getReportBuffer().getAsList());
+        }
+        return result;
+    }
+
+    /**
+     * @return description of the first difference, null if the reports are identical
+     */
+    private static String compareReports(List<String> expected, List<String> actual) {
+        for (int line = 0; line < Math.min(expected.size(), actual.size()); line++) {
+            if (!expected.get(line).equals(actual.get(line))) {
+                return "reports differ in line " + (line + 1) + ": expected <" + expected.get(line)
+                        + "> but was <" + actual.get(line) + ">";
+            }
+        }
+        if (expected.size() != actual.size()) {
+            return "report has " + actual.size() + " lines instead of " + expected.size();
+        }
+        return null;
+    }
+
+}
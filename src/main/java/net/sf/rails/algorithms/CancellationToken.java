@@ -0,0 +1,19 @@
+package net.sf.rails.algorithms;
+
+/**
+ * CancellationToken allows to stop a running revenue calculation from another thread.
+ * The revenue calculator polls the token during its search and returns the best run found so far.
+ */
+public final class CancellationToken {
+
+    private volatile boolean cancelled = false;
+
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+}
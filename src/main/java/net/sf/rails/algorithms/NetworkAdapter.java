@@ -48,20 +48,16 @@ public class NetworkAdapter {
      * @return
      */
     public NetworkGraph getRouteGraph(PublicCompany company, boolean addHQ, boolean running) {
-        routeGraph = NetworkGraph.createRouteGraph(getMapGraph(), company, addHQ, running);
+        routeGraph = root.getMapManager().getRouteGraphCache().getRouteGraph(company, addHQ, running);
         this.company = company;
         this.addHQ = addHQ;
-        log.debug("RouteGraph created");
+        log.debug("RouteGraph retrieved");
         return routeGraph;
     }
 
     public NetworkGraph getRouteGraphCached(PublicCompany company, boolean addHQ) {
         if (routeGraph == null || company != this.company || addHQ != this.addHQ) {
-            if (mapGraph != null) {
-                routeGraph = NetworkGraph.createRouteGraph(mapGraph, company, addHQ, true);
-            } else {
-                getRouteGraph(company, addHQ, true);
-            }
+            getRouteGraph(company, addHQ, true);
         }
         return routeGraph;
     }
@@ -80,9 +76,9 @@ public class NetworkAdapter {
     public NetworkMultigraph getMultigraph(PublicCompany company,
             Collection<NetworkVertex> protectedVertices) {
         if (multiGraph == null) {
-            multiGraph = NetworkMultigraph.create(
-                    getRevenueGraph(company, protectedVertices), protectedVertices);
-            log.debug("MultiGraph created");
+            multiGraph = root.getMapManager().getRouteGraphCache().getMultigraph(company,
+                    getRouteGraphCached(company, false), protectedVertices);
+            log.debug("MultiGraph retrieved");
         }
         return multiGraph;
     }
@@ -30,24 +30,47 @@ public class NetworkGraph {
 
     private final SimpleGraph<NetworkVertex, NetworkEdge> graph;
 
-    private final Map<String, NetworkVertex> vertices;
+    // vertices by their index (see NetworkVertex.getIndex), those without index by identifier
+    private NetworkVertex[] indexedVertices;
+    private final Map<String, NetworkVertex> otherVertices;
 
     private NetworkIterator iterator;
 
     private NetworkGraph() {
         graph = new SimpleGraph<>(NetworkEdge.class);
-        vertices = Maps.newHashMap();
+        indexedVertices = new NetworkVertex[0];
+        otherVertices = Maps.newHashMap();
     }
 
     private NetworkGraph(NetworkGraph inGraph) {
         graph = new SimpleGraph<>(NetworkEdge.class);
         Graphs.addGraph(graph, inGraph.graph);
-        vertices = Maps.newHashMap(inGraph.vertices);
+        indexedVertices = inGraph.indexedVertices.clone();
+        otherVertices = Maps.newHashMap(inGraph.otherVertices);
     }
 
+    /**
+     * @return a new map graph, based on the track graph maintained by the MapManager
+     * with the map graph modifiers applied
+     */
     public static NetworkGraph createMapGraph(RailsRoot root) {
+        NetworkGraph graph = root.getMapManager().getTrackGraph();
+        // add graph modifiers
+        RevenueManager revenueManager = root.getRevenueManager();
+        if (revenueManager != null) {
+            revenueManager.activateMapGraphModifiers(graph);
+        }
+        return graph;
+    }
+
+    /**
+     * Creates the graph of all tracks on the map (without graph modifiers)
+     * The MapManager keeps it up-to-date by use of updateTrackGraph
+     */
+    public static NetworkGraph createTrackGraph(MapManager mapManager) {
         NetworkGraph graph = new NetworkGraph();
-        graph.generateMapGraph(root);
+        graph.indexedVertices = new NetworkVertex[mapManager.getHexCount() * NetworkVertex.INDEX_SLOTS_PER_HEX];
+        graph.generateTrackGraph(mapManager);
         return graph;
     }
 
@@ -61,6 +84,7 @@ public class NetworkGraph {
      */
     public static NetworkGraph createRouteGraph(NetworkGraph mapGraph, PublicCompany company, boolean addHQ, boolean running) {
         NetworkGraph newGraph = new NetworkGraph();
+        newGraph.indexedVertices = new NetworkVertex[mapGraph.indexedVertices.length];
         newGraph.initRouteGraph(mapGraph, company, addHQ, running);
         newGraph.rebuildVertices();
         return newGraph;
@@ -78,6 +102,43 @@ public class NetworkGraph {
         return new NetworkGraph(this);
     }
 
+    /**
+     * In contrast to cloneGraph the copy does not share vertices and edges with the original graph
+     * @return a deep copy of the graph
+     */
+    public NetworkGraph copyGraph() {
+        NetworkGraph newGraph = new NetworkGraph();
+        newGraph.indexedVertices = new NetworkVertex[indexedVertices.length];
+        Map<NetworkVertex, NetworkVertex> copies = Maps.newHashMapWithExpectedSize(graph.vertexSet().size());
+        for (NetworkVertex vertex : graph.vertexSet()) {
+            NetworkVertex copy = vertex.copy();
+            newGraph.graph.addVertex(copy);
+            copies.put(vertex, copy);
+        }
+        for (NetworkEdge edge : graph.edgeSet()) {
+            NetworkVertex source = copies.get(edge.getSource());
+            NetworkVertex target = copies.get(edge.getTarget());
+            List<NetworkVertex> hiddenVertices = new ArrayList<>();
+            for (NetworkVertex vertex : edge.getHiddenVertices()) {
+                hiddenVertices.add(copies.getOrDefault(vertex, vertex));
+            }
+            newGraph.graph.addEdge(source, target, new NetworkEdge(source, target,
+                    edge.isGreedy(), edge.getDistance(), hiddenVertices));
+        }
+        for (int index = 0; index < indexedVertices.length; index++) {
+            if (indexedVertices[index] != null) {
+                newGraph.indexedVertices[index] = copies.get(indexedVertices[index]);
+            }
+        }
+        for (Map.Entry<String, NetworkVertex> entry : otherVertices.entrySet()) {
+            NetworkVertex copy = copies.get(entry.getValue());
+            if (copy != null) {
+                newGraph.otherVertices.put(entry.getKey(), copy);
+            }
+        }
+        return newGraph;
+    }
+
     public SimpleGraph<NetworkVertex, NetworkEdge> getGraph() {
         return graph;
     }
@@ -90,8 +151,16 @@ public class NetworkGraph {
         return iterator;
     }
 
+    /**
+     * Lookup by identifier is not indexed, thus intended for debugging and tests only
+     */
     public NetworkVertex getVertexByIdentifier(String identVertex) {
-        return vertices.get(identVertex);
+        for (NetworkVertex vertex : indexedVertices) {
+            if (vertex != null && vertex.getIdentifier().equals(identVertex)) {
+                return vertex;
+            }
+        }
+        return otherVertices.get(identVertex);
     }
 
     public NetworkVertex getVertex(BaseToken token) {
@@ -105,17 +174,45 @@ public class NetworkGraph {
     }
 
     public NetworkVertex getVertex(MapHex hex, TrackPoint point) {
-        return vertices.get(hex.getId() + "." + point.getTrackPointNumber());
+        return getVertex(hex, point.getTrackPointNumber());
     }
 
     public NetworkVertex getVertex(MapHex hex, int trackPointNr) {
-        return vertices.get(hex.getId() + "." + trackPointNr);
+        int index = NetworkVertex.getIndex(hex, trackPointNr);
+        if (index >= 0) {
+            return (index < indexedVertices.length) ? indexedVertices[index] : null;
+        }
+        return otherVertices.get(hex.getId() + "." + trackPointNr);
     }
 
     public NetworkVertex getVertexRotated(MapHex hex, TrackPoint point) {
         if (point.getTrackPointType() == TrackPoint.Type.SIDE)
             point = point.rotate(hex.getCurrentTileRotation());
-        return vertices.get(hex.getId() + "." + point.getTrackPointNumber());
+        return getVertex(hex, point.getTrackPointNumber());
+    }
+
+    private void putVertex(NetworkVertex vertex) {
+        int index = vertex.getIndex();
+        if (index >= 0) {
+            if (index >= indexedVertices.length) {
+                indexedVertices = Arrays.copyOf(indexedVertices,
+                        Math.max(index + 1, 2 * indexedVertices.length));
+            }
+            indexedVertices[index] = vertex;
+        } else {
+            otherVertices.put(vertex.getIdentifier(), vertex);
+        }
+    }
+
+    private void removeVertexEntry(NetworkVertex vertex) {
+        int index = vertex.getIndex();
+        if (index >= 0) {
+            if (index < indexedVertices.length && indexedVertices[index] == vertex) {
+                indexedVertices[index] = null;
+            }
+        } else {
+            otherVertices.remove(vertex.getIdentifier(), vertex);
+        }
     }
 
     public ImmutableMap<MapHex, HexSidesSet> getReachableSides() {
@@ -183,105 +280,183 @@ public class NetworkGraph {
 
     private void rebuildVertices() {
         // rebuild mapVertices
-        vertices.clear();
+        Arrays.fill(indexedVertices, null);
+        otherVertices.clear();
         for (NetworkVertex v : graph.vertexSet()) {
-            vertices.put(v.getIdentifier(), v);
+            putVertex(v);
         }
     }
 
-    private void generateMapGraph(RailsRoot root) {
-        MapManager mapManager = root.getMapManager();
-        RevenueManager revenueManager = root.getRevenueManager();
+    private void generateTrackGraph(MapManager mapManager) {
         for (MapHex hex : mapManager.getHexes()) {
             // Don't add any inaccessible hexes to the graph
             if (!hex.isOpen()) continue;
-
-            // get Tile
-            Tile tile = hex.getCurrentTile();
-
-            // then get stations
-            Collection<Station> stations = tile.getStations();
-            // and add those to the mapGraph
-            for (Station station : stations) {
-                NetworkVertex stationVertex = new NetworkVertex(hex, station);
-                graph.addVertex(stationVertex);
-                vertices.put(stationVertex.getIdentifier(), stationVertex);
-                log.debug("Added {}", stationVertex);
-            }
-
-            // get tracks per side to add that vertex
-            for (HexSide side : HexSide.all())
-                if (tile.hasTracks(side)) {
-                    HexSide rotated = side.rotate(hex.getCurrentTileRotation());
-                    NetworkVertex sideVertex = new NetworkVertex(hex, rotated);
-                    graph.addVertex(sideVertex);
-                    vertices.put(sideVertex.getIdentifier(), sideVertex);
-                    log.debug("Added {}", sideVertex);
-                }
+            addHexVertices(hex);
         }
 
         // loop over all hex and add tracks
         for (MapHex hex : mapManager.getHexes()) {
             if (!hex.isOpen()) continue;
+            addHexTracks(hex);
+
+            // and connect to neighbouring hexes (for sides 0-2)
+            for (HexSide side : HexSide.head()) {
+                connectHexSide(mapManager, hex, side);
+            }
+        }
+    }
+
+    /**
+     * Rebuilds the track graph for hexes with a changed track layout:
+     * Vertices and tracks of those hexes and their connections to the neighbouring hexes
+     * are replaced, the remaining graph is kept
+     */
+    public void updateTrackGraph(MapManager mapManager, Set<MapHex> changedHexes) {
+        if (changedHexes.isEmpty()) return;
 
-            // get Tile
-            Tile tile = hex.getCurrentTile();
-            // get Tracks
-            Set<Track> tracks = tile.getTracks();
-
-            for (Track track : tracks) {
-                NetworkVertex startVertex = getVertexRotated(hex, track.getStart());
-                NetworkVertex endVertex = getVertexRotated(hex, track.getEnd());
-                log.debug("Track: {}", track);
-                NetworkEdge edge = new NetworkEdge(startVertex, endVertex, false);
-                if (startVertex == endVertex) {
-                    log.error("Track {} on hex {}has identical start/end", track, hex);
-                } else {
-                    graph.addEdge(startVertex, endVertex, edge);
-                    log.debug("Added non-greedy edge {}", edge.getConnection());
+        // remove the vertices of the changed hexes ...
+        List<NetworkVertex> verticesToRemove = new ArrayList<>();
+        for (NetworkVertex vertex : graph.vertexSet()) {
+            if (changedHexes.contains(vertex.getHex())) {
+                verticesToRemove.add(vertex);
+            }
+        }
+        // ... and the deadend vertices of the neighbours, which are only caused by the changed hexes
+        for (MapHex hex : changedHexes) {
+            for (HexSide side : HexSide.all()) {
+                MapHex adjacentHex = mapManager.getAdjacentHex(hex, side);
+                if (adjacentHex == null || changedHexes.contains(adjacentHex)) continue;
+                HexSide adjacentSide = side.opposite();
+                NetworkVertex vertex = getVertex(adjacentHex, adjacentSide);
+                if (vertex != null && !hasTrackVertex(adjacentHex, adjacentSide)) {
+                    verticesToRemove.add(vertex);
                 }
             }
+        }
+        for (NetworkVertex vertex : verticesToRemove) {
+            graph.removeVertex(vertex);
+            removeVertexEntry(vertex);
+            log.debug("Removed {}", vertex);
+        }
 
-            // TODO: Rewrite this by employing the features of Trackpoint
-            // and connect to neighbouring hexes (for sides 0-2)
+        // add the vertices and tracks of the changed hexes again
+        for (MapHex hex : changedHexes) {
+            if (!hex.isOpen()) continue;
+            addHexVertices(hex);
+        }
+        for (MapHex hex : changedHexes) {
+            if (!hex.isOpen()) continue;
+            addHexTracks(hex);
+        }
+
+        // reconnect the changed hexes (each pair of neighbours only once)
+        SetMultimap<MapHex, HexSide> connections = HashMultimap.create();
+        for (MapHex hex : changedHexes) {
             for (HexSide side : HexSide.head()) {
-                MapHex neighborHex = mapManager.getNeighbour(hex, side);
-                if (neighborHex == null) {
-                    log.debug("No connection for Hex {} at {}, No Neighbor", hex.getId(), hex.getOrientationName(side));
-                    continue;
+                if (hex.isOpen()) {
+                    connections.put(hex, side);
                 }
-                NetworkVertex vertex = getVertex(hex, side);
-                HexSide rotated = side.opposite();
-                NetworkVertex otherVertex = getVertex(neighborHex, rotated);
-                if (vertex == null && otherVertex == null) {
-                    log.debug("Hex {} has no track at {}", hex.getId(), hex.getOrientationName(side));
-                    log.debug("And Hex {} has no track at {}", neighborHex.getId(), neighborHex.getOrientationName(rotated));
-                    continue;
-                } else if (vertex == null && otherVertex != null) {
-                    log.debug("Deadend connection for Hex {} at {}, NeighborHex {} has no track at side {}", neighborHex.getId(), neighborHex.getOrientationName(rotated), hex.getId(), hex.getOrientationName(side));
-                    vertex = new NetworkVertex(hex, side);
-                    graph.addVertex(vertex);
-                    vertices.put(vertex.getIdentifier(), vertex);
-                    log.debug("Added deadend vertex {}", vertex);
-                } else if (otherVertex == null) {
-                    log.debug("Deadend connection for Hex {} at {}, NeighborHex {} has no track at side {}", hex.getId(), hex.getOrientationName(side), neighborHex.getId(), neighborHex.getOrientationName(rotated));
-                    otherVertex = new NetworkVertex(neighborHex, rotated);
-                    graph.addVertex(otherVertex);
-                    vertices.put(otherVertex.getIdentifier(), otherVertex);
-                    log.debug("Added deadend vertex {}", otherVertex);
+            }
+            // the connections of the other sides are defined by the neighbours
+            for (HexSide side : HexSide.tail()) {
+                MapHex adjacentHex = mapManager.getAdjacentHex(hex, side);
+                if (adjacentHex != null && adjacentHex.isOpen()
+                        && mapManager.getNeighbour(adjacentHex, side.opposite()) == hex) {
+                    connections.put(adjacentHex, side.opposite());
                 }
-                NetworkEdge edge = new NetworkEdge(vertex, otherVertex, true);
-                graph.addEdge(vertex, otherVertex,
-                        edge);
-                log.debug("Added greedy edge {}", edge.getConnection());
             }
         }
+        for (Map.Entry<MapHex, HexSide> connection : connections.entries()) {
+            connectHexSide(mapManager, connection.getKey(), connection.getValue());
+        }
+    }
 
-        // add graph modifiers
-        if (revenueManager != null) {
-            revenueManager.activateMapGraphModifiers(this);
+    private void addVertex(NetworkVertex vertex) {
+        graph.addVertex(vertex);
+        putVertex(vertex);
+    }
+
+    private void addHexVertices(MapHex hex) {
+        // get Tile
+        Tile tile = hex.getCurrentTile();
+
+        // then get stations
+        Collection<Station> stations = tile.getStations();
+        // and add those to the mapGraph
+        for (Station station : stations) {
+            NetworkVertex stationVertex = new NetworkVertex(hex, station);
+            addVertex(stationVertex);
+            log.debug("Added {}", stationVertex);
         }
 
+        // get tracks per side to add that vertex
+        for (HexSide side : HexSide.all())
+            if (tile.hasTracks(side)) {
+                HexSide rotated = side.rotate(hex.getCurrentTileRotation());
+                NetworkVertex sideVertex = new NetworkVertex(hex, rotated);
+                addVertex(sideVertex);
+                log.debug("Added {}", sideVertex);
+            }
+    }
+
+    /**
+     * @return true if the current tile on the (open) hex has track to the (rotated) side
+     */
+    private static boolean hasTrackVertex(MapHex hex, HexSide side) {
+        if (!hex.isOpen()) return false;
+        HexSide unrotated = side.rotate(hex.getCurrentTileRotation().negative());
+        return hex.getCurrentTile().hasTracks(unrotated);
+    }
+
+    private void addHexTracks(MapHex hex) {
+        // get Tile
+        Tile tile = hex.getCurrentTile();
+        // get Tracks
+        Set<Track> tracks = tile.getTracks();
+
+        for (Track track : tracks) {
+            NetworkVertex startVertex = getVertexRotated(hex, track.getStart());
+            NetworkVertex endVertex = getVertexRotated(hex, track.getEnd());
+            log.debug("Track: {}", track);
+            NetworkEdge edge = new NetworkEdge(startVertex, endVertex, false);
+            if (startVertex == endVertex) {
+                log.error("Track {} on hex {}has identical start/end", track, hex);
+            } else {
+                graph.addEdge(startVertex, endVertex, edge);
+                log.debug("Added non-greedy edge {}", edge.getConnection());
+            }
+        }
+    }
+
+    // TODO: Rewrite this by employing the features of Trackpoint
+    private void connectHexSide(MapManager mapManager, MapHex hex, HexSide side) {
+        MapHex neighborHex = mapManager.getNeighbour(hex, side);
+        if (neighborHex == null) {
+            log.debug("No connection for Hex {} at {}, No Neighbor", hex.getId(), hex.getOrientationName(side));
+            return;
+        }
+        NetworkVertex vertex = getVertex(hex, side);
+        HexSide rotated = side.opposite();
+        NetworkVertex otherVertex = getVertex(neighborHex, rotated);
+        if (vertex == null && otherVertex == null) {
+            log.debug("Hex {} has no track at {}", hex.getId(), hex.getOrientationName(side));
+            log.debug("And Hex {} has no track at {}", neighborHex.getId(), neighborHex.getOrientationName(rotated));
+            return;
+        } else if (vertex == null && otherVertex != null) {
+            log.debug("Deadend connection for Hex {} at {}, NeighborHex {} has no track at side {}", neighborHex.getId(), neighborHex.getOrientationName(rotated), hex.getId(), hex.getOrientationName(side));
+            vertex = new NetworkVertex(hex, side);
+            addVertex(vertex);
+            log.debug("Added deadend vertex {}", vertex);
+        } else if (otherVertex == null) {
+            log.debug("Deadend connection for Hex {} at {}, NeighborHex {} has no track at side {}", hex.getId(), hex.getOrientationName(side), neighborHex.getId(), neighborHex.getOrientationName(rotated));
+            otherVertex = new NetworkVertex(neighborHex, rotated);
+            addVertex(otherVertex);
+            log.debug("Added deadend vertex {}", otherVertex);
+        }
+        NetworkEdge edge = new NetworkEdge(vertex, otherVertex, true);
+        graph.addEdge(vertex, otherVertex,
+                edge);
+        log.debug("Added greedy edge {}", edge.getConnection());
     }
 
     public void optimizeGraph() {
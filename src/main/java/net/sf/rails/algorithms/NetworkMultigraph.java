@@ -46,6 +46,50 @@ public class NetworkMultigraph {
         return newGraph;
     }
 
+    /**
+     * Creates a copy of the multigraph for another graph with identical structure,
+     * the vertices are replaced by those with the same identifier
+     * @return the copy, null if a vertex is not found in the graph
+     */
+    NetworkMultigraph copyFor(NetworkGraph newInGraph) {
+        Map<String, NetworkVertex> vertices = new HashMap<String, NetworkVertex>();
+        for (NetworkVertex vertex:newInGraph.getGraph().vertexSet()) {
+            vertices.put(vertex.getIdentifier(), vertex);
+        }
+
+        NetworkMultigraph newGraph = new NetworkMultigraph(newInGraph);
+        for (NetworkVertex vertex:graph2.vertexSet()) {
+            NetworkVertex newVertex = vertices.get(vertex.getIdentifier());
+            if (newVertex == null) return null;
+            newGraph.graph2.addVertex(newVertex);
+        }
+
+        Map<NetworkEdge, NetworkEdge> routeEdges = new HashMap<NetworkEdge, NetworkEdge>();
+        for (NetworkEdge edge:graph2.edgeSet()) {
+            List<NetworkVertex> hiddenVertices = new ArrayList<NetworkVertex>();
+            for (NetworkVertex vertex:edge.getHiddenVertices()) {
+                NetworkVertex newVertex = vertices.get(vertex.getIdentifier());
+                if (newVertex == null) return null;
+                hiddenVertices.add(newVertex);
+            }
+            NetworkVertex source = vertices.get(edge.getSource().getIdentifier());
+            NetworkVertex target = vertices.get(edge.getTarget().getIdentifier());
+            NetworkEdge newEdge = new NetworkEdge(source, target, edge.isGreedy(),
+                    edge.getDistance(), hiddenVertices);
+            newGraph.graph2.addEdge(source, target, newEdge);
+            routeEdges.put(edge, newEdge);
+        }
+
+        // the partial edges are only used to identify overlapping routes
+        for (Map.Entry<NetworkEdge, NetworkEdge> entry:partial2route.entries()) {
+            newGraph.partial2route.put(entry.getKey(), routeEdges.get(entry.getValue()));
+        }
+        for (Map.Entry<NetworkEdge, NetworkEdge> entry:route2partial.entries()) {
+            newGraph.route2partial.put(routeEdges.get(entry.getKey()), entry.getValue());
+        }
+        return newGraph;
+    }
+
     public Multigraph<NetworkVertex, NetworkEdge> getGraph() {
         return graph2;
     }
@@ -36,6 +36,13 @@ public final class NetworkVertex implements Comparable<NetworkVertex> {
     // vertex properties (for virtual vertexes)
     private final String virtualId;
 
+    // number of index slots per hex: sides 0 to 5, stations 1 to 10
+    static final int INDEX_SLOTS_PER_HEX = 16;
+
+    // identifier and index are fixed (index is -1 for virtual vertices)
+    private final String identifier;
+    private final int index;
+
     // general vertex properties
     private StationType stationType;
     private int value = 0;
@@ -65,6 +72,8 @@ public final class NetworkVertex implements Comparable<NetworkVertex> {
 
         this.virtual = false;
         this.virtualId = null;
+        this.identifier = hex.getId() + "." + trackPoint.getTrackPointNumber();
+        this.index = getIndex(hex, trackPoint.getTrackPointNumber());
 
         this.revenueManager = hex.getRoot().getRevenueManager();
     }
@@ -78,6 +87,8 @@ public final class NetworkVertex implements Comparable<NetworkVertex> {
 
         this.virtual = false;
         this.virtualId = null;
+        this.identifier = hex.getId() + "." + trackPoint.getTrackPointNumber();
+        this.index = getIndex(hex, trackPoint.getTrackPointNumber());
     }
 
     /**  constructor for public company hq */
@@ -93,6 +104,32 @@ public final class NetworkVertex implements Comparable<NetworkVertex> {
 
         this.virtual = true;
         this.virtualId = name;
+        this.identifier = name;
+        this.index = -1;
+    }
+
+    /** copy constructor (used to hand out copies of the cached map graph) */
+    private NetworkVertex(NetworkVertex source) {
+        this.type = source.type;
+        this.hex = source.hex;
+        this.trackPoint = source.trackPoint;
+        this.stop = source.stop;
+
+        this.virtual = source.virtual;
+        this.virtualId = source.virtualId;
+        this.identifier = source.identifier;
+        this.index = source.index;
+
+        this.stationType = source.stationType;
+        this.value = source.value;
+        this.sink = source.sink;
+        this.stopName = source.stopName;
+        this.mutexId = source.mutexId;
+        this.revenueManager = source.revenueManager;
+    }
+
+    NetworkVertex copy() {
+        return new NetworkVertex(this);
     }
 
     /** factory method for virtual vertex
@@ -106,11 +143,25 @@ public final class NetworkVertex implements Comparable<NetworkVertex> {
     }
 
     public String getIdentifier(){
-        if (virtual) {
-            return virtualId;
-        } else {
-            return hex.getId() + "." + trackPoint.getTrackPointNumber();
-        }
+        return identifier;
+    }
+
+    /**
+     * @return the index of the vertex for array based lookups, -1 for virtual vertices
+     * and stations with numbers above the slots available
+     */
+    int getIndex() {
+        return index;
+    }
+
+    /**
+     * @return the index for the track point on the hex, -1 if no index is available
+     */
+    static int getIndex(MapHex hex, int trackPointNumber) {
+        // sides are numbered 0 to 5, stations -1, -2, ...
+        int slot = (trackPointNumber >= 0) ? trackPointNumber : HexSide.all().size() - 1 - trackPointNumber;
+        if (hex.getIndex() < 0 || slot >= INDEX_SLOTS_PER_HEX) return -1;
+        return hex.getIndex() * INDEX_SLOTS_PER_HEX + slot;
     }
 
     public boolean isVirtual() {
@@ -207,6 +258,10 @@ public final class NetworkVertex implements Comparable<NetworkVertex> {
                 break;
         }
         return valueByTrain;*/
+        // side vertices and virtual vertices (e.g. duplicated by modifiers) have no stop
+        if (stop == null || revenueManager == null) {
+            return value;
+        }
         Train railsTrain= train.getRailsTrain();
         PublicCompany company = (PublicCompany)railsTrain.getOwner();
         int revenue = revenueManager.getActualAsInteger(stop, railsTrain,
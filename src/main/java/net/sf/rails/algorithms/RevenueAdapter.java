@@ -2,6 +2,7 @@ package net.sf.rails.algorithms;
 
 import java.awt.EventQueue;
 import java.awt.geom.GeneralPath;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -10,6 +11,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 
 import net.sf.rails.common.LocalText;
 import net.sf.rails.game.*;
@@ -77,10 +79,23 @@ public final class RevenueAdapter implements Runnable {
     private List<NetworkEdge> rcEdges;
     private List<RevenueTrainRun> optimalRun;
     private boolean hasDynamicModifiers;
+    // view on the current run for dynamic modifiers, null if the run has to be converted
+    private RevenueRunSnapshot runSnapshot;
 
     // revenue listener to communicate results
     private RevenueListener revenueListener;
 
+    // termination settings for the revenue calculator
+    private CancellationToken cancellationToken;
+    private boolean hasDeadline;
+    private long deadline;
+    // read by the listener, thus set before the final result is reported
+    private volatile boolean optimal = true;
+
+    // settings for calculations started by run()
+    private final CancellationToken runCancellationToken = new CancellationToken();
+    private Duration runTimeBudget;
+
     public RevenueAdapter(RailsRoot root, NetworkAdapter networkAdapter,
             PublicCompany company, Phase phase){
         this.root = root;
@@ -294,7 +309,29 @@ public final class RevenueAdapter implements Runnable {
         return false;
     }
 
+    /**
+     * checks the set of trains for H-trains and express trains (E-trains or trains ignoring minors)
+     * @return true if H-trains or express trains are used
+     */
+    private boolean useHOrExpressTrains() {
+        for (NetworkTrain train:trains) {
+            if (train.isHTrain() || train.isETrain() || train.ignoresMinors()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     public void initRevenueCalculator(boolean useMultiGraph){
+        initRevenueCalculator(useMultiGraph, false);
+    }
+
+    /**
+     * @param useMultiGraph true to use the multigraph calculator
+     * @param parallel true to search the multigraph in parallel on the common fork-join pool,
+     * this is ignored for the simple graph calculator, for H- and express trains and if dynamic modifiers are active
+     */
+    public void initRevenueCalculator(boolean useMultiGraph, boolean parallel){
 
         this.useMultiGraph = useMultiGraph;
 
@@ -350,6 +387,37 @@ public final class RevenueAdapter implements Runnable {
         }
 
         populateRevenueCalculator();
+
+        if (hasDynamicModifiers && revenueManager.usesRunSnapshots()) {
+            runSnapshot = createRunSnapshot();
+        } else {
+            runSnapshot = null;
+        }
+
+        // dynamic modifiers evaluate the current run of the adapter's calculator, thus require a sequential search
+        // the revenue prediction for H- and express trains is not exact, thus the result would depend on the search order
+        if (useMultiGraph && parallel && !hasDynamicModifiers && !useHOrExpressTrains()) {
+            ((RevenueCalculatorMulti)rc).setParallelPool(ForkJoinPool.commonPool());
+        }
+    }
+
+    private RevenueRunSnapshot createRunSnapshot() {
+        NetworkVertex[][] elementVertices;
+        if (useMultiGraph) {
+            // the train stack contains edges
+            elementVertices = new NetworkVertex[rcEdges.size()][];
+            for (int id=0; id < rcEdges.size(); id++) {
+                NetworkEdge edge = rcEdges.get(id);
+                elementVertices[id] = new NetworkVertex[] {edge.getSource(), edge.getTarget()};
+            }
+        } else {
+            // the train stack contains vertices
+            elementVertices = new NetworkVertex[rcVertices.size()][];
+            for (int id=0; id < rcVertices.size(); id++) {
+                elementVertices[id] = new NetworkVertex[] {rcVertices.get(id)};
+            }
+        }
+        return new RevenueRunSnapshot(rc, trains, elementVertices);
     }
 
     private int maxVisitVertices() {
@@ -629,17 +697,57 @@ public final class RevenueAdapter implements Runnable {
     }
 
     public int calculateRevenue() {
-        // allows (one) dynamic modifiers to have their own revenue calculation method
-        // TODO: Still to be added - beware: it is used differently in 1837
-        // (see RunToCoalMineModifier).
-//        if (hasDynamicCalculator) {
-//            return revenueManager.revenueFromDynamicCalculator(this);
-        // For 1837 we need to do both!
-        //specialRevenue = revenueManager.revenueFromDynamicCalculator(this); //??
-        specialRevenue = revenueManager.getSpecialRevenue();
-//        } else { // otherwise standard calculation
-        return calculateRevenue(0, trains.size() - 1);
-//        }
+        return calculateRevenue(null, null);
+    }
+
+    /**
+     * calculates the revenue within a time budget and allows cancellation from another thread
+     * if the calculation terminates early, the best run found so far is used and isOptimal() returns false
+     * @param budget maximum duration of the calculation, null for no limit
+     * @param cancellationToken token to cancel the calculation, can be null
+     * @return revenue of the best run found
+     */
+    public int calculateRevenue(Duration budget, CancellationToken cancellationToken) {
+        startTermination(budget, cancellationToken);
+        try {
+            // allows (one) dynamic modifiers to have their own revenue calculation method
+            // TODO: Still to be added - beware: it is used differently in 1837
+            // (see RunToCoalMineModifier).
+//            if (hasDynamicCalculator) {
+//                return revenueManager.revenueFromDynamicCalculator(this);
+            // For 1837 we need to do both!
+            //specialRevenue = revenueManager.revenueFromDynamicCalculator(this); //??
+            specialRevenue = revenueManager.getSpecialRevenue();
+//            } else { // otherwise standard calculation
+            return calculateRevenue(0, trains.size() - 1);
+//            }
+        } finally {
+            clearTermination();
+        }
+    }
+
+    private void startTermination(Duration budget, CancellationToken cancellationToken) {
+        this.cancellationToken = cancellationToken;
+        if (budget != null) {
+            hasDeadline = true;
+            deadline = System.nanoTime() + budget.toNanos();
+        } else {
+            hasDeadline = false;
+        }
+        optimal = true;
+    }
+
+    private void clearTermination() {
+        cancellationToken = null;
+        hasDeadline = false;
+    }
+
+    /**
+     * @return false if the last calculation was cancelled or ran out of time,
+     * thus the result is the best run found so far, but not proven to be optimal
+     */
+    public boolean isOptimal() {
+        return optimal;
     }
 
     // Another way to get the special revenue
@@ -653,8 +761,10 @@ public final class RevenueAdapter implements Runnable {
         }
         // the optimal run might change
         optimalRun = null;
+        rc.setTermination(cancellationToken, hasDeadline, deadline);
         rc.initRuns(startTrain, finalTrain);
-        rc.executePredictions(startTrain, finalTrain);
+        rc.executePredictions(startTrain, finalTrain,
+                root.getMapManager().getRouteGraphCache().getPredictionCache(company));
         int value = rc.calculateRevenue(startTrain, finalTrain);
         totalRevenue = value;
 
@@ -665,6 +775,30 @@ public final class RevenueAdapter implements Runnable {
         return specialRevenue;
     }
 
+    /**
+     * @return number of evaluated runs of the last calculation
+     */
+    public int getNumberOfEvaluations() {
+        return rc.getNumberOfEvaluations();
+    }
+
+    /**
+     * @return statistics of the last calculation (evaluations, predictions and edges travelled)
+     */
+    public String getStatistics() {
+        return rc.getStatistics();
+    }
+
+    /**
+     * @return the trace of the search steps of the revenue calculator from the oldest to the most recent one,
+     * null if tracing is not enabled (see RevenueTrace)
+     */
+    public String dumpTrace() {
+        RevenueTrace trace = rc.getTrace();
+        if (trace == null) return null;
+        return trace.dump(id -> rcVertices.get(id).toString(), id -> rcEdges.get(id).toString());
+    }
+
     public int getTotalRevenue() {
         return totalRevenue;
     }
@@ -688,7 +822,10 @@ public final class RevenueAdapter implements Runnable {
      */
     int dynamicEvaluation() {
         int value = 0;
-        if (hasDynamicModifiers) {
+        if (runSnapshot != null) {
+            value = revenueManager.evaluationValue(runSnapshot);
+            specialRevenue = revenueManager.getSpecialRevenue();
+        } else if (hasDynamicModifiers) {
             value = revenueManager.evaluationValue(this.getCurrentRun(), false);
             specialRevenue = revenueManager.getSpecialRevenue();
         }
@@ -700,7 +837,9 @@ public final class RevenueAdapter implements Runnable {
      */
     int dynamicPrediction() {
         int value = 0;
-        if (hasDynamicModifiers) {
+        if (runSnapshot != null) {
+            value = revenueManager.predictionValue(runSnapshot);
+        } else if (hasDynamicModifiers) {
             value = revenueManager.predictionValue(this.getCurrentRun());
         }
         return value;
@@ -711,6 +850,11 @@ public final class RevenueAdapter implements Runnable {
     }
 
     void notifyRevenueListener(final int revenue, final int specialRevenue, final boolean finalResult) {
+        // the final result of an aborted calculation is not optimal, this has to be known before it is reported
+        if (finalResult && rc.isAborted()) {
+            optimal = false;
+        }
+
         if (revenueListener == null) return;
 
         EventQueue.invokeLater(
@@ -724,8 +868,28 @@ public final class RevenueAdapter implements Runnable {
                 });
     }
 
+    /**
+     * defines the time budget for calculations started by run()
+     * @param budget maximum duration of the calculation, null for no limit
+     */
+    public void setRunTimeBudget(Duration budget) {
+        this.runTimeBudget = budget;
+    }
+
+    /**
+     * cancels a calculation started by run(), the best run found so far is reported as final result
+     */
+    public void cancel() {
+        runCancellationToken.cancel();
+    }
+
     public void run() {
-        calculateRevenue(0, trains.size() -1);
+        startTermination(runTimeBudget, runCancellationToken);
+        try {
+            calculateRevenue(0, trains.size() -1);
+        } finally {
+            clearTermination();
+        }
     }
 
     public void removeRevenueListener() {
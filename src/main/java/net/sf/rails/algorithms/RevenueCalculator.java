@@ -1,6 +1,9 @@
 package net.sf.rails.algorithms;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -94,6 +97,20 @@ abstract class RevenueCalculator {
     // activate dynamic revenue modifiers
     protected boolean callDynamicModifiers;
 
+    // lower bound shared between parallel workers, null for sequential calculation
+    protected AtomicInteger sharedBestValue;
+
+    // termination settings: cancellation token, thread and deadline (based on System.nanoTime())
+    private CancellationToken cancellationToken;
+    private Thread terminationThread;
+    private boolean hasDeadline;
+    private long deadline;
+    private int pollCount;
+    private boolean aborted;
+
+    // number of polls between two checks of the termination conditions, has to be a power of two
+    private static final int POLL_INTERVAL = 1024;
+
     // termination results
     protected enum Terminated {
         WITH_EVALUATION,
@@ -103,6 +120,13 @@ abstract class RevenueCalculator {
 
     private static final Logger log = LoggerFactory.getLogger(RevenueCalculator.class);
 
+    // debug output of the search, activated by the system property rails.revenue.debug
+    // the switch is evaluated once, thus the debug calls are removed from the search if it is false
+    static final boolean DEBUG = Boolean.getBoolean("rails.revenue.debug");
+
+    // trace of the search, null if not enabled (see RevenueTrace)
+    protected final RevenueTrace trace;
+
 
     public RevenueCalculator (RevenueAdapter revenueAdapter, int nbVertexes, int nbEdges,
             int maxNeighbors, int maxVertexSets, int maxEdgeSets, int nbTrains, int nbBonuses) {
@@ -161,6 +185,134 @@ abstract class RevenueCalculator {
         useRevenuePrediction = false;
 
         callDynamicModifiers = false;
+
+        trace = RevenueTrace.create();
+    }
+
+    /**
+     * creates a worker copy for parallel calculation
+     * static vertex, edge, train and bonus data and prediction data are shared,
+     * dynamic data is copied and statistics start at zero
+     */
+    protected RevenueCalculator(RevenueCalculator source) {
+        this.revenueAdapter = source.revenueAdapter;
+        this.nbVertexes = source.nbVertexes;
+        this.nbEdges = source.nbEdges;
+        this.nbTrains = source.nbTrains;
+        this.nbBonuses = source.nbBonuses;
+
+        // static data
+        vertexValueByTrain = source.vertexValueByTrain;
+        vertexMajor = source.vertexMajor;
+        vertexMinor = source.vertexMinor;
+        vertexSink = source.vertexSink;
+        vertexNbNeighbors = source.vertexNbNeighbors;
+        vertexNbVisitSets = source.vertexNbVisitSets;
+        vertexNbBonusSets = source.vertexNbBonusSets;
+        vertexNeighbors = source.vertexNeighbors;
+        vertexEdges = source.vertexEdges;
+        vertexVisitSets = source.vertexVisitSets;
+        vertexBonusSets = source.vertexBonusSets;
+        startVertexes = source.startVertexes;
+
+        edgeGreedy = source.edgeGreedy;
+        edgeDistance = source.edgeDistance;
+
+        trainMaxMajors = source.trainMaxMajors;
+        trainMaxMinors = source.trainMaxMinors;
+        trainMaxBonuses = source.trainMaxBonuses;
+        trainIgnoreMinors = source.trainIgnoreMinors;
+        trainIsH = source.trainIsH;
+        trainIsE = source.trainIsE;
+
+        bonusValue = source.bonusValue;
+        bonusRequiresVertices = source.bonusRequiresVertices;
+        bonusActiveForTrain = source.bonusActiveForTrain;
+
+        // dynamic data
+        trainCurrentValue = source.trainCurrentValue.clone();
+        trainMajors = source.trainMajors.clone();
+        trainMinors = source.trainMinors.clone();
+        trainBonuses = source.trainBonuses.clone();
+        trainVisited = deepCopy(source.trainVisited);
+        trainStack = deepCopy(source.trainStack);
+        trainStackPos = source.trainStackPos.clone();
+        trainBottomActive = source.trainBottomActive.clone();
+        trainStartEdge = source.trainStartEdge.clone();
+        trainDistance = source.trainDistance.clone();
+        bonusTrainVertices = deepCopy(source.bonusTrainVertices);
+        specialRevenue = source.specialRevenue;
+
+        // run settings and current best run
+        startTrainSet = source.startTrainSet;
+        finalTrainSet = source.finalTrainSet;
+        startTrain = source.startTrain;
+        finalTrain = source.finalTrain;
+        useRevenuePrediction = source.useRevenuePrediction;
+        currentBestValue = source.currentBestValue;
+        currentBestSpecRev = source.currentBestSpecRev;
+        currentBestRun = deepCopy(source.currentBestRun);
+
+        // prediction data
+        maxCumulatedTrainRevenues = source.maxCumulatedTrainRevenues;
+        maxMajorRevenues = source.maxMajorRevenues;
+        maxMinorRevenues = source.maxMinorRevenues;
+        maxBonusRevenues = source.maxBonusRevenues;
+
+        callDynamicModifiers = source.callDynamicModifiers;
+
+        cancellationToken = source.cancellationToken;
+        terminationThread = source.terminationThread;
+        hasDeadline = source.hasDeadline;
+        deadline = source.deadline;
+        aborted = source.aborted;
+
+        trace = source.trace;
+    }
+
+    private static int[][] deepCopy(int[][] source) {
+        int[][] copy = new int[source.length][];
+        for (int i = 0; i < source.length; i++) {
+            copy[i] = source[i].clone();
+        }
+        return copy;
+    }
+
+    private static boolean[][] deepCopy(boolean[][] source) {
+        boolean[][] copy = new boolean[source.length][];
+        for (int i = 0; i < source.length; i++) {
+            copy[i] = source[i].clone();
+        }
+        return copy;
+    }
+
+    /**
+     * takes over the results and statistics of the workers of a parallel calculation
+     * the workers have to be given in the order of the sequential search,
+     * thus for equal values the run of the first worker is kept, as a sequential search would do
+     */
+    protected final void mergeWorkers(Iterable<? extends RevenueCalculator> workers) {
+        RevenueCalculator bestWorker = null;
+        int bestValue = currentBestValue;
+        for (RevenueCalculator worker : workers) {
+            nbEvaluations += worker.nbEvaluations;
+            nbPredictions += worker.nbPredictions;
+            nbEdgesTravelled += worker.nbEdgesTravelled;
+            if (worker.aborted) {
+                aborted = true;
+            }
+            if (worker.currentBestValue > bestValue) {
+                bestWorker = worker;
+                bestValue = worker.currentBestValue;
+            }
+        }
+        if (bestWorker != null) {
+            currentBestValue = bestWorker.currentBestValue;
+            currentBestSpecRev = bestWorker.currentBestSpecRev;
+            for (int j = 0; j < nbTrains; j++) {
+                System.arraycopy(bestWorker.currentBestRun[j], 0, currentBestRun[j], 0, nbVertexes + 1);
+            }
+        }
     }
 
     final void setVertex(int id, boolean major, boolean minor, boolean sink) {
@@ -234,6 +386,45 @@ abstract class RevenueCalculator {
         callDynamicModifiers = activate;
     }
 
+    /**
+     * defines the termination conditions for the next calculation and resets the aborted state
+     * @param cancellationToken token to cancel the calculation, can be null
+     * @param hasDeadline true if the deadline has to be respected
+     * @param deadline deadline as System.nanoTime() value
+     */
+    final void setTermination(CancellationToken cancellationToken, boolean hasDeadline, long deadline) {
+        this.cancellationToken = cancellationToken;
+        this.terminationThread = Thread.currentThread();
+        this.hasDeadline = hasDeadline;
+        this.deadline = deadline;
+        this.pollCount = 0;
+        this.aborted = false;
+    }
+
+    /**
+     * @return true if the last calculation was aborted, thus the best run is not proven to be optimal
+     */
+    final boolean isAborted() {
+        return aborted;
+    }
+
+    /**
+     * polls the termination conditions (cancellation, interruption of the calling thread and deadline)
+     * the conditions themselves are only checked every POLL_INTERVAL calls
+     * @return true if the search has to be aborted
+     */
+    protected final boolean checkAborted() {
+        if (aborted) return true;
+        if ((++pollCount & (POLL_INTERVAL - 1)) != 0) return false;
+        if (cancellationToken != null && cancellationToken.isCancelled()
+                || terminationThread != null && terminationThread.isInterrupted()
+                || hasDeadline && System.nanoTime() - deadline >= 0) {
+            log.debug("RC: Search aborted after {}", getStatistics());
+            aborted = true;
+        }
+        return aborted;
+    }
+
     final int[][] getOptimalRun() {
         log.debug("RC: currentBestRun = {}", Arrays.deepToString(currentBestRun));
         return currentBestRun;
@@ -258,6 +449,13 @@ abstract class RevenueCalculator {
         return nbEvaluations;
     }
 
+    /**
+     * @return the trace of the search, null if tracing is not enabled
+     */
+    final RevenueTrace getTrace() {
+        return trace;
+    }
+
     final String getStatistics() {
         StringBuilder statistics = new StringBuilder();
         statistics.append(nbEvaluations).append(" evaluations");
@@ -269,7 +467,9 @@ abstract class RevenueCalculator {
 
     private void notifyRevenueAdapter(final int revenue, final int specialRevenue, final boolean finalResult) {
         String modifier;
-        if (finalResult)
+        if (finalResult && aborted)
+            modifier = "final (aborted)";
+        else if (finalResult)
             modifier = "final";
         else
             modifier = "new best";
@@ -306,32 +506,61 @@ abstract class RevenueCalculator {
         maxMajorRevenues = new int[nbTrains][nbVertexes];
         maxMinorRevenues = new int[nbTrains][nbVertexes];
         maxBonusRevenues = new int[nbTrains][nbVertexes + nbBonuses];
+        // a train run only visits vertices reachable from its start vertex
+        List<boolean[]> reachableSets = reachableVertexSets(Integer.MAX_VALUE);
         for (int t=startTrain; t <= finalTrain; t++) {
-            int[] majorValues = new int[nbVertexes];
-            int[] minorValues = new int[nbVertexes];
-            int[] bonusValues = new int[nbVertexes + nbBonuses];
-            int major = 0, minor = 0, bonus = 0;
-            // scan vertices for values
+            // number of bonuses available on the whole graph
+            int bonus = 0;
             for (int v=0; v < nbVertexes; v++) {
-                if (vertexValueByTrain[v][t] == 0) continue;
-                if (vertexMajor[v]) {
-                    majorValues[major++] = vertexValueByTrain[v][t];
-                } else if (vertexMinor[v]) {
-                    minorValues[minor++] = vertexValueByTrain[v][t];
-                } else { // define it as bonus
-                    bonusValues[bonus++] = vertexValueByTrain[v][t];
-                }
+                if (vertexValueByTrain[v][t] != 0 && !vertexMajor[v] && !vertexMinor[v]) bonus++;
             }
-            // add the (complex) bonuses
             for (int b=0; b < nbBonuses; b++) {
-                if (bonusValue[b] <= 0 || !bonusActiveForTrain[b][t]) continue;
-                bonusValues[bonus++] = bonusValue[b];
+                if (bonusValue[b] > 0 && bonusActiveForTrain[b][t]) bonus++;
             }
             trainMaxBonuses[t] = bonus;
 
-            maxMajorRevenues[t] = bestRevenues(majorValues, trainMaxMajors[t]);
-            maxMinorRevenues[t] = bestRevenues(minorValues, trainMaxMinors[t]);
-            maxBonusRevenues[t] = bestRevenues(bonusValues, trainMaxBonuses[t]);
+            // H-trains are further limited by their distance
+            List<boolean[]> trainSets = reachableSets;
+            if (trainIsH[t] && limitsTrainDistance()) {
+                trainSets = reachableVertexSets(trainMaxMajors[t]);
+            }
+
+            // the best values are the maximum of the best values of each reachable set
+            maxMajorRevenues[t] = new int[trainMaxMajors[t] + 1];
+            maxMinorRevenues[t] = new int[trainMaxMinors[t] + 1];
+            maxBonusRevenues[t] = new int[trainMaxBonuses[t] + 1];
+            for (boolean[] reachable : trainSets) {
+                int[] majorValues = new int[nbVertexes];
+                int[] minorValues = new int[nbVertexes];
+                int[] bonusValues = new int[nbVertexes + nbBonuses];
+                int[] bonusVertices = new int[nbBonuses];
+                int major = 0, minor = 0;
+                bonus = 0;
+                // scan vertices for values
+                for (int v=0; v < nbVertexes; v++) {
+                    if (!reachable[v]) continue;
+                    for (int j=0; j < vertexNbBonusSets[v]; j++) {
+                        bonusVertices[vertexBonusSets[v][j]]++;
+                    }
+                    if (vertexValueByTrain[v][t] == 0) continue;
+                    if (vertexMajor[v]) {
+                        majorValues[major++] = vertexValueByTrain[v][t];
+                    } else if (vertexMinor[v]) {
+                        minorValues[minor++] = vertexValueByTrain[v][t];
+                    } else { // define it as bonus
+                        bonusValues[bonus++] = vertexValueByTrain[v][t];
+                    }
+                }
+                // add the (complex) bonuses, if all required vertices are reachable
+                for (int b=0; b < nbBonuses; b++) {
+                    if (bonusValue[b] <= 0 || !bonusActiveForTrain[b][t]) continue;
+                    if (bonusVertices[b] < bonusRequiresVertices[b]) continue;
+                    bonusValues[bonus++] = bonusValue[b];
+                }
+                maximize(maxMajorRevenues[t], bestRevenues(majorValues, trainMaxMajors[t]));
+                maximize(maxMinorRevenues[t], bestRevenues(minorValues, trainMaxMinors[t]));
+                maximize(maxBonusRevenues[t], bestRevenues(bonusValues, trainMaxBonuses[t]));
+            }
             // initially the cumulated train revenues are the individual run revenues
             int trainRevenues = maxMajorRevenues[t][trainMaxMajors[t]] + maxMinorRevenues[t][trainMaxMinors[t]]
                      + maxBonusRevenues[t][trainMaxBonuses[t]];
@@ -343,6 +572,73 @@ abstract class RevenueCalculator {
         log.debug("maxCumulatedTrainRevenues = {}", Arrays.toString(maxCumulatedTrainRevenues));
     }
 
+    private static void maximize(final int[] maxValues, final int[] values) {
+        for (int j=0; j < maxValues.length; j++) {
+            maxValues[j] = Math.max(maxValues[j], values[j]);
+        }
+    }
+
+    /**
+     * @return true if the calculator terminates H-trains by distance (thus their prediction can use it)
+     */
+    protected boolean limitsTrainDistance() {
+        return false;
+    }
+
+    /**
+     * @param maxDistance maximum distance from the start vertex (see edgeDistance)
+     * @return the distinct sets of vertices that are reachable from the start vertices
+     */
+    private List<boolean[]> reachableVertexSets(final int maxDistance) {
+        List<boolean[]> reachableSets = new ArrayList<>();
+        for (int startVertex : startVertexes) {
+            boolean[] reachable = reachableVertices(startVertex, maxDistance);
+            boolean known = false;
+            for (boolean[] set : reachableSets) {
+                if (Arrays.equals(set, reachable)) {
+                    known = true;
+                    break;
+                }
+            }
+            if (!known) reachableSets.add(reachable);
+        }
+        return reachableSets;
+    }
+
+    /**
+     * shortest distances from the start vertex, a train cannot leave a sink (except the start vertex)
+     */
+    private boolean[] reachableVertices(final int startVertex, final int maxDistance) {
+        int[] distance = new int[nbVertexes];
+        Arrays.fill(distance, Integer.MAX_VALUE);
+        boolean[] done = new boolean[nbVertexes];
+        boolean[] reachable = new boolean[nbVertexes];
+        distance[startVertex] = 0;
+        while (true) {
+            // next vertex with the minimum distance
+            int vertexId = -1;
+            for (int v=0; v < nbVertexes; v++) {
+                if (done[v] || distance[v] == Integer.MAX_VALUE) continue;
+                if (vertexId == -1 || distance[v] < distance[vertexId]) vertexId = v;
+            }
+            if (vertexId == -1) break;
+            done[vertexId] = true;
+            reachable[vertexId] = true;
+            if (vertexSink[vertexId] && vertexId != startVertex) continue;
+            for (int j=0; j < vertexNbNeighbors[vertexId]; j++) {
+                int neighborId = vertexNeighbors[vertexId][j];
+                int neighborDistance = distance[vertexId];
+                if (maxDistance != Integer.MAX_VALUE) {
+                    neighborDistance += edgeDistance[vertexEdges[vertexId][j]];
+                }
+                if (neighborDistance <= maxDistance && neighborDistance < distance[neighborId]) {
+                    distance[neighborId] = neighborDistance;
+                }
+            }
+        }
+        return reachable;
+    }
+
     final void initRuns(final int startTrain, final int finalTrain) {
         log.debug("RC: init train index from {} to {}", startTrain, finalTrain);
         if (startTrain > finalTrain) return;
@@ -357,7 +653,10 @@ abstract class RevenueCalculator {
         currentBestValue = 0;
 
     }
-    final void executePredictions(final int startTrain, final int finalTrain) {
+    /**
+     * @param cache cache of the prediction runs, null to run all of them
+     */
+    final void executePredictions(final int startTrain, final int finalTrain, RevenuePredictionCache cache) {
 
         useRevenuePrediction = true;
 
@@ -372,15 +671,41 @@ abstract class RevenueCalculator {
         // start prediction runs
         nbEvaluations = 0; nbPredictions = 0; nbEdgesTravelled = 0;
 
+        // dynamic modifiers are not covered by the keys of the cache
+        int[] commonKey = null;
+        int[][] trainKeys = null;
+        if (cache != null && !callDynamicModifiers) {
+            commonKey = createCommonKey();
+            trainKeys = new int[nbTrains][];
+            for (int j = startTrain; j <= finalTrain; j++) {
+                trainKeys[j] = createTrainKey(j);
+            }
+        }
+
         log.debug("RC: start individual prediction Runs");
         int[] maxSingleTrainRevenues = new int[nbTrains];
+        // best single train run, reported if the predictions are aborted
+        int bestSingleTrain = -1;
+        int bestSingleValue = 0;
+        int bestSingleSpecRev = 0;
+        int[] bestSingleRun = null;
         for (int j = startTrain; j <= finalTrain; j++) {
             this.startTrain = j;
             this.finalTrain = j;
             currentBestValue = 0;
-            runTrain(j);
+            runPrediction(j, cache, commonKey, trainKeys);
             log.debug("RC: Best prediction run of train number {} value = {} after {}", j, currentBestValue, getStatistics());
             maxSingleTrainRevenues[j] = currentBestValue;
+            if (currentBestValue > bestSingleValue) {
+                bestSingleTrain = j;
+                bestSingleValue = currentBestValue;
+                bestSingleSpecRev = currentBestSpecRev;
+                bestSingleRun = currentBestRun[j].clone();
+            }
+            if (aborted) {
+                keepSingleRun(bestSingleTrain, bestSingleValue, bestSingleSpecRev, bestSingleRun);
+                return;
+            }
         }
         int cumulatedRevenues = 0;
         for (int j = finalTrain; j >= startTrain; j--) {
@@ -396,21 +721,168 @@ abstract class RevenueCalculator {
         for (int j=finalTrain - 1; j > startTrain; j--) {
             this.startTrain = j;
 //            currentBestValue = 0;
-            runTrain(j);
+            runPrediction(j, cache, commonKey, trainKeys);
             log.debug("RC: Best prediction run until train nb. {} value = {} after {}", j, currentBestValue, getStatistics());
+            if (aborted) {
+                // the combined run is only consistent if it was found by the combined runs,
+                // thus exceeds the value of all single train runs
+                if (currentBestValue <= bestSingleValue) {
+                    keepSingleRun(bestSingleTrain, bestSingleValue, bestSingleSpecRev, bestSingleRun);
+                }
+                return;
+            }
             maxCumulatedTrainRevenues[j] = currentBestValue;
             maxCumulatedTrainRevenues[j-1] = currentBestValue  + maxSingleTrainRevenues[j-1];
             log.debug("maxCumulatedTrainRevenues = {}", Arrays.toString(maxCumulatedTrainRevenues));
         }
     }
 
+    /**
+     * keeps the given single train run as best run after aborted predictions, the runs of all other trains are cleared
+     * @param run the run of the train, null if no train has a run
+     */
+    private void keepSingleRun(final int trainId, final int value, final int specRev, final int[] run) {
+        for (int j = startTrainSet; j <= finalTrainSet; j++) {
+            currentBestRun[j][0] = -1;
+        }
+        if (run != null) {
+            System.arraycopy(run, 0, currentBestRun[trainId], 0, nbVertexes + 1);
+        }
+        currentBestValue = value;
+        currentBestSpecRev = specRev;
+    }
+
+    /**
+     * runs the prediction run from startTrain to finalTrain or takes its result from the cache
+     */
+    private void runPrediction(final int trainId, RevenuePredictionCache cache, int[] commonKey, int[][] trainKeys) {
+        if (commonKey == null) {
+            runTrain(trainId);
+            return;
+        }
+
+        int length = 0;
+        for (int j = startTrain; j <= finalTrain; j++) {
+            length += trainKeys[j].length;
+        }
+        int[] runKey = new int[length];
+        length = 0;
+        for (int j = startTrain; j <= finalTrain; j++) {
+            System.arraycopy(trainKeys[j], 0, runKey, length, trainKeys[j].length);
+            length += trainKeys[j].length;
+        }
+        RevenuePredictionCache.Key key = new RevenuePredictionCache.Key(getClass(), commonKey, runKey);
+
+        RevenuePredictionCache.Entry entry = cache.get(key);
+        if (entry != null) {
+            currentBestValue = entry.value;
+            if (entry.run != null) {
+                // the runs of the other trains are empty during the prediction run
+                for (int j = startTrainSet; j <= finalTrainSet; j++) {
+                    if (j >= startTrain && j <= finalTrain) {
+                        System.arraycopy(entry.run[j - startTrain], 0, currentBestRun[j], 0, nbVertexes + 1);
+                    } else {
+                        currentBestRun[j][0] = -1;
+                    }
+                }
+            }
+            log.debug("RC: Prediction run of trains {} to {} taken from cache", startTrain, finalTrain);
+            return;
+        }
+
+        int initialValue = currentBestValue;
+        runTrain(trainId);
+        // an aborted search does not provide the best value
+        if (!aborted) {
+            int[][] run = null;
+            if (currentBestValue > initialValue) {
+                // the run is stored relative to startTrain, as the key does not depend on the train positions
+                run = new int[finalTrain - startTrain + 1][];
+                for (int j = startTrain; j <= finalTrain; j++) {
+                    run[j - startTrain] = currentBestRun[j].clone();
+                }
+            }
+            cache.put(key, new RevenuePredictionCache.Entry(currentBestValue, run));
+        }
+    }
+
+    /**
+     * @return all data that defines the search and is independent of the trains
+     */
+    protected int[] createCommonKey() {
+        KeyBuilder key = new KeyBuilder();
+        key.add(nbVertexes).add(nbEdges).add(nbTrains).add(nbBonuses);
+        for (int v=0; v < nbVertexes; v++) {
+            key.add(vertexMajor[v]).add(vertexMinor[v]).add(vertexSink[v]);
+            key.add(vertexNeighbors[v], vertexNbNeighbors[v]);
+            key.add(vertexEdges[v], vertexNbNeighbors[v]);
+            key.add(vertexVisitSets[v], vertexNbVisitSets[v]);
+            key.add(vertexBonusSets[v], vertexNbBonusSets[v]);
+        }
+        key.add(startVertexes, startVertexes.length);
+        for (int e=0; e < nbEdges; e++) {
+            key.add(edgeGreedy[e]).add(edgeDistance[e]);
+        }
+        key.add(bonusValue, nbBonuses);
+        key.add(bonusRequiresVertices, nbBonuses);
+        return key.toArray();
+    }
+
+    /**
+     * @return all data of the train that defines the search
+     */
+    private int[] createTrainKey(final int trainId) {
+        KeyBuilder key = new KeyBuilder();
+        key.add(trainMaxMajors[trainId]).add(trainMaxMinors[trainId]);
+        key.add(trainIgnoreMinors[trainId]).add(trainIsH[trainId]).add(trainIsE[trainId]);
+        for (int v=0; v < nbVertexes; v++) {
+            key.add(vertexValueByTrain[v][trainId]);
+        }
+        for (int b=0; b < nbBonuses; b++) {
+            key.add(bonusActiveForTrain[b][trainId]);
+        }
+        return key.toArray();
+    }
+
+    protected static final class KeyBuilder {
+        private int[] data = new int[64];
+        private int size = 0;
+
+        KeyBuilder add(int value) {
+            if (size == data.length) {
+                data = Arrays.copyOf(data, 2 * size);
+            }
+            data[size++] = value;
+            return this;
+        }
+
+        KeyBuilder add(boolean value) {
+            return add(value ? 1 : 0);
+        }
+
+        KeyBuilder add(int[] values, int length) {
+            add(length);
+            for (int j=0; j < length; j++) {
+                add(values[j]);
+            }
+            return this;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(data, size);
+        }
+    }
+
     final int calculateRevenue(final int startTrain, final int finalTrain) {
         log.debug("RC: calculateRevenue trains from {} to {}", startTrain, finalTrain);
 
         this.startTrain = startTrain;
         this.finalTrain = finalTrain;
 
-        runTrain(startTrain);
+        // the predictions might have been aborted already, then their best run is reported
+        if (!aborted) {
+            runTrain(startTrain);
+        }
 
         // inform revenue listener via adapter
         notifyRevenueAdapter(currentBestValue, currentBestSpecRev, true);
@@ -429,7 +901,7 @@ abstract class RevenueCalculator {
 
     protected final boolean encounterVertex(final int trainId, final int vertexId, final boolean arrive) {
 
-        log.debug("RC: EncounterVertex, trainId = {} vertexId = {} arrive = {}", trainId, vertexId, arrive);
+        if (DEBUG) log.debug("RC: EncounterVertex, trainId = {} vertexId = {} arrive = {}", trainId, vertexId, arrive);
 
         // set visit to true if arriving, otherwise you leave
         trainVisited[trainId][vertexId] = arrive;
@@ -437,7 +909,7 @@ abstract class RevenueCalculator {
         boolean stationVertex = false;
         if (arrive) {
             trainCurrentValue[trainId] += vertexValueByTrain[vertexId][trainId];
-            log.debug("Added {}", vertexValueByTrain[vertexId][trainId]);
+            if (DEBUG) log.debug("Added {}", vertexValueByTrain[vertexId][trainId]);
             if (vertexMajor[vertexId]) {
                 trainMajors[trainId]--;
                 // Stop counting changed from downwards to upwards (EV dec2022)
@@ -455,7 +927,7 @@ abstract class RevenueCalculator {
             countVisits++;
         } else {
             trainCurrentValue[trainId] -= vertexValueByTrain[vertexId][trainId];
-            log.debug("Subtracted {}", vertexValueByTrain[vertexId][trainId]);
+            if (DEBUG) log.debug("Subtracted {}", vertexValueByTrain[vertexId][trainId]);
             if (vertexMajor[vertexId]) {
                 trainMajors[trainId]++;
                 //trainMajors[trainId]--;
@@ -498,7 +970,7 @@ abstract class RevenueCalculator {
         // check vertex sets
         for (int j=0; j < vertexNbVisitSets[vertexId]; j++) {
             trainVisited[trainId][vertexVisitSets[vertexId][j]] = arrive;
-            log.debug("RC: visited = {} for vertex {} due to block rule", arrive, vertexVisitSets[vertexId][j]);
+            if (DEBUG) log.debug("RC: visited = {} for vertex {} due to block rule", arrive, vertexVisitSets[vertexId][j]);
         }
 
         // check bonus sets
@@ -507,24 +979,26 @@ abstract class RevenueCalculator {
             if (!bonusActiveForTrain[bonusId][trainId]) continue;
             if (arrive) {
                 bonusTrainVertices[bonusId][trainId]--;
-                log.debug("RC: Decreased bonus {} to {}", bonusId, bonusTrainVertices[bonusId][trainId]);
+                if (DEBUG) log.debug("RC: Decreased bonus {} to {}", bonusId, bonusTrainVertices[bonusId][trainId]);
                 if (bonusTrainVertices[bonusId][trainId] == 0) {
                    trainCurrentValue[trainId] += bonusValue[bonusId];
                    if (bonusValue[bonusId] > 0) trainBonuses[trainId]--;
-                   log.debug("RC: Added bonus {} with value {}", bonusId, bonusValue[bonusId]);
+                   if (DEBUG) log.debug("RC: Added bonus {} with value {}", bonusId, bonusValue[bonusId]);
                 }
             } else {
                 if (bonusTrainVertices[bonusId][trainId] == 0) {
                     trainCurrentValue[trainId] -= bonusValue[bonusId];
                     if (bonusValue[bonusId] > 0) trainBonuses[trainId]++;
-                    log.debug("RC: Removed bonus {} with value {}", bonusId, bonusValue[bonusId]);
+                    if (DEBUG) log.debug("RC: Removed bonus {} with value {}", bonusId, bonusValue[bonusId]);
                  }
                 bonusTrainVertices[bonusId][trainId]++;
-                log.debug("RC: Increases bonus {} to {}", bonusId, bonusTrainVertices[bonusId][trainId]);
+                if (DEBUG) log.debug("RC: Increases bonus {} to {}", bonusId, bonusTrainVertices[bonusId][trainId]);
             }
         }
 
-        log.debug("RC: stop={} station={} visits={}", vertexId, stationVertex, countVisits);
+        if (DEBUG) log.debug("RC: stop={} station={} visits={}", vertexId, stationVertex, countVisits);
+        if (RevenueTrace.ENABLED) trace.record(arrive ? RevenueTrace.Step.ARRIVE : RevenueTrace.Step.LEAVE,
+                trainId, vertexId, trainCurrentValue[trainId]);
         return stationVertex;
     }
 
@@ -559,13 +1033,16 @@ abstract class RevenueCalculator {
         there can be not counted stops beyond the final counted one.
          */
         if (terminated != Terminated.NOT_YET ) {
-            log.debug("RC: Train {} has terminated: majors = {} minors = {}", trainId, trainMajors[trainId], trainMinors[trainId]);
+            if (DEBUG) log.debug("RC: Train {} has terminated: majors = {} minors = {}", trainId, trainMajors[trainId], trainMinors[trainId]);
         }
         return terminated;
     }
 
     protected final void finalizeVertex(final int trainId, final int vertexId) {
-        log.debug("RC: Finalize Vertex id {} for train {}", vertexId, trainId);
+        if (DEBUG) log.debug("RC: Finalize Vertex id {} for train {}", vertexId, trainId);
+
+        // an aborted search neither evaluates nor starts further trains
+        if (aborted) return;
 
         if (trainId == finalTrain) {
             evaluateResults();
@@ -592,11 +1069,12 @@ abstract class RevenueCalculator {
         if (callDynamicModifiers) {
             totalValue += revenueAdapter.dynamicEvaluation();
             specialRevenue = revenueAdapter.getSpecialRevenue();
-            log.debug("Revenue: total={} special={}",totalValue, specialRevenue);
+            if (DEBUG) log.debug("Revenue: total={} special={}",totalValue, specialRevenue);
         }
 
         nbEvaluations++;
-        log.debug("RC: current total value {}", totalValue);
+        if (DEBUG) log.debug("RC: current total value {}", totalValue);
+        if (RevenueTrace.ENABLED) trace.record(RevenueTrace.Step.EVALUATE, finalTrain, -1, totalValue);
 
         // compare to current best result
         if (totalValue > currentBestValue) {
@@ -613,10 +1091,13 @@ abstract class RevenueCalculator {
                     }
                 }
             }
-            log.debug("RC: Found better run with {}", totalValue);
+            if (DEBUG) log.debug("RC: Found better run with {}", totalValue);
             // inform revenue listener via adapter
             // special revenue only to be reported with the final result
-            notifyRevenueAdapter(currentBestValue, currentBestSpecRev, false);
+            // parallel workers only report values that exceed the results of all other workers
+            if (sharedBestValue == null || sharedBestValue.getAndAccumulate(totalValue, Math::max) < totalValue) {
+                notifyRevenueAdapter(currentBestValue, currentBestSpecRev, false);
+            }
         }
     }
 
@@ -648,7 +1129,7 @@ abstract class RevenueCalculator {
         if (trainBonuses[trainId] != 0) {
             trainValue += maxBonusRevenues[trainId][trainBonuses[trainId]];
         }
-        log.debug("RC: Current train has predicted value of {}", trainValue);
+        if (DEBUG) log.debug("RC: Current train has predicted value of {}", trainValue);
 
         // maximum value for the trainId including future trains
         totalValue = Math.min(totalValue + trainValue, maxCumulatedTrainRevenues[trainId]);
@@ -665,15 +1146,19 @@ abstract class RevenueCalculator {
 //                    totalValue += trainCurrentValue[j];
 //            }
         }
-        log.debug("Regular predicted value is {}", totalValue);
+        if (DEBUG) log.debug("Regular predicted value is {}", totalValue);
 
         if (callDynamicModifiers) totalValue += revenueAdapter.dynamicPrediction();
-        log.debug("Total predicted value is {}", totalValue);
+        if (DEBUG) log.debug("Total predicted value is {}", totalValue);
 
         nbPredictions++;
 
-        boolean terminate = (totalValue <= currentBestValue);
-        if (terminate) log.debug("Run terminated due to predicted value of {}", totalValue);
+        // the bound of other parallel workers only terminates if it is exceeded
+        // this ensures that the first best run in sequential order is still found
+        boolean terminate = (totalValue <= currentBestValue)
+                || sharedBestValue != null && totalValue < sharedBestValue.get();
+        if (DEBUG && terminate) log.debug("Run terminated due to predicted value of {}", totalValue);
+        if (RevenueTrace.ENABLED && terminate) trace.record(RevenueTrace.Step.PREDICT, trainId, -1, totalValue);
 
         return terminate;
     }
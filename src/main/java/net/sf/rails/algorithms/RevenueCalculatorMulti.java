@@ -1,5 +1,12 @@
 package net.sf.rails.algorithms;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -18,6 +25,9 @@ class RevenueCalculatorMulti extends RevenueCalculator {
     // dynamic train data
     private final int[] startVertexActive;
 
+    // pool for parallel calculation, null for sequential calculation
+    private ForkJoinPool parallelPool;
+
 
     public RevenueCalculatorMulti (RevenueAdapter revenueAdapter, int nbVertexes, int nbEdges,
             int maxNeighbors, int maxVertexSets, int maxEdgeSets, int nbTrains, int nbBonuses) {
@@ -36,6 +46,38 @@ class RevenueCalculatorMulti extends RevenueCalculator {
 
     }
 
+    /**
+     * creates a worker copy for parallel calculation, see RevenueCalculator
+     */
+    protected RevenueCalculatorMulti(RevenueCalculatorMulti source) {
+        super(source);
+
+        edgeNbTravelSets = source.edgeNbTravelSets;
+        edgeTravelSets = source.edgeTravelSets;
+
+        edgeUsed = source.edgeUsed.clone();
+        startVertexActive = source.startVertexActive.clone();
+
+        // workers never fork themselves
+        parallelPool = null;
+    }
+
+    /**
+     * @return a worker copy of this calculator, has to be overridden by subclasses
+     */
+    protected RevenueCalculatorMulti createWorker() {
+        return new RevenueCalculatorMulti(this);
+    }
+
+    /**
+     * activates the parallel calculation: the first train of each run is split into tasks
+     * by start vertex and first edge, which are searched in the given pool
+     * @param pool pool to use, null to calculate sequentially
+     */
+    final void setParallelPool(ForkJoinPool pool) {
+        this.parallelPool = pool;
+    }
+
     @Override
     final void setEdge(int edgeId, boolean greedy, int distance) {
         super.setEdge(edgeId, greedy, distance);
@@ -51,9 +93,17 @@ class RevenueCalculatorMulti extends RevenueCalculator {
     }
 
     @Override
-    protected void runTrain(final int trainId) {
-        log.debug("RCM: runTrain {}", trainId);
+    protected int[] createCommonKey() {
+        KeyBuilder key = new KeyBuilder();
+        int[] commonKey = super.createCommonKey();
+        key.add(commonKey, commonKey.length);
+        for (int e=0; e < nbEdges; e++) {
+            key.add(edgeTravelSets[e], edgeNbTravelSets[e]);
+        }
+        return key.toArray();
+    }
 
+    protected void initTrain(final int trainId) {
         // initialize value
         trainCurrentValue[trainId] = 0;
 
@@ -70,17 +120,29 @@ class RevenueCalculatorMulti extends RevenueCalculator {
         for (int b=0; b < nbBonuses; b++) {
             bonusTrainVertices[b][trainId] = bonusRequiresVertices[b];
         }
+    }
+
+    @Override
+    protected void runTrain(final int trainId) {
+        if (parallelPool != null && trainId == startTrain) {
+            runTrainParallel(trainId);
+            return;
+        }
+
+        if (DEBUG) log.debug("RCM: runTrain {}", trainId);
+
+        initTrain(trainId);
 
         // check if the revenue is enough
         if (useRevenuePrediction && predictRevenues(trainId)) {
-            log.debug("Revenue is enough");
+            if (DEBUG) log.debug("Revenue is enough");
             return;
         }
 
         // try all startVertexes
         for (int i=0; i < startVertexes.length; i++) {
             int vertexId = startVertexes[i];
-            log.debug("RCM: Using startVertex {} for train {}", i, trainId);
+            if (DEBUG) log.debug("RCM: Using startVertex {} for train {}", i, trainId);
             boolean stationVertex = encounterVertex(trainId, vertexId, true);
             if (stationVertex) {
                 // train cannot terminate at start vertex
@@ -89,7 +151,7 @@ class RevenueCalculatorMulti extends RevenueCalculator {
                     encounterVertex(trainId, vertexId, false);
                     // but keep them on the visited vertex list to avoid route duplication
                     trainVisited[trainId][vertexId] = true;
-                    log.debug("RCM: finished startVertex {} for train {}", vertexId, trainId);
+                    if (DEBUG) log.debug("RCM: finished startVertex {} for train {}", vertexId, trainId);
                     continue;
                 }
             }
@@ -100,10 +162,10 @@ class RevenueCalculatorMulti extends RevenueCalculator {
             for (int j = 0; j < vertexNbNeighbors[vertexId]; j++) {
                 int edgeId = vertexEdges[vertexId][j];
                 if (edgeUsed[edgeId] != 0) continue;
-                log.debug("RCM: Testing Neighbor Nr. {} of startVertex", j);
+                if (DEBUG) log.debug("RCM: Testing Neighbor Nr. {} of startVertex", j);
                 int neighborId = vertexNeighbors[vertexId][j];
                 if (trainVisited[trainId][neighborId]) {
-                    log.debug("RCM: Hex already visited");
+                    if (DEBUG) log.debug("RCM: Hex already visited");
                     continue;
                 }
                 travelEdge(trainId, edgeId);
@@ -117,7 +179,7 @@ class RevenueCalculatorMulti extends RevenueCalculator {
             encounterVertex(trainId, vertexId, false);
             // keep them on the visited vertex list to avoid route duplication
             trainVisited[trainId][vertexId] = true;
-            log.debug("RCM: finished startVertex {} for train {}", vertexId, trainId);
+            if (DEBUG) log.debug("RCM: finished startVertex {} for train {}", vertexId, trainId);
         }
 
         // finished all tries
@@ -129,33 +191,141 @@ class RevenueCalculatorMulti extends RevenueCalculator {
         // allow that the train does not run at all
         finalizeVertex(trainId, -1);
 
-        log.debug("RCM: finishTrain {}", trainId);
+        if (DEBUG) log.debug("RCM: finishTrain {}", trainId);
 
     }
 
+    /**
+     * runs the first train in parallel: each combination of start vertex and first edge is a task,
+     * the final task covers the case that the train does not run at all
+     */
+    private void runTrainParallel(final int trainId) {
+        if (DEBUG) log.debug("RCM: runTrainParallel {}", trainId);
+
+        if (isAborted()) return;
+
+        initTrain(trainId);
+
+        // check if the revenue is enough
+        if (useRevenuePrediction && predictRevenues(trainId)) {
+            if (DEBUG) log.debug("Revenue is enough");
+            return;
+        }
+
+        // define the tasks in the order of the sequential search
+        AtomicInteger bestValue = new AtomicInteger(currentBestValue);
+        List<StartEdgeTask> tasks = new ArrayList<>();
+        for (int i=0; i < startVertexes.length; i++) {
+            for (int j = 0; j < vertexNbNeighbors[startVertexes[i]]; j++) {
+                tasks.add(new StartEdgeTask(createWorker(), bestValue, trainId, i, j));
+            }
+        }
+        tasks.add(new StartEdgeTask(createWorker(), bestValue, trainId, -1, -1));
+
+        if (ForkJoinTask.inForkJoinPool()) {
+            ForkJoinTask.invokeAll(tasks);
+        } else {
+            parallelPool.invoke(new RecursiveAction() {
+                @Override
+                protected void compute() {
+                    invokeAll(tasks);
+                }
+            });
+        }
+
+        List<RevenueCalculatorMulti> workers = new ArrayList<>();
+        for (StartEdgeTask task : tasks) {
+            workers.add(task.worker);
+        }
+        mergeWorkers(workers);
+
+        if (DEBUG) log.debug("RCM: finishTrainParallel {} with {} tasks", trainId, tasks.size());
+    }
+
+    /**
+     * searches the runs of a train that start at one start vertex with one edge
+     * the start vertices before are blocked, as in the sequential search
+     */
+    private void runStartEdge(final int trainId, final int startIndex, final int startEdge) {
+        initTrain(trainId);
+
+        int vertexId = startVertexes[startIndex];
+        for (int i=0; i < startIndex; i++) {
+            trainVisited[trainId][startVertexes[i]] = true;
+        }
+
+        boolean stationVertex = encounterVertex(trainId, vertexId, true);
+        boolean predicted = stationVertex && useRevenuePrediction && predictRevenues(trainId);
+
+        int edgeId = vertexEdges[vertexId][startEdge];
+        int neighborId = vertexNeighbors[vertexId][startEdge];
+        if (!predicted && edgeUsed[edgeId] == 0 && !trainVisited[trainId][neighborId]) {
+            startVertexActive[trainId] = vertexId;
+            travelEdge(trainId, edgeId);
+            trainStartEdge[trainId] = startEdge; // store start edge
+            nextVertex(trainId, neighborId);
+            returnEdge(trainId, edgeId);
+            trainStackPos[trainId]--; // pull from stack
+        }
+
+        encounterVertex(trainId, vertexId, false);
+        for (int i=0; i < startIndex; i++) {
+            trainVisited[trainId][startVertexes[i]] = false;
+        }
+    }
+
+    private static final class StartEdgeTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final transient RevenueCalculatorMulti worker;
+        private final int trainId;
+        private final int startIndex;
+        private final int startEdge;
+
+        private StartEdgeTask(RevenueCalculatorMulti worker, AtomicInteger bestValue,
+                int trainId, int startIndex, int startEdge) {
+            this.worker = worker;
+            this.trainId = trainId;
+            this.startIndex = startIndex;
+            this.startEdge = startEdge;
+            worker.sharedBestValue = bestValue;
+        }
+
+        @Override
+        protected void compute() {
+            if (startIndex == -1) {
+                // allow that the train does not run at all
+                worker.initTrain(trainId);
+                worker.finalizeVertex(trainId, -1);
+            } else {
+                worker.runStartEdge(trainId, startIndex, startEdge);
+            }
+        }
+    }
+
     @Override
     final protected void runBottom(final int trainId) {
-        log.debug("RCM: runBottom {}", trainId);
+        if (DEBUG) log.debug("RCM: runBottom {}", trainId);
 
         // use startvertex, check if it is a sink
         int vertexId = startVertexActive[trainId];
         if (vertexSink[vertexId]) {
-            log.debug("RCM: startvertex is sink, finished bottom of {}", trainId);
+            if (DEBUG) log.debug("RCM: startvertex is sink, finished bottom of {}", trainId);
             return;
         }
 
         // push to stack
         trainBottomActive[trainId] = true;
-        log.debug("RCM: Restart at bottom at stack position {}", trainStackPos[trainId]);
+        if (DEBUG) log.debug("RCM: Restart at bottom at stack position {}", trainStackPos[trainId]);
 //        trainStack[trainId][trainStackPos[trainId]++] = vertexId;
 
         for (int j = trainStartEdge[trainId] + 1; j < vertexNbNeighbors[vertexId]; j++) {
             int edgeId = vertexEdges[vertexId][j];
             if (edgeUsed[edgeId] != 0) continue;
             int neighborId = vertexNeighbors[vertexId][j];
-            log.debug("RCM: Testing Neighbor Nr. {} of bottomVertex is {}", j, neighborId);
+            if (DEBUG) log.debug("RCM: Testing Neighbor Nr. {} of bottomVertex is {}", j, neighborId);
             if (trainVisited[trainId][neighborId]) {
-                log.debug(" RCM: Hex already visited");
+                if (DEBUG) log.debug(" RCM: Hex already visited");
                 continue;
             }
             travelEdge(trainId, edgeId);
@@ -166,13 +336,16 @@ class RevenueCalculatorMulti extends RevenueCalculator {
 
 //        trainStackPos[trainId]--; // pull from stack
         trainBottomActive[trainId] = false;
-        log.debug("RCM: finished bottom of {}", trainId);
+        if (DEBUG) log.debug("RCM: finished bottom of {}", trainId);
 
 
     }
 
     private void nextVertex(final int trainId, final int vertexId) {
 
+        // 0. leave immediately if the search is aborted, the caller restores the state
+        if (checkAborted()) return;
+
         // 1. encounterVertex adds value and returns true if value vertex
         Terminated trainTerminated = Terminated.NOT_YET;
         boolean stationVertex = encounterVertex(trainId, vertexId, true);
@@ -194,9 +367,9 @@ class RevenueCalculatorMulti extends RevenueCalculator {
                     int edgeId = vertexEdges[vertexId][j];
                     if (edgeUsed[edgeId] != 0) continue;
                     int neighborId = vertexNeighbors[vertexId][j];
-                    log.debug("RCM: Testing Neighbor Nr. {} of {} is {}", j, vertexId, neighborId);
+                    if (DEBUG) log.debug("RCM: Testing Neighbor Nr. {} of {} is {}", j, vertexId, neighborId);
                     if (trainVisited[trainId][neighborId]) {
-                        log.debug("RCM: Hex already visited");
+                        if (DEBUG) log.debug("RCM: Hex already visited");
                         continue;
                     }
                     travelEdge(trainId, edgeId);
@@ -220,16 +393,17 @@ class RevenueCalculatorMulti extends RevenueCalculator {
     }
 
     protected void travelEdge(final int trainId, final int edgeId) {
-        log.debug("RCM: Travel edge id {}", edgeId);
+        if (DEBUG) log.debug("RCM: Travel edge id {}", edgeId);
         edgeUsed[edgeId]++;
         trainStack[trainId][trainStackPos[trainId]++] = edgeId; // push to stack
         countEdges++; nbEdgesTravelled++;
-        log.debug("RCM: Count Edges = {}", countEdges);
+        if (DEBUG) log.debug("RCM: Count Edges = {}", countEdges);
+        if (RevenueTrace.ENABLED) trace.record(RevenueTrace.Step.TRAVEL, trainId, edgeId, countEdges);
 
         // check edge sets
         for (int j=0; j < edgeNbTravelSets[edgeId]; j++) {
             edgeUsed[edgeTravelSets[edgeId][j]]++;
-            log.debug("RCM: travelled edge {} due to edge set.", edgeTravelSets[edgeId][j]);
+            if (DEBUG) log.debug("RCM: travelled edge {} due to edge set.", edgeTravelSets[edgeId][j]);
         }
     }
 
@@ -239,16 +413,17 @@ class RevenueCalculatorMulti extends RevenueCalculator {
           if (edgeUsed[edgeId] != 0) {
               edgeUsed[edgeId]--;
               countEdges--;
-              log.debug("RCM: Cleared edge id {}", edgeId);
-              log.debug("RCM: Count Edges = {}", countEdges);
+              if (DEBUG) log.debug("RCM: Cleared edge id {}", edgeId);
+              if (DEBUG) log.debug("RCM: Count Edges = {}", countEdges);
+              if (RevenueTrace.ENABLED) trace.record(RevenueTrace.Step.RETURN, trainId, edgeId, countEdges);
 
               // check edge sets
               for (int j=0; j < edgeNbTravelSets[edgeId]; j++) {
                   edgeUsed[edgeTravelSets[edgeId][j]]--;
-                  log.debug("RCM: Cleared edge {} due to edge set.", edgeTravelSets[edgeId][j]);
+                  if (DEBUG) log.debug("RCM: Cleared edge {} due to edge set.", edgeTravelSets[edgeId][j]);
               }
           } else {
-              log.debug("RCM: Error return edge id used: {}", edgeId);
+              if (DEBUG) log.debug("RCM: Error return edge id used: {}", edgeId);
           }
 
     }
@@ -14,28 +14,45 @@ class RevenueCalculatorMultiHex extends RevenueCalculatorMulti {
                 maxNeighbors, maxVertexSets, maxEdgeSets, nbTrains, nbBonuses);
     }
 
+    /**
+     * creates a worker copy for parallel calculation, see RevenueCalculator
+     */
+    protected RevenueCalculatorMultiHex(RevenueCalculatorMultiHex source) {
+        super(source);
+    }
+
+    @Override
+    protected RevenueCalculatorMulti createWorker() {
+        return new RevenueCalculatorMultiHex(this);
+    }
+
+    @Override
+    protected boolean limitsTrainDistance() {
+        return true;
+    }
+
     @Override
-    protected void runTrain(int trainId) {
+    protected void initTrain(int trainId) {
+        super.initTrain(trainId);
         // init train distance
         if (trainIsH[trainId]) {
             trainDistance[trainId] = trainMaxMajors[trainId];
-            log.debug("RCMH: H-train distance init={}", trainDistance[trainId]);
+            if (DEBUG) log.debug("RCMH: H-train distance init={}", trainDistance[trainId]);
         }
-        super.runTrain(trainId);
     }
 
     @Override
     protected void travelEdge(int trainId, int edgeId) {
         super.travelEdge(trainId, edgeId);
         trainDistance[trainId] -= edgeDistance[edgeId];
-        log.debug("RCMH: H-train distance reduced with {} to {}",edgeDistance[edgeId], trainDistance[trainId]);
+        if (DEBUG) log.debug("RCMH: H-train distance reduced with {} to {}",edgeDistance[edgeId], trainDistance[trainId]);
     }
 
     @Override
     protected void returnEdge(int trainId, int edgeId) {
         super.returnEdge(trainId, edgeId);
         trainDistance[trainId] += edgeDistance[edgeId];
-        log.debug("RCMH: H-train distance increased with {} to {}",edgeDistance[edgeId], trainDistance[trainId]);
+        if (DEBUG) log.debug("RCMH: H-train distance increased with {} to {}",edgeDistance[edgeId], trainDistance[trainId]);
     }
 
     @Override
@@ -46,7 +63,7 @@ class RevenueCalculatorMultiHex extends RevenueCalculatorMulti {
             // H-train can always travel a zero distance to a next node
             // thus always check until negative distance
             if (trainDistance[trainId] < 0){
-                log.debug("RC: H-Train {} has terminated: distance = {}", trainId, trainDistance[trainId]);
+                if (DEBUG) log.debug("RC: H-Train {} has terminated: distance = {}", trainId, trainDistance[trainId]);
                 return Terminated.WITHOUT_EVALUATION;
             } else {
                 return Terminated.NOT_YET;
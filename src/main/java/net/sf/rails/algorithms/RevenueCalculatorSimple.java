@@ -24,7 +24,7 @@ final class RevenueCalculatorSimple extends RevenueCalculator {
 
    @Override
    protected final void runTrain(final int trainId) {
-       log.debug("RCS: runTrain {}", trainId);
+       if (DEBUG) log.debug("RCS: runTrain {}", trainId);
 
         // initialize value
         trainCurrentValue[trainId] = 0;
@@ -50,7 +50,7 @@ final class RevenueCalculatorSimple extends RevenueCalculator {
         // try all startVertexes
         for (int i=0; i < startVertexes.length; i++) {
             int vertexId = startVertexes[i];
-            log.debug("RCS: Using startVertex nr. {} for train {}", i, trainId);
+            if (DEBUG) log.debug("RCS: Using startVertex nr. {} for train {}", i, trainId);
             boolean stationVertex = encounterVertex(trainId, vertexId, true);
             trainStack[trainId][trainStackPos[trainId]++] = vertexId; // push to stack
             if (stationVertex) {
@@ -61,7 +61,7 @@ final class RevenueCalculatorSimple extends RevenueCalculator {
                     trainStackPos[trainId]--; // pull from stack
                     // but keep them on the visited vertex list to avoid route duplication
                     trainVisited[trainId][vertexId] = true;
-                    log.debug("RCS: finished startVertex {} for train {}", vertexId, trainId);
+                    if (DEBUG) log.debug("RCS: finished startVertex {} for train {}", vertexId, trainId);
                     continue;
                 }
             }
@@ -71,10 +71,10 @@ final class RevenueCalculatorSimple extends RevenueCalculator {
             for (int j = 0; j < vertexNbNeighbors[vertexId]; j++) {
                 int edgeId = vertexEdges[vertexId][j];
                 if (edgeUsed[edgeId]) continue;
-                log.debug("RCS: Testing Neighbor Nr. {} of startVertex", j);
+                if (DEBUG) log.debug("RCS: Testing Neighbor Nr. {} of startVertex", j);
                 int neighborId = vertexNeighbors[vertexId][j];
                 if (trainVisited[trainId][neighborId]) {
-                    log.debug("RCS: Hex already visited");
+                    if (DEBUG) log.debug("RCS: Hex already visited");
                     continue;
                 }
                 if (travelEdge(trainId, edgeId, true)) {
@@ -89,7 +89,7 @@ final class RevenueCalculatorSimple extends RevenueCalculator {
             trainStackPos[trainId]--; // pull from stack
             // keep them on the visited vertex list to avoid route duplication
             trainVisited[trainId][vertexId] = true;
-            log.debug("RCS: finished startVertex {} for train {}", vertexId, trainId);
+            if (DEBUG) log.debug("RCS: finished startVertex {} for train {}", vertexId, trainId);
         }
 
         // finished all tries
@@ -101,32 +101,32 @@ final class RevenueCalculatorSimple extends RevenueCalculator {
         // allow that the train does not run at all
         finalizeVertex(trainId, -1);
 
-       log.debug("RCS: finishTrain {}", trainId);
+       if (DEBUG) log.debug("RCS: finishTrain {}", trainId);
     }
 
    @Override
    protected final void runBottom(final int trainId) {
-       log.debug("RCS: runBottom {}", trainId);
+       if (DEBUG) log.debug("RCS: runBottom {}", trainId);
 
        // use startvertex, check if it is a sink
        int vertexId = trainStack[trainId][0];
        if (vertexSink[vertexId]) {
-           log.debug("RCS: startvertex is sink, finished bottom of {}", trainId);
+           if (DEBUG) log.debug("RCS: startvertex is sink, finished bottom of {}", trainId);
            return;
        }
 
        trainBottomActive[trainId] = true;
        // push to stack
-       log.debug("RCS: Restart at bottom at stack position {}", trainStackPos[trainId]);
+       if (DEBUG) log.debug("RCS: Restart at bottom at stack position {}", trainStackPos[trainId]);
        trainStack[trainId][trainStackPos[trainId]++] = vertexId;
 
        for (int j = trainStartEdge[trainId] + 1; j < vertexNbNeighbors[vertexId]; j++) {
            int edgeId = vertexEdges[vertexId][j];
            if (edgeUsed[edgeId]) continue;
            int neighborId = vertexNeighbors[vertexId][j];
-           log.debug("RCS: Testing Neighbor Nr. {} of bottomVertex is {}", j, neighborId);
+           if (DEBUG) log.debug("RCS: Testing Neighbor Nr. {} of bottomVertex is {}", j, neighborId);
            if (trainVisited[trainId][neighborId]) {
-               log.debug(" RCS: Hex already visited");
+               if (DEBUG) log.debug(" RCS: Hex already visited");
                continue;
            }
            if (travelEdge(trainId, edgeId, true)) {
@@ -137,12 +137,15 @@ final class RevenueCalculatorSimple extends RevenueCalculator {
 
        trainStackPos[trainId]--; // pull from stack
        trainBottomActive[trainId] = false;
-       log.debug("RCS: finished bottom of {}", trainId);
+       if (DEBUG) log.debug("RCS: finished bottom of {}", trainId);
 
    }
 
    private void nextVertex(final int trainId, final int vertexId, final boolean previousGreedy) {
 
+       // 0. leave immediately if the search is aborted, the caller restores the state
+       if (checkAborted()) return;
+
        // 1. encounterVertex adds value and returns true if value vertex
        Terminated trainTerminated = Terminated.NOT_YET;
        boolean stationVertex = encounterVertex(trainId, vertexId, true);
@@ -166,9 +169,9 @@ final class RevenueCalculatorSimple extends RevenueCalculator {
                    int edgeId = vertexEdges[vertexId][j];
                    if (edgeUsed[edgeId]) continue;
                    int neighborId = vertexNeighbors[vertexId][j];
-                   log.debug("RCS: Testing Neighbor Nr. {} of {} is {}", j, vertexId, neighborId);
+                   if (DEBUG) log.debug("RCS: Testing Neighbor Nr. {} of {} is {}", j, vertexId, neighborId);
                    if (trainVisited[trainId][neighborId]) {
-                       log.debug("RCS: Hex already visited");
+                       if (DEBUG) log.debug("RCS: Hex already visited");
                        continue;
                    }
                    if (travelEdge(trainId, edgeId, previousGreedy)) {
@@ -194,12 +197,13 @@ final class RevenueCalculatorSimple extends RevenueCalculator {
 
    protected final boolean travelEdge(final int trainId, final int edgeId, final boolean previousGreedy) {
        if (previousGreedy || edgeGreedy[edgeId]) {
-           log.debug("RCS: Travel edge id {}", edgeId);
+           if (DEBUG) log.debug("RCS: Travel edge id {}", edgeId);
            edgeUsed[edgeId] = true;
 //           edgeUsed[edgeId]++;
            // trainEdgeStack[trainId][trainStackPos[trainId]] = edgeId;
            countEdges++; nbEdgesTravelled++;
-           log.debug("RCS: Count Edges = {}", countEdges);
+           if (DEBUG) log.debug("RCS: Count Edges = {}", countEdges);
+           if (RevenueTrace.ENABLED) trace.record(RevenueTrace.Step.TRAVEL, trainId, edgeId, countEdges);
 
            // check edge sets
 //           for (int j=0; j < edgeNbTravelSets[edgeId]; j++) {
@@ -209,7 +213,7 @@ final class RevenueCalculatorSimple extends RevenueCalculator {
 
            return true;
        } else {
-           log.debug("RCS: Cannot travel edge id {}, because of greedy rule", edgeId);
+           if (DEBUG) log.debug("RCS: Cannot travel edge id {}, because of greedy rule", edgeId);
            return false;
        }
    }
@@ -219,10 +223,11 @@ final class RevenueCalculatorSimple extends RevenueCalculator {
        if (edgeUsed[edgeId]) {
            edgeUsed[edgeId] = false;
            countEdges--;
-           log.debug("RCS: Cleared edge id {}", edgeId);
-           log.debug("RCS: Count Edges = {}", countEdges);
+           if (DEBUG) log.debug("RCS: Cleared edge id {}", edgeId);
+           if (DEBUG) log.debug("RCS: Count Edges = {}", countEdges);
+           if (RevenueTrace.ENABLED) trace.record(RevenueTrace.Step.RETURN, trainId, edgeId, countEdges);
        } else {
-           log.debug("RCS: Error return edge id used: {}", edgeId);
+           if (DEBUG) log.debug("RCS: Error return edge id used: {}", edgeId);
        }
    }
 
@@ -10,6 +10,7 @@ import net.sf.rails.common.parser.ConfigurationException;
 import net.sf.rails.common.parser.Tag;
 import net.sf.rails.game.*;
 import net.sf.rails.game.state.ArrayListState;
+import net.sf.rails.game.state.Triggerable;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -41,6 +42,8 @@ public class RevenueManager extends RailsManager implements Configurable {
     // Variables that store the active modifier (per RevenueAdapter)
     private final ArrayList<RevenueStaticModifier> activeStaticModifiers = new ArrayList<>();
     private final ArrayList<RevenueDynamicModifier> activeDynamicModifiers = new ArrayList<>();
+    // all active dynamic modifiers if they are snapshot modifiers, otherwise null
+    private RevenueSnapshotModifier[] activeSnapshotModifiers;
     // TODO: Still add that flag if the calculator is active
 //    private boolean activeCalculator;
 
@@ -149,6 +152,13 @@ public class RevenueManager extends RailsManager implements Configurable {
         return result;
     }
 
+    /**
+     * Adds a trigger that is informed if graph modifiers are added or removed
+     */
+    public void addGraphModifierTrigger(Triggerable trigger) {
+        graphModifiers.addTrigger(trigger);
+    }
+
     public void addDynamicModifier(RevenueDynamicModifier modifier) {
         dynamicModifiers.add(modifier);
         log.debug("Revenue Manager: Added dynamic modifier {}", modifier);
@@ -200,9 +210,24 @@ public class RevenueManager extends RailsManager implements Configurable {
                 log.debug("Modifier {} deactivated", modifier.getClass().getSimpleName());
             }
         }
+        activeSnapshotModifiers = new RevenueSnapshotModifier[activeDynamicModifiers.size()];
+        for (int i = 0; i < activeSnapshotModifiers.length; i++) {
+            if (!(activeDynamicModifiers.get(i) instanceof RevenueSnapshotModifier)) {
+                activeSnapshotModifiers = null;
+                break;
+            }
+            activeSnapshotModifiers[i] = (RevenueSnapshotModifier) activeDynamicModifiers.get(i);
+        }
         return !activeDynamicModifiers.isEmpty();
     }
 
+    /**
+     * @return true if all active dynamic modifiers evaluate run snapshots, thus the current run has not to be converted
+     */
+    boolean usesRunSnapshots() {
+        return activeSnapshotModifiers != null;
+    }
+
     /**
      * @param revenueAdapter
      * @return revenue from active calculator
@@ -253,6 +278,21 @@ public class RevenueManager extends RailsManager implements Configurable {
         return value;
     }
 
+    /**
+     * @param run snapshot of the current run, only allowed if usesRunSnapshots() is true
+     * @return total value of dynamic modifiers
+     */
+    int evaluationValue(RevenueRunSnapshot run) {
+        int value = 0;
+        for (RevenueSnapshotModifier modifier : activeSnapshotModifiers) {
+            value += modifier.evaluationValue(run);
+        }
+        if (calculatorModifier != null) {
+            specialRevenue = calculatorModifier.getSpecialRevenue();
+        }
+        return value;
+    }
+
     public int getSpecialRevenue () {
         return specialRevenue;
     }
@@ -269,6 +309,18 @@ public class RevenueManager extends RailsManager implements Configurable {
         return value;
     }
 
+    /**
+     * @param run snapshot of the current run, only allowed if usesRunSnapshots() is true
+     * @return total prediction value of dynamic modifiers
+     */
+    int predictionValue(RevenueRunSnapshot run) {
+        int value = 0;
+        for (RevenueSnapshotModifier modifier : activeSnapshotModifiers) {
+            value += modifier.predictionValue(run);
+        }
+        return value;
+    }
+
     /**
      * @param revenueAdapter
      * @return pretty print output from all modifiers (both static and dynamic)
@@ -0,0 +1,72 @@
+package net.sf.rails.algorithms;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * RevenuePredictionCache stores the results of the prediction runs of the revenue calculator,
+ * thus successive calculations do not repeat them (e.g. if only the train list has changed).
+ *
+ * The key of an entry contains all calculator data that defines the result of a prediction run,
+ * thus entries can only be reused for identical searches.
+ * Caches are provided per company and map revision by the RouteGraphCache.
+ */
+final class RevenuePredictionCache {
+
+    /**
+     * Key of a prediction run: the data shared by all trains and the data of the trains of the run
+     */
+    static final class Key {
+        private final Class<?> calculator;
+        private final int[] common;
+        private final int[] trains;
+        private final int hash;
+
+        Key(Class<?> calculator, int[] common, int[] trains) {
+            this.calculator = calculator;
+            this.common = common;
+            this.trains = trains;
+            this.hash = 31 * (31 * calculator.hashCode() + Arrays.hashCode(common)) + Arrays.hashCode(trains);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) return true;
+            if (!(other instanceof Key)) return false;
+            Key key = (Key) other;
+            return hash == key.hash && calculator == key.calculator
+                    && Arrays.equals(trains, key.trains) && Arrays.equals(common, key.common);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * Result of a prediction run: the best value and the best run of the trains of the run,
+     * the run is null if the run has not improved the value the search started with
+     */
+    static final class Entry {
+        final int value;
+        final int[][] run;
+
+        Entry(int value, int[][] run) {
+            this.value = value;
+            this.run = run;
+        }
+    }
+
+    private final Map<Key, Entry> entries = new HashMap<>();
+
+    synchronized Entry get(Key key) {
+        return entries.get(key);
+    }
+
+    synchronized void put(Key key, Entry entry) {
+        entries.put(key, entry);
+    }
+
+}
@@ -0,0 +1,87 @@
+package net.sf.rails.algorithms;
+
+import java.util.List;
+
+/**
+ * RevenueRunSnapshot is a read-only view on the current run of the revenue calculator.
+ * It is reused for all evaluations and predictions of a calculation, thus it must not be stored by modifiers.
+ *
+ * A train run consists of elements: edges of the multigraph or vertices for the simple graph.
+ * Each element is defined by its vertices (both vertices of an edge or the vertex itself).
+ *
+ * See {@link RevenueSnapshotModifier}
+ */
+public final class RevenueRunSnapshot {
+
+    private final RevenueCalculator rc;
+    private final List<NetworkTrain> trains;
+
+    // vertices of the elements, dimension: nb elements x (1 or 2)
+    private final NetworkVertex[][] elementVertices;
+
+    RevenueRunSnapshot(RevenueCalculator rc, List<NetworkTrain> trains, NetworkVertex[][] elementVertices) {
+        this.rc = rc;
+        this.trains = trains;
+        this.elementVertices = elementVertices;
+    }
+
+    public int getNumberOfTrains() {
+        return rc.nbTrains;
+    }
+
+    public NetworkTrain getTrain(int trainId) {
+        return trains.get(trainId);
+    }
+
+    private boolean isRunning(int trainId) {
+        return trainId >= rc.startTrainSet && trainId <= rc.finalTrainSet;
+    }
+
+    /**
+     * @return current value of the train run (including revenue bonuses)
+     */
+    public int getTrainValue(int trainId) {
+        if (!isRunning(trainId)) return 0;
+        return rc.trainCurrentValue[trainId];
+    }
+
+    /**
+     * @return number of elements of the train run
+     */
+    public int getRunLength(int trainId) {
+        if (!isRunning(trainId)) return 0;
+        return rc.trainStackPos[trainId];
+    }
+
+    /**
+     * @return the id of the element at the position of the train run
+     */
+    public int getRunElement(int trainId, int position) {
+        return rc.trainStack[trainId][position];
+    }
+
+    /**
+     * @return number of vertices of the element (one or two)
+     */
+    public int getNumberOfElementVertices(int element) {
+        return elementVertices[element].length;
+    }
+
+    public NetworkVertex getElementVertex(int element, int index) {
+        return elementVertices[element][index];
+    }
+
+    /**
+     * @return true if the train run visits the vertex
+     */
+    public boolean containsVertex(int trainId, NetworkVertex vertex) {
+        int length = getRunLength(trainId);
+        for (int p = 0; p < length; p++) {
+            for (NetworkVertex elementVertex : elementVertices[rc.trainStack[trainId][p]]) {
+                if (elementVertex == vertex) return true;
+            }
+        }
+        return false;
+    }
+
+}
@@ -0,0 +1,29 @@
+package net.sf.rails.algorithms;
+
+/**
+ * A snapshot modifier is a dynamic modifier that evaluates the current run during the search
+ * using the primitive {@link RevenueRunSnapshot}.
+ *
+ * This avoids the conversion of the current run into RevenueTrainRun objects for each evaluation and prediction.
+ * The methods of RevenueDynamicModifier using RevenueTrainRun lists are still called for the optimal run.
+ *
+ * The run conversion is only skipped if all active dynamic modifiers are snapshot modifiers.
+ */
+public interface RevenueSnapshotModifier extends RevenueDynamicModifier {
+
+    /**
+     * Allows to change the value for the prediction, see {@link RevenueDynamicModifier#predictionValue}
+     * @param run Current run of the revenue calculator
+     * @return value used to change the prediction
+     */
+    public int predictionValue(RevenueRunSnapshot run);
+
+    /**
+     * Allows to change the value for the current run during optimization,
+     * see {@link RevenueDynamicModifier#evaluationValue}
+     * @param run Current run of the revenue calculator
+     * @return value used to change the run results
+     */
+    public int evaluationValue(RevenueRunSnapshot run);
+
+}
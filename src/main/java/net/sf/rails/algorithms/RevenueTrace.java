@@ -0,0 +1,108 @@
+package net.sf.rails.algorithms;
+
+import java.util.function.IntFunction;
+
+/**
+ * RevenueTrace records the search steps of the revenue calculator into a ring buffer,
+ * which keeps the most recent entries only and can be dumped on demand (e.g. to analyze a wrong route).
+ *
+ * Tracing is activated by the system property rails.revenue.trace, the buffer size can be set by
+ * rails.revenue.trace.size. Both are evaluated once, thus a deactivated trace is removed from the search.
+ *
+ * Parallel workers share the trace of their calculator, thus their entries are interleaved.
+ */
+final class RevenueTrace {
+
+    static final boolean ENABLED = Boolean.getBoolean("rails.revenue.trace");
+
+    private static final int DEFAULT_SIZE = 1 << 16;
+
+    enum Step {
+        ARRIVE,   // id = vertex, value = current train value
+        LEAVE,    // id = vertex, value = current train value
+        TRAVEL,   // id = edge, value = number of edges travelled
+        RETURN,   // id = edge, value = number of edges travelled
+        PREDICT,  // id = -1, value = predicted total value that terminated the run
+        EVALUATE  // id = -1, value = total value of the run
+    }
+
+    private static final Step[] STEPS = Step.values();
+
+    // entries stored as primitives to avoid allocations per entry
+    private final byte[] steps;
+    private final int[] trains;
+    private final int[] ids;
+    private final int[] values;
+    private final int mask;
+    private long count;
+
+    private RevenueTrace(int size) {
+        // round up to a power of two
+        int capacity = Integer.highestOneBit(Math.max(size, 2) - 1) << 1;
+        steps = new byte[capacity];
+        trains = new int[capacity];
+        ids = new int[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+    }
+
+    /**
+     * @return a new trace if tracing is enabled, otherwise null
+     */
+    static RevenueTrace create() {
+        if (!ENABLED) return null;
+        return new RevenueTrace(Integer.getInteger("rails.revenue.trace.size", DEFAULT_SIZE));
+    }
+
+    synchronized void record(Step step, int trainId, int id, int value) {
+        int pos = (int) (count++ & mask);
+        steps[pos] = (byte) step.ordinal();
+        trains[pos] = trainId;
+        ids[pos] = id;
+        values[pos] = value;
+    }
+
+    synchronized void clear() {
+        count = 0;
+    }
+
+    /**
+     * @return total number of entries recorded, including those already overwritten
+     */
+    synchronized long getCount() {
+        return count;
+    }
+
+    /**
+     * @param vertexNames converts vertex ids to names
+     * @param edgeNames converts edge ids to names
+     * @return the stored entries from the oldest to the most recent one, one line per entry
+     */
+    synchronized String dump(IntFunction<String> vertexNames, IntFunction<String> edgeNames) {
+        StringBuilder dump = new StringBuilder();
+        long first = Math.max(0, count - steps.length);
+        if (first > 0) {
+            dump.append("... ").append(first).append(" entries dropped\n");
+        }
+        for (long c = first; c < count; c++) {
+            int pos = (int) (c & mask);
+            Step step = STEPS[steps[pos]];
+            dump.append(c).append(": ").append(step).append(" train=").append(trains[pos]);
+            switch (step) {
+                case ARRIVE:
+                case LEAVE:
+                    dump.append(" vertex=").append(vertexNames.apply(ids[pos]));
+                    break;
+                case TRAVEL:
+                case RETURN:
+                    dump.append(" edge=").append(edgeNames.apply(ids[pos]));
+                    break;
+                default:
+                    break;
+            }
+            dump.append(" value=").append(values[pos]).append("\n");
+        }
+        return dump.toString();
+    }
+
+}
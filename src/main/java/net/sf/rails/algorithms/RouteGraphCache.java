@@ -0,0 +1,160 @@
+package net.sf.rails.algorithms;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import net.sf.rails.game.MapManager;
+import net.sf.rails.game.PublicCompany;
+import net.sf.rails.game.RailsRoot;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.HashBasedTable;
+import com.google.common.collect.Table;
+
+/**
+ * RouteGraphCache stores the route graphs and the multigraphs of the revenue calculation per company.
+ * All entries are valid for one revision of the map only (see MapManager.getRevision).
+ *
+ * Route graphs are handed out as copies, as the callers change the vertices.
+ * Multigraphs are reused only if the graph they are created from has not been changed
+ * (e.g. by revenue modifiers), thus they are stored together with a signature of that graph.
+ * The results of the prediction runs of the revenue calculator are stored per company as well.
+ */
+public final class RouteGraphCache {
+
+    private static final Logger log = LoggerFactory.getLogger(RouteGraphCache.class);
+
+    private final RailsRoot root;
+    private final MapManager mapManager;
+
+    private long revision = -1;
+
+    // column key defined by the options of the route graph
+    private final Table<PublicCompany, String, NetworkGraph> routeGraphs = HashBasedTable.create();
+    // column key is the signature of the graph the multigraph was created from
+    private final Table<PublicCompany, String, NetworkMultigraph> multigraphs = HashBasedTable.create();
+    private final Map<PublicCompany, RevenuePredictionCache> predictionCaches = new HashMap<>();
+
+    private RouteGraphCache(RailsRoot root) {
+        this.root = root;
+        this.mapManager = root.getMapManager();
+    }
+
+    public static RouteGraphCache create(RailsRoot root) {
+        return new RouteGraphCache(root);
+    }
+
+    private void checkRevision() {
+        long currentRevision = mapManager.getRevision();
+        if (currentRevision != revision) {
+            routeGraphs.clear();
+            multigraphs.clear();
+            predictionCaches.clear();
+            revision = currentRevision;
+            log.debug("RouteGraphCache cleared for revision {}", revision);
+        }
+    }
+
+    /**
+     * @param addHQ true to add the company HQ vertex
+     * @param running true for train runs, false for tile or token lay allowances
+     * @return a copy of the route graph of the company
+     */
+    public synchronized NetworkGraph getRouteGraph(PublicCompany company, boolean addHQ, boolean running) {
+        checkRevision();
+        String options = (addHQ ? "HQ" : "noHQ") + (running ? ".running" : ".laying");
+        NetworkGraph routeGraph = routeGraphs.get(company, options);
+        if (routeGraph == null) {
+            routeGraph = NetworkGraph.createRouteGraph(NetworkGraph.createMapGraph(root),
+                    company, addHQ, running);
+            routeGraphs.put(company, options, routeGraph);
+            log.debug("RouteGraph for {} ({}) created for revision {}", company, options, revision);
+        }
+        return routeGraph.copyGraph();
+    }
+
+    /**
+     * @param graph the route graph (potentially changed by revenue modifiers)
+     * @param protectedVertices vertices that have to be kept in the optimized graph
+     * @return the multigraph for the graph, reused from the cache if the graph has the same signature
+     */
+    public synchronized NetworkMultigraph getMultigraph(PublicCompany company, NetworkGraph graph,
+            Collection<NetworkVertex> protectedVertices) {
+        checkRevision();
+        String signature = createSignature(graph, protectedVertices);
+        if (signature != null) {
+            NetworkMultigraph cached = multigraphs.get(company, signature);
+            if (cached != null) {
+                NetworkMultigraph multigraph = cached.copyFor(graph);
+                if (multigraph != null) {
+                    log.debug("MultiGraph for {} reused for revision {}", company, revision);
+                    return multigraph;
+                }
+            }
+        }
+        NetworkMultigraph multigraph = NetworkMultigraph.create(
+                NetworkGraph.createOptimizedGraph(graph, protectedVertices), protectedVertices);
+        if (signature != null) {
+            multigraphs.put(company, signature, multigraph);
+        }
+        return multigraph;
+    }
+
+    /**
+     * @return the cache of the revenue prediction runs of the company
+     */
+    synchronized RevenuePredictionCache getPredictionCache(PublicCompany company) {
+        checkRevision();
+        return predictionCaches.computeIfAbsent(company, c -> new RevenuePredictionCache());
+    }
+
+    /**
+     * The signature covers all properties of the graph used to create the multigraph
+     * @return signature of the graph, null if the vertex identifiers are not unique
+     */
+    private static String createSignature(NetworkGraph graph, Collection<NetworkVertex> protectedVertices) {
+        Set<String> identifiers = new HashSet<>();
+        List<String> vertices = new ArrayList<>();
+        for (NetworkVertex vertex : graph.getGraph().vertexSet()) {
+            String identifier = vertex.getIdentifier();
+            if (!identifiers.add(identifier)) return null;
+            vertices.add(identifier + "/" + vertex.getType() + (vertex.isSink() ? "*" : "")
+                    + (protectedVertices.contains(vertex) ? "P" : ""));
+        }
+        Collections.sort(vertices);
+
+        List<String> edges = new ArrayList<>();
+        for (NetworkEdge edge : graph.getGraph().edgeSet()) {
+            // undirected edges: order the vertices by identifier
+            String source = edge.getSource().getIdentifier();
+            String target = edge.getTarget().getIdentifier();
+            List<NetworkVertex> hiddenVertices = edge.getHiddenVertices();
+            if (source.compareTo(target) > 0) {
+                String swap = source;
+                source = target;
+                target = swap;
+                hiddenVertices = new ArrayList<>(hiddenVertices);
+                Collections.reverse(hiddenVertices);
+            }
+            StringBuilder s = new StringBuilder();
+            s.append(source).append("-").append(target);
+            s.append(edge.isGreedy() ? "G" : "").append(edge.getDistance());
+            for (NetworkVertex hidden : hiddenVertices) {
+                s.append("/").append(hidden.getIdentifier());
+            }
+            edges.add(s.toString());
+        }
+        Collections.sort(edges);
+
+        return String.join(",", vertices) + ";" + String.join(",", edges);
+    }
+
+}
@@ -1,8 +1,12 @@
 package net.sf.rails.common.parser;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
+import net.sf.rails.common.GameOptionsSet;
 import net.sf.rails.common.LocalText;
 import net.sf.rails.common.ResourceLoader;
 import net.sf.rails.common.parser.ConfigurationException;
@@ -15,6 +19,13 @@ import org.slf4j.LoggerFactory;
 
 import com.google.common.collect.Maps;
 
+/**
+ * ComponentManager creates and configures the components of a game, as listed in Game.xml.
+ * <p>
+ * The startup has two phases: first the files of all components are loaded and parsed in parallel,
+ * then the components are created and configured one after another in the order of Game.xml,
+ * as their configuration creates the items and states of the game.
+ */
 public class ComponentManager {
 
     private static final Logger log = LoggerFactory.getLogger(ComponentManager.class);
@@ -25,16 +36,63 @@ public class ComponentManager {
 
     public void start(RailsRoot root, Tag tag) throws ConfigurationException {
         List<Tag> componentTags = tag.getChildren(XMLTags.COMPONENT_ELEMENT_ID);
+
+        // 1st phase: load the configuration of all components in parallel
+        List<CompletableFuture<Tag>> configTags = new ArrayList<>();
         for (Tag componentTag : componentTags) {
+            configTags.add(loadConfiguration(root, componentTag));
+        }
+
+        // 2nd phase: configure the components in the order of Game.xml
+        for (int i = 0; i < componentTags.size(); i++) {
+            Tag componentTag = componentTags.get(i);
             String compName = componentTag.getAttributeAsString("name");
             log.debug("Found component {}", compName);
-            Configurable component = configureComponent(root, componentTag);
+            Configurable component = configureComponent(root, componentTag, configTags.get(i));
             // feedback to RailsRoot
             root.setComponent(component);
         }
     }
 
-    private Configurable configureComponent(RailsRoot root, Tag componentTag)
+    /**
+     * @return the configuration of the component, from a file (loaded asynchronously), or the embedded XML
+     */
+    private CompletableFuture<Tag> loadConfiguration(RailsRoot root, Tag componentTag)
+            throws ConfigurationException {
+        String name = componentTag.getAttributeAsString(XMLTags.NAME_ATTR);
+        String file = componentTag.getAttributeAsString(XMLTags.FILE_ATTR);
+        if (name == null || file == null) {
+            return CompletableFuture.completedFuture(componentTag);
+        }
+
+        String directory = GameInfoParser.DIRECTORY + ResourceLoader.SEPARATOR + root.getGameName();
+        GameOptionsSet gameOptions = root.getGameOptions();
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return Tag.findTopTagInFile(file, directory, name, gameOptions);
+            } catch (ConfigurationException e) {
+                throw new CompletionException(e);
+            }
+        });
+    }
+
+    /**
+     * Waits for the configuration, exceptions of loading are thrown as if the file was loaded by the caller
+     */
+    private Tag getConfiguration(CompletableFuture<Tag> configTag) throws ConfigurationException {
+        try {
+            return configTag.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof ConfigurationException) {
+                throw (ConfigurationException) e.getCause();
+            } else if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private Configurable configureComponent(RailsRoot root, Tag componentTag, CompletableFuture<Tag> configTag)
             throws ConfigurationException {
 
         // Extract the attributes of the Component
@@ -48,7 +106,6 @@ public class ComponentManager {
             throw new ConfigurationException(LocalText.getText(
                     "ComponentHasNoClass", name));
         }
-        String file = componentTag.getAttributeAsString(XMLTags.FILE_ATTR);
 
         // Only one component per name.
         if (mComponentMap.get(name) != null) {
@@ -60,11 +117,7 @@ public class ComponentManager {
         Configurable component = Configure.create(Configurable.class, clazz, RailsRoot.class, root, name);
 
         // Configure the component, from a file, or the embedded XML.
-        Tag configElement = componentTag;
-        if (file != null) {
-            String directory =  GameInfoParser.DIRECTORY + ResourceLoader.SEPARATOR + root.getGameName();
-            configElement = Tag.findTopTagInFile(file, directory, name, root.getGameOptions());
-        }
+        Tag configElement = getConfiguration(configTag);
 
         try {
             component.configureFromXML(configElement);
@@ -17,7 +17,9 @@ import javax.xml.XMLConstants;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.*;
 
 
@@ -26,6 +28,9 @@ import java.util.*;
  * Its purpose it to hide the XML parsing details from the application program.
  * The methods of this class intend to replace the corresponding methods in
  * XmlUtils.
+ * <p>
+ * Tags of xml files are read by the {@link TagReader} (and cached by the {@link TagCache} for game definitions),
+ * those tags are resolved while reading and have no DOM Element.
  *
  * @author Erik Vos
  */
@@ -49,6 +54,18 @@ public class Tag {
         this.gameOptions = gameOptions;
     }
 
+    /**
+     * Creates a resolved tag without element (see {@link TagReader})
+     */
+    Tag(Map<String, String> attributes, Map<String, List<Tag>> children, String text) {
+        this.element = null;
+        this.gameOptions = null;
+        this.attributes = attributes;
+        this.children = children;
+        this.text = text;
+        this.parsed = true;
+    }
+
     public Map<String, List<Tag>> getChildren() throws ConfigurationException {
 
         if (!parsed) parse(element);
@@ -398,6 +415,57 @@ public class Tag {
      */
     public static Tag findTopTagInFile(String filename, String directory,
                                        String tagName, GameOptionsSet gameOptions) throws ConfigurationException {
+        // game definitions are cached, the generic configuration (without options) is read once anyway
+        if (gameOptions != null && TagCache.isEnabled()) {
+            return TagCache.findTopTag(filename, directory, tagName, gameOptions);
+        }
+        byte[] xml = readFile(filename, directory, tagName);
+        return readTopTag(xml, filename, tagName, new TagReader(filename, gameOptions), gameOptions);
+    }
+
+    static byte[] readFile(String filename, String directory, String tagName) throws ConfigurationException {
+        InputStream stream = ResourceLoader.getInputStream(filename, directory);
+        if (stream == null) {
+            throw new ConfigurationException("Cannot find file " + filename + " to find element " + tagName);
+        }
+        try (InputStream in = stream) {
+            return in.readAllBytes();
+        } catch (IOException e) {
+            throw new ConfigurationException("Could not read " + filename + " to find element " + tagName, e);
+        }
+    }
+
+    /**
+     * Reads the top tag resolved by the TagReader. If the file cannot be resolved completely
+     * (e.g. an IfOption tag without name) the top tag is a lazy DOM based tag,
+     * thus the error is only reported if the failing tag is used.
+     */
+    static Tag readTopTag(byte[] xml, String filename, String tagName, TagReader tagReader,
+            GameOptionsSet gameOptions) throws ConfigurationException {
+        try {
+            return tagReader.readTopTag(new ByteArrayInputStream(xml), tagName);
+        } catch (ConfigurationException e) {
+            log.debug("Cannot resolve {} completely, it is read into a DOM", filename, e);
+            return new Tag(findTopElement(new ByteArrayInputStream(xml), filename, tagName), gameOptions);
+        }
+    }
+
+    /**
+     * Opens and parses an xml file into a DOM (e.g. for tools that modify xml files).
+     * Searches the root level of the file for an element with the supplied name.
+     *
+     * @return the named element in the named file
+     * @throws ConfigurationException if there is any problem opening and
+     *                                parsing the file, or if the file does not contain a top level element
+     *                                with the given name.
+     */
+    public static Element findTopElementInFile(String filename, String directory, String tagName)
+            throws ConfigurationException {
+        return findTopElement(ResourceLoader.getInputStream(filename, directory), filename, tagName);
+    }
+
+    private static Element findTopElement(InputStream stream, String filename, String tagName)
+            throws ConfigurationException {
         Document doc = null;
         try {
             // Step 1: create a DocumentBuilderFactory and setNamespaceAware
@@ -408,7 +476,7 @@ public class Tag {
             DocumentBuilder db = dbf.newDocumentBuilder();
 
             // Step 3: parse the input file to get a Document object
-            doc = db.parse(ResourceLoader.getInputStream(filename, directory));
+            doc = db.parse(stream);
         } catch (ParserConfigurationException | SAXException | IOException e) {
             throw new ConfigurationException("Could not read/parse " + filename
                     + " to find element " + tagName, e);
@@ -425,12 +493,15 @@ public class Tag {
             if ((childNode != null)
                     && (childNode.getNodeName().equals(tagName))
                     && (childNode.getNodeType() == Node.ELEMENT_NODE)) {
-                return new Tag((Element) childNode, gameOptions);
+                return (Element) childNode;
             }
         }
         throw new ConfigurationException("Could not find " + tagName + " in " + filename);
     }
 
+    /**
+     * @return the DOM element of the tag, null for resolved tags (e.g. from the TagCache)
+     */
     public Element getElement() {
         return element;
     }
@@ -0,0 +1,305 @@
+package net.sf.rails.common.parser;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+import net.sf.rails.common.Config;
+import net.sf.rails.common.GameOptionsSet;
+import net.sf.rails.common.ResourceLoader;
+import net.sf.rails.util.SystemOS;
+
+/**
+ * TagCache keeps the game definition files as resolved tags, thus games created with the same options
+ * skip the parsing of the XML files and the resolution of the IfOption tags.
+ * <p>
+ * A resolved tag belongs to the values of the options used for its resolution, usually only a few of all options.
+ * Resolved tags are kept in memory for the lifetime of the JVM. With load.definition.cache=disk they are stored
+ * in binary files in the cache folder of the Rails configuration, too. Those are valid as long as neither the checksum
+ * of the XML file nor the build of Rails change, thus the disk cache is not used by builds without build information.
+ */
+final class TagCache {
+
+    private static final Logger log = LoggerFactory.getLogger(TagCache.class);
+
+    static final String CACHE_CONFIG = "load.definition.cache";
+    static final String CACHE_FOLDER = "cache";
+    private static final String CACHE_FILE_EXTENSION = ".tags";
+
+    /** "RTAG" */
+    private static final int MAGIC = 0x52544147;
+    private static final int VERSION = 2;
+
+    /**
+     * A resolved tag and the values of the options used for its resolution (null values for undefined options)
+     */
+    private static final class Variant {
+        private final Map<String, String> options;
+        private final Tag tag;
+
+        private Variant(Map<String, String> options, Tag tag) {
+            this.options = options;
+            this.tag = tag;
+        }
+
+        private boolean matches(GameOptionsSet gameOptions) {
+            for (Map.Entry<String, String> option : options.entrySet()) {
+                if (!Objects.equals(gameOptions.get(option.getKey()), option.getValue())) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * All variants of the top tag of a file
+     */
+    private static final class Definition {
+        private final List<Variant> variants = new ArrayList<>();
+        private boolean cacheFileRead = false;
+
+        private Tag find(GameOptionsSet gameOptions) {
+            for (Variant variant : variants) {
+                if (variant.matches(gameOptions)) {
+                    return variant.tag;
+                }
+            }
+            return null;
+        }
+    }
+
+    private static final Map<String, Definition> definitions = new ConcurrentHashMap<>();
+
+    private TagCache() {}
+
+    static boolean isEnabled() {
+        return !"off".equals(Config.get(CACHE_CONFIG, "memory"));
+    }
+
+    private static boolean isDiskEnabled() {
+        return "disk".equals(Config.get(CACHE_CONFIG, "memory")) && !"unknown".equals(Config.getBuildDate());
+    }
+
+    /**
+     * @return the build of Rails, cache files of other builds might contain tags of another parser
+     */
+    private static String getBuild() {
+        return Config.getVersion() + " " + Config.getBuildDate();
+    }
+
+    /**
+     * @return the resolved top tag of the file for the game options
+     */
+    static Tag findTopTag(String filename, String directory, String tagName, GameOptionsSet gameOptions)
+            throws ConfigurationException {
+
+        String key = directory + ResourceLoader.SEPARATOR + filename + "#" + tagName;
+        Definition definition = definitions.computeIfAbsent(key, k -> new Definition());
+
+        // files of different definitions are read in parallel
+        synchronized (definition) {
+            Tag tag = definition.find(gameOptions);
+            if (tag != null) return tag;
+
+            byte[] xml = Tag.readFile(filename, directory, tagName);
+            long checksum = checksum(xml);
+
+            File cacheFile = isDiskEnabled() ? getCacheFile(key) : null;
+            if (cacheFile != null && !definition.cacheFileRead) {
+                definition.cacheFileRead = true;
+                definition.variants.addAll(readCacheFile(cacheFile, key, checksum));
+                tag = definition.find(gameOptions);
+                if (tag != null) {
+                    log.debug("Read {} from cache file {}", key, cacheFile);
+                    return tag;
+                }
+            }
+
+            TagReader tagReader = new TagReader(filename, gameOptions);
+            Tag resolvedTag = Tag.readTopTag(xml, filename, tagName, tagReader, gameOptions);
+            if (resolvedTag.getElement() != null) {
+                // not resolved completely
+                return resolvedTag;
+            }
+
+            Map<String, String> options = new HashMap<>();
+            for (String option : tagReader.getUsedOptions()) {
+                options.put(option, gameOptions.get(option));
+            }
+            definition.variants.add(new Variant(options, resolvedTag));
+            log.debug("Cached {} for options {}", key, options);
+
+            if (cacheFile != null) {
+                writeCacheFile(cacheFile, key, checksum, definition.variants);
+            }
+            return resolvedTag;
+        }
+    }
+
+    private static long checksum(byte[] data) {
+        CRC32 crc = new CRC32();
+        crc.update(data);
+        return crc.getValue();
+    }
+
+    private static File getCacheFile(String key) {
+        File folder = SystemOS.get().getConfigurationFolder(CACHE_FOLDER, true);
+        if (folder == null) return null;
+        return new File(folder, key.replaceAll("[^A-Za-z0-9._-]", "_") + CACHE_FILE_EXTENSION);
+    }
+
+    /**
+     * @return the variants stored in the cache file, empty if the file is missing or outdated
+     */
+    private static List<Variant> readCacheFile(File file, String key, long checksum) {
+        if (!file.exists()) return ImmutableList.of();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readUnsignedByte() != VERSION || !in.readUTF().equals(getBuild())
+                    || !in.readUTF().equals(key) || in.readLong() != checksum) {
+                log.debug("Ignored outdated cache file {}", file);
+                return ImmutableList.of();
+            }
+            List<String> strings = new ArrayList<>();
+            int count = in.readInt();
+            List<Variant> variants = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                Map<String, String> options = new HashMap<>();
+                int optionCount = in.readInt();
+                for (int j = 0; j < optionCount; j++) {
+                    options.put(readString(in, strings), readString(in, strings));
+                }
+                variants.add(new Variant(options, readTag(in, strings)));
+            }
+            return variants;
+        } catch (IOException e) {
+            log.warn("Ignored invalid cache file {}", file, e);
+            return ImmutableList.of();
+        }
+    }
+
+    private static void writeCacheFile(File file, String key, long checksum, List<Variant> variants) {
+        File tempFile = null;
+        try {
+            // other Rails instances read the cache file only after it is complete
+            tempFile = File.createTempFile(file.getName(), null, file.getParentFile());
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+                out.writeInt(MAGIC);
+                out.writeByte(VERSION);
+                out.writeUTF(getBuild());
+                out.writeUTF(key);
+                out.writeLong(checksum);
+                Map<String, Integer> strings = new HashMap<>();
+                out.writeInt(variants.size());
+                for (Variant variant : variants) {
+                    out.writeInt(variant.options.size());
+                    for (Map.Entry<String, String> option : variant.options.entrySet()) {
+                        writeString(out, strings, option.getKey());
+                        writeString(out, strings, option.getValue());
+                    }
+                    writeTag(out, strings, variant.tag);
+                }
+            }
+            Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | ConfigurationException e) {
+            log.warn("Cannot write cache file {}", file, e);
+            if (tempFile != null && !tempFile.delete()) {
+                log.debug("Cannot delete {}", tempFile);
+            }
+        }
+    }
+
+    private static void writeTag(DataOutputStream out, Map<String, Integer> strings, Tag tag)
+            throws IOException, ConfigurationException {
+        out.writeInt(tag.getAttributes().size());
+        for (Map.Entry<String, String> attribute : tag.getAttributes().entrySet()) {
+            writeString(out, strings, attribute.getKey());
+            writeString(out, strings, attribute.getValue());
+        }
+        writeString(out, strings, tag.getText());
+        out.writeInt(tag.getChildren().size());
+        for (Map.Entry<String, List<Tag>> entry : tag.getChildren().entrySet()) {
+            writeString(out, strings, entry.getKey());
+            out.writeInt(entry.getValue().size());
+            for (Tag child : entry.getValue()) {
+                writeTag(out, strings, child);
+            }
+        }
+    }
+
+    private static Tag readTag(DataInputStream in, List<String> strings) throws IOException {
+        ImmutableMap.Builder<String, String> attributes = ImmutableMap.builder();
+        int attributeCount = in.readInt();
+        for (int i = 0; i < attributeCount; i++) {
+            attributes.put(readString(in, strings), readString(in, strings));
+        }
+        String text = readString(in, strings);
+        ImmutableMap.Builder<String, List<Tag>> children = ImmutableMap.builder();
+        int childCount = in.readInt();
+        for (int i = 0; i < childCount; i++) {
+            String name = readString(in, strings);
+            ImmutableList.Builder<Tag> tags = ImmutableList.builder();
+            int tagCount = in.readInt();
+            for (int j = 0; j < tagCount; j++) {
+                tags.add(readTag(in, strings));
+            }
+            children.put(name, tags.build());
+        }
+        return new Tag(attributes.build(), children.build(), text);
+    }
+
+    /**
+     * Strings are written as reference: -2 = null, -1 = new string follows, n = string number n
+     */
+    private static void writeString(DataOutputStream out, Map<String, Integer> strings, String value)
+            throws IOException {
+        if (value == null) {
+            out.writeInt(-2);
+            return;
+        }
+        Integer index = strings.get(value);
+        if (index != null) {
+            out.writeInt(index);
+        } else {
+            strings.put(value, strings.size());
+            out.writeInt(-1);
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readString(DataInputStream in, List<String> strings) throws IOException {
+        int reference = in.readInt();
+        if (reference == -2) {
+            return null;
+        } else if (reference == -1) {
+            String value = in.readUTF();
+            strings.add(value);
+            return value;
+        } else if (reference >= 0 && reference < strings.size()) {
+            return strings.get(reference);
+        }
+        throw new IOException("Unknown string reference " + reference);
+    }
+
+}
@@ -0,0 +1,233 @@
+package net.sf.rails.common.parser;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+import net.sf.rails.common.GameOption;
+import net.sf.rails.common.GameOptionsSet;
+
+/**
+ * TagReader builds resolved tags directly from the StAX event stream of an XML file, without a DOM.
+ * <p>
+ * IfOption and IfVariant tags are resolved while reading, the content of options that are not selected
+ * is skipped without creating any tags. Attributes tags add their attributes to the enclosing tag.
+ * The result is the same as the lazy resolution of a DOM based tag (see {@link Tag}),
+ * the names of the options used for the resolution are recorded for the {@link TagCache}.
+ */
+final class TagReader {
+
+    private static final Logger log = LoggerFactory.getLogger(TagReader.class);
+
+    private final String filename;
+    private final GameOptionsSet gameOptions;
+    private final Set<String> usedOptions = new HashSet<>();
+
+    /**
+     * @param filename of the file read, for error messages
+     * @param gameOptions to resolve IfOption tags, null if the file has none
+     */
+    TagReader(String filename, GameOptionsSet gameOptions) {
+        this.filename = filename;
+        this.gameOptions = gameOptions;
+    }
+
+    /**
+     * @return the names of the options used to resolve IfOption and IfVariant tags
+     */
+    Set<String> getUsedOptions() {
+        return usedOptions;
+    }
+
+    /**
+     * Reads the top level element of the stream, which has to be a tag with the given name
+     */
+    Tag readTopTag(InputStream stream, String tagName) throws ConfigurationException {
+        XMLStreamReader reader = null;
+        try {
+            XMLInputFactory factory = XMLInputFactory.newFactory();
+            factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+            factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+            reader = factory.createXMLStreamReader(stream);
+
+            while (reader.hasNext()) {
+                if (reader.next() == XMLStreamConstants.START_ELEMENT) {
+                    if (name(reader).equals(tagName)) {
+                        return readTag(reader);
+                    }
+                    break;
+                }
+            }
+        } catch (XMLStreamException e) {
+            throw new ConfigurationException("Could not read/parse " + filename
+                    + " to find element " + tagName, e);
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (XMLStreamException e) {
+                    log.debug("Cannot close reader of {}", filename, e);
+                }
+            }
+        }
+        throw new ConfigurationException("Could not find " + tagName + " in " + filename);
+    }
+
+    /**
+     * Reads the tag of the current start element up to its end element
+     */
+    private Tag readTag(XMLStreamReader reader) throws XMLStreamException, ConfigurationException {
+        Map<String, String> attributes = new HashMap<>();
+        readAttributes(reader, attributes);
+        Map<String, List<Tag>> children = new HashMap<>();
+        StringBuilder text = new StringBuilder();
+        readContent(reader, name(reader), attributes, children, text);
+
+        ImmutableMap.Builder<String, List<Tag>> childTags = ImmutableMap.builder();
+        for (Map.Entry<String, List<Tag>> entry : children.entrySet()) {
+            childTags.put(entry.getKey(), ImmutableList.copyOf(entry.getValue()));
+        }
+        return new Tag(ImmutableMap.copyOf(attributes), childTags.build(), text.toString());
+    }
+
+    /**
+     * Reads the content of the current element into the (enclosing) tag
+     * @param text buffer for the text of the tag, null for the content of IfOption tags (its text is ignored)
+     */
+    private void readContent(XMLStreamReader reader, String elementName, Map<String, String> attributes,
+            Map<String, List<Tag>> children, StringBuilder text) throws XMLStreamException, ConfigurationException {
+        while (true) {
+            switch (reader.next()) {
+                case XMLStreamConstants.START_ELEMENT:
+                    String childName = name(reader);
+                    if ("Attributes".equalsIgnoreCase(childName)) {
+                        readAttributes(reader, attributes);
+                        skipElement(reader);
+                    } else if ("IfOption".equalsIgnoreCase(childName) || "IfVariant".equalsIgnoreCase(childName)) {
+                        if (isSelected(reader, childName, elementName)) {
+                            readContent(reader, childName, attributes, children, null);
+                        } else {
+                            skipElement(reader);
+                        }
+                    } else {
+                        // put keeps the iteration order of the map as for DOM based tags, computeIfAbsent does not
+                        if (!children.containsKey(childName)) {
+                            children.put(childName, new ArrayList<>());
+                        }
+                        children.get(childName).add(readTag(reader));
+                    }
+                    break;
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.SPACE:
+                    if (text != null) {
+                        text.append(reader.getText());
+                    }
+                    break;
+                case XMLStreamConstants.END_ELEMENT:
+                    return;
+                default:
+                    // comments and processing instructions are ignored
+            }
+        }
+    }
+
+    /**
+     * @return true if the content of the IfOption or IfVariant tag applies to the game options
+     */
+    private boolean isSelected(XMLStreamReader reader, String tagName, String elementName)
+            throws ConfigurationException {
+        String name;
+        if ("IfOption".equalsIgnoreCase(tagName)) {
+            name = reader.getAttributeValue(null, "name");
+            if (name == null)
+                throw new ConfigurationException(
+                        "IfOption has no optionName attribute");
+
+            String parameters = reader.getAttributeValue(null, "parm");
+            if (parameters != null) {
+                name = GameOption.constructParameterisedName(name,
+                        ImmutableList.copyOf(Splitter.on(XMLTags.VALUES_DELIM).split(parameters)));
+            }
+        } else {  // IfVariant
+            name = "Variant";
+        }
+        usedOptions.add(name);
+
+        String value = reader.getAttributeValue(null, "value");
+        if (value == null)
+            throw new ConfigurationException(
+                    "IfOption has no optionValue attribute");
+        List<String> valueList = Arrays.asList(value.split(","));
+
+        if (gameOptions == null) {
+            throw new ConfigurationException(
+                    "No GameOptions available in tag " + elementName);
+        }
+        String optionValue = gameOptions.get(name);
+        if (optionValue == null) {
+            log.error("GameOption {}={} has no assigned value", name, value);
+        }
+        return valueList.contains(optionValue);
+    }
+
+    /**
+     * Adds the attributes of the current element in the order of their names, as the DOM provides them
+     */
+    private static void readAttributes(XMLStreamReader reader, Map<String, String> attributes) {
+        SortedMap<String, String> sorted = new TreeMap<>();
+        for (int i = 0; i < reader.getAttributeCount(); i++) {
+            String prefix = reader.getAttributePrefix(i);
+            String name = reader.getAttributeLocalName(i);
+            sorted.put(prefix == null || prefix.isEmpty() ? name : prefix + ":" + name,
+                    reader.getAttributeValue(i));
+        }
+        // putAll would size an empty map differently and thus change its iteration order
+        for (Map.Entry<String, String> attribute : sorted.entrySet()) {
+            attributes.put(attribute.getKey(), attribute.getValue());
+        }
+    }
+
+    /**
+     * Skips the content of the current element up to its end element
+     */
+    private static void skipElement(XMLStreamReader reader) throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
+
+    /**
+     * @return the qualified name of the current element, as in the DOM
+     */
+    private static String name(XMLStreamReader reader) {
+        String prefix = reader.getPrefix();
+        String name = reader.getLocalName();
+        return prefix == null || prefix.isEmpty() ? name : prefix + ":" + name;
+    }
+
+}
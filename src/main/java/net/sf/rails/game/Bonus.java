@@ -23,7 +23,7 @@ import net.sf.rails.game.state.Observable;
  * In that case, the bonus is not assigned to the city, but added at the final evaluation
  * provided that at least one train has reached that city. This applies to 18Scan Kiruna.
  */
-public class Bonus implements Closeable, RevenueStaticModifier, RevenueDynamicModifier {
+public class Bonus implements Closeable, RevenueStaticModifier, RevenueSnapshotModifier {
 
     private PublicCompany owner;
     private List<MapHex> locations;
@@ -210,6 +210,19 @@ public class Bonus implements Closeable, RevenueStaticModifier, RevenueDynamicMo
         return hits > 0 ? value : 0;
     }
 
+    @Override
+    public int predictionValue(RevenueRunSnapshot run) {
+        return value;
+    }
+
+    @Override
+    public int evaluationValue(RevenueRunSnapshot run) {
+        for (int trainId = 0; trainId < run.getNumberOfTrains(); trainId++) {
+            if (run.containsVertex(trainId, bonusVertex)) return value;
+        }
+        return 0;
+    }
+
     @Override
     public void adjustOptimalRun(List<RevenueTrainRun> optimalRuns) {
         // do nothing here (all is done by changing the evaluation value)
@@ -16,6 +16,7 @@ import net.sf.rails.game.special.SpecialProperty;
 import net.sf.rails.game.state.*;
 import net.sf.rails.game.state.Currency;
 import net.sf.rails.ui.swing.GameUIManager;
+import net.sf.rails.util.ActionJournal;
 import net.sf.rails.util.GameLoader;
 import net.sf.rails.util.GameSaver;
 import net.sf.rails.util.Util;
@@ -52,6 +53,7 @@ public class GameManager extends RailsManager implements Configurable, Owner {
     private static final Logger log = LoggerFactory.getLogger(GameManager.class);
 
     public static final String ARCHIVE_ENABLED = "save.archive.enabled";
+    public static final String AUTOSAVE_COMPACTION = "save.auto.compaction";
     public static final String ARCHIVE_DIRECTORY = "save.archive.dir";
     public static final String ARCHIVE_KEEP_COUNT = "save.archive.keep_count";
 
@@ -154,6 +156,13 @@ public class GameManager extends RailsManager implements Configurable, Owner {
      */
     protected boolean recoverySaveWarning = true;
 
+    /**
+     * file that was saved or reloaded last and the executed actions it contains (including its journal),
+     * the turns of the shared autosave are appended to its journal
+     */
+    protected File journaledFile = null;
+    protected List<PossibleAction> journaledActions = null;
+
     /**
      * Flag to skip a subsequent Done action (if present) during reloading.
      * <br>This is a fix to maintain backwards compatibility when redundant
@@ -1087,6 +1096,38 @@ public class GameManager extends RailsManager implements Configurable, Owner {
         }
     }
 
+    /**
+     * Appends the actions of the current turn to the journal of the save file, used by the shared autosave
+     * instead of saving the whole game.
+     * @param saveFile the last saved or reloaded file
+     * @return false if the journal does not continue the current game, is due for compaction into
+     * a new save file (see save.auto.compaction) or cannot be written
+     */
+    public boolean saveTurnToJournal(File saveFile) {
+        if (journaledFile == null || !journaledFile.equals(saveFile.getAbsoluteFile())) return false;
+
+        File journalFile = ActionJournal.getJournalFile(saveFile);
+        try (ActionJournal journal = ActionJournal.open(journalFile, getRoot().getGameData().getGameName(),
+                journaledActions.size())) {
+            if (journal.getTurns() >= Config.getInt(AUTOSAVE_COMPACTION, 20)) return false;
+            // actions that differ from the journaled ones (after undo) replace them
+            int index = 0;
+            while (index < journaledActions.size() && index < executedActions.size()
+                    && journaledActions.get(index) == executedActions.get(index)) {
+                index++;
+            }
+            if (index < executedActions.size()) {
+                journal.append(index, executedActions.view().subList(index, executedActions.size()));
+            }
+            journal.endTurn(executedActions.size());
+        } catch (IOException e) {
+            log.error("Unable to write journal {}", journalFile, e);
+            return false;
+        }
+        journaledActions = new ArrayList<>(executedActions.view());
+        return true;
+    }
+
     protected boolean save(GameAction saveAction) {
         GameSaver gameSaver = new GameSaver(getRoot().getGameData(), executedActions.view());
         File file = new File(saveAction.getFilepath());
@@ -1097,6 +1138,13 @@ public class GameManager extends RailsManager implements Configurable, Owner {
             log.error("save failed", e);
             return false;
         }
+        // a journal of a previous save to the same file does not apply to this one
+        File journalFile = ActionJournal.getJournalFile(file);
+        if (journalFile.exists() && !journalFile.delete()) {
+            log.warn("Unable to delete journal {}", journalFile);
+        }
+        journaledFile = file.getAbsoluteFile();
+        journaledActions = new ArrayList<>(executedActions.view());
 
         boolean archive = Config.getBoolean(ARCHIVE_ENABLED, false);
         if ( archive ) {
@@ -1155,6 +1203,10 @@ public class GameManager extends RailsManager implements Configurable, Owner {
                         if ( ! toMove.renameTo(destFile) ) {
                             log.warn("Unable to archive {} to {}", toMove.getName(), destFile.getAbsolutePath());
                         }
+                        File toMoveJournal = ActionJournal.getJournalFile(toMove);
+                        if ( toMoveJournal.exists() && ! toMoveJournal.renameTo(ActionJournal.getJournalFile(destFile)) ) {
+                            log.warn("Unable to archive {}", toMoveJournal.getName());
+                        }
                     }
                 }
             }
@@ -1176,6 +1228,7 @@ public class GameManager extends RailsManager implements Configurable, Owner {
         if (!gameLoader.reloadGameFromFile(getRoot(), new File(filepath))) {
             return false;
         }
+        gameLoader.applyConfigOptions();
 
         log.debug("Starting to compare loaded actions");
 
@@ -1241,6 +1294,10 @@ public class GameManager extends RailsManager implements Configurable, Owner {
         setReloading(false);
         finishLoading();
 
+        // the next turn of the shared autosave continues the journal of the reloaded file
+        journaledFile = new File(filepath).getAbsoluteFile();
+        journaledActions = new ArrayList<>(executedActions.view());
+
         // use new comments (without checks)
         // FIXME (Rails2.0): CommentItems have to be replaced
         // ReportBuffer.setCommentItems(gameLoader.getComments());
@@ -44,6 +44,10 @@ public class HexSide extends TrackPoint {
         return sides.subList(0, 3);
     }
 
+    public static List<HexSide> tail() {
+        return sides.subList(3, 6);
+    }
+
     public static HexSide defaultRotation() {
         return sides.get(0);
     }
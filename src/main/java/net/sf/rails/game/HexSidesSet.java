@@ -20,6 +20,17 @@ public class HexSidesSet implements Iterable<HexSide> {
     public static HexSidesSet create(BitSet sides) {
         return new HexSidesSet(sides);
     }
+
+    /**
+     * @param mask bit n is set for side n
+     */
+    public static HexSidesSet create(int mask) {
+        BitSet sides = new BitSet(6);
+        for (int side = 0; side < 6; side++) {
+            if ((mask & 1 << side) != 0) sides.set(side);
+        }
+        return new HexSidesSet(sides);
+    }
     
     public static HexSidesSet rotated(HexSidesSet base, HexSide rotation) {
         if (rotation == HexSide.defaultRotation()) return base;
@@ -36,6 +47,17 @@ public class HexSidesSet implements Iterable<HexSide> {
     public BitSet getSides() {
         return sides;
     }
+
+    /**
+     * @return bit mask with bit n set for side n
+     */
+    public int toMask() {
+        int mask = 0;
+        for (int side = sides.nextSetBit(0); side >= 0; side = sides.nextSetBit(side + 1)) {
+            mask |= 1 << side;
+        }
+        return mask;
+    }
     
     public boolean get(HexSide side) {
         return sides.get(side.getTrackPointNumber());
@@ -273,6 +273,8 @@ public class MapHex extends RailsModel implements RailsOwner, Configurable {
     private int extraTextX = 0; // horizontal position wrt hex center
     private int extraTextY = 0; // vertical position wrt hex center
 
+    // dense index of the hex on the map (assigned by the MapManager)
+    private int index = -1;
 
     private MapHex(MapManager parent, String id, Coordinates coordinates) {
         super(parent, id);
@@ -504,6 +506,17 @@ public class MapHex extends RailsModel implements RailsOwner, Configurable {
         return coordinates;
     }
 
+    /**
+     * @return the index of the hex, which is unique and dense (0 to number of hexes - 1) for the map
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    void setIndex(int index) {
+        this.index = index;
+    }
+
     public boolean isPreprintedTileCurrent() {
         return currentTile.value().getId().equals(preprintedTileId);
     }
@@ -543,6 +556,17 @@ public class MapHex extends RailsModel implements RailsOwner, Configurable {
         return currentTileRotation.value();
     }
 
+    /**
+     * Adds a trigger that is informed if the track layout of the hex changes:
+     * the hex is opened or closed, a tile is laid or rotated or the stops are reassigned
+     */
+    public void addTrackLayoutTrigger(Triggerable trigger) {
+        open.addTrigger(trigger);
+        currentTile.addTrigger(trigger);
+        currentTileRotation.addTrigger(trigger);
+        stops.addTrigger(trigger);
+    }
+
     public int getTileCost() {
         if (isPreprintedTileCurrent()) {
             return getTileCost(0);
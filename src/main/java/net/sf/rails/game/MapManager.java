@@ -4,10 +4,16 @@ import java.util.*;
 import java.util.Map.Entry;
 
 import com.google.common.collect.*;
+import net.sf.rails.algorithms.NetworkGraph;
+import net.sf.rails.algorithms.RevenueManager;
+import net.sf.rails.algorithms.RouteGraphCache;
 import net.sf.rails.common.Config;
 import net.sf.rails.common.parser.Configurable;
 import net.sf.rails.common.parser.ConfigurationException;
 import net.sf.rails.common.parser.Tag;
+import net.sf.rails.game.state.Change;
+import net.sf.rails.game.state.Observable;
+import net.sf.rails.game.state.Triggerable;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -16,7 +22,7 @@ import org.slf4j.LoggerFactory;
 /**
  * MapManager configures the map layout from XML
  */
-public class MapManager extends RailsManager implements Configurable {
+public class MapManager extends RailsManager implements Configurable, Triggerable {
 
     private MapOrientation mapOrientation;
 
@@ -35,6 +41,17 @@ public class MapManager extends RailsManager implements Configurable {
     // if required: distance table
     private Table<MapHex, MapHex, Integer> hexDistances;
 
+    // track graph of the map, created on demand and updated on changes of the track layout
+    // (not a state variable, as it is derived from the hexes, including undo and redo)
+    private NetworkGraph trackGraph;
+    private final Set<MapHex> changedHexes = new HashSet<>();
+
+    // revision of the map, increased on all changes that affect the route graphs
+    // (e.g. tiles, tokens, phases)
+    private long revision = 0;
+    private RouteGraphCache routeGraphCache;
+    private TileLayOptionService tileLayOptionService;
+
     // Optional map image (SVG file)
     // FIXME: Move to UI class
     private String mapImageFilename = null;
@@ -64,8 +81,10 @@ public class MapManager extends RailsManager implements Configurable {
         ImmutableMap.Builder<MapHex.Coordinates, MapHex> hexBuilder = ImmutableMap.builder();
         ImmutableSortedSet.Builder<Integer> tileCostsBuilder= ImmutableSortedSet.naturalOrder();
 
+        int hexIndex = 0;
         for (Tag hexTag : hexTags) {
             MapHex hex = MapHex.create(this, hexTag);
+            hex.setIndex(hexIndex++);
             hexBuilder.put(hex.getCoordinates(), hex);
             tileCostsBuilder.addAll(hex.getTileCostsList());
         }
@@ -103,8 +122,7 @@ public class MapManager extends RailsManager implements Configurable {
         ImmutableTable.Builder<MapHex, HexSide, MapHex> hexTableBuilder = ImmutableTable.builder();
         for (MapHex hex:hexes.values()) {
            for (HexSide side:HexSide.all()){
-                MapHex neighbour = hexes.get(mapOrientation.
-                        getAdjacentCoordinates(hex.getCoordinates(), side));
+                MapHex neighbour = getAdjacentHex(hex, side);
                 if (neighbour != null) {
                     if (hex.isValidNeighbour(neighbour, side)) {
                         hexTableBuilder.put(hex, side, neighbour);
@@ -129,6 +147,42 @@ public class MapManager extends RailsManager implements Configurable {
         }
         hexTable = hexTableBuilder.build();
 
+        // track changes of the track layout to update the track graph
+        for (MapHex hex:hexes.values()) {
+            hex.addTrackLayoutTrigger(this);
+        }
+
+        // track changes of hexes (including tokens), phases, rights and graph modifiers for the revision
+        Triggerable revisionTrigger = new Triggerable() {
+            @Override
+            public void triggered(Observable observable, Change change) {
+                increaseRevision();
+            }
+
+            @Override
+            public void triggeredOnUndoRedo(Observable observable, Change change) {
+                increaseRevision();
+            }
+
+            @Override
+            public void triggeredOnRestore(Observable observable) {
+                increaseRevision();
+            }
+        };
+        for (MapHex hex:hexes.values()) {
+            hex.addTrigger(revisionTrigger);
+            // off-station tokens (18VA) are not part of the hex model
+            hex.getOffStationBaseTokens().addTrigger(revisionTrigger);
+        }
+        root.getPhaseManager().getCurrentPhaseModel().addTrigger(revisionTrigger);
+        for (PublicCompany company : root.getCompanyManager().getAllPublicCompanies()) {
+            company.getRightsModel().addTrigger(revisionTrigger);
+        }
+        RevenueManager revenueManager = root.getRevenueManager();
+        if (revenueManager != null) {
+            revenueManager.addGraphModifierTrigger(revisionTrigger);
+        }
+
         for (PublicCompany company : root.getCompanyManager().getAllPublicCompanies()) {
             List<MapHex> homeHexes = company.getHomeHexes();
             if (homeHexes != null) {
@@ -177,10 +231,89 @@ public class MapManager extends RailsManager implements Configurable {
     }
     
     
+    /**
+     * @return the number of hexes, which is the upper bound of the hex indices
+     */
+    public int getHexCount() {
+        return hexes.size();
+    }
+
     public MapHex getNeighbour(MapHex hex, HexSide side) {
         return hexTable.get(hex, side);
     }
 
+    /**
+     * @return the hex at the side of the hex, even if both are not valid neighbours (null if off the map)
+     */
+    public MapHex getAdjacentHex(MapHex hex, HexSide side) {
+        return hexes.get(mapOrientation.getAdjacentCoordinates(hex.getCoordinates(), side));
+    }
+
+    /**
+     * The track graph is maintained incrementally: Only the hexes with changed track layout
+     * (and their connections to the neighbours) are rebuilt.
+     * @return a copy of the current track graph (without graph modifiers)
+     */
+    public synchronized NetworkGraph getTrackGraph() {
+        if (trackGraph == null) {
+            trackGraph = NetworkGraph.createTrackGraph(this);
+            log.debug("TrackGraph created");
+        } else if (!changedHexes.isEmpty()) {
+            trackGraph.updateTrackGraph(this, changedHexes);
+            log.debug("TrackGraph updated for {}", changedHexes);
+        }
+        changedHexes.clear();
+        return trackGraph.copyGraph();
+    }
+
+    private synchronized void increaseRevision() {
+        revision++;
+    }
+
+    /**
+     * @return the current revision of the map, which increases with every change
+     * of tiles, tokens, the phase, company rights or graph modifiers (including undo and redo)
+     */
+    public synchronized long getRevision() {
+        return revision;
+    }
+
+    /**
+     * @return the cache of route graphs, which is valid for the current revision
+     */
+    public synchronized RouteGraphCache getRouteGraphCache() {
+        if (routeGraphCache == null) {
+            routeGraphCache = RouteGraphCache.create(getRoot());
+        }
+        return routeGraphCache;
+    }
+
+    /**
+     * @return the service for the options of tile lays, which are cached for the current revision
+     */
+    public synchronized TileLayOptionService getTileLayOptionService() {
+        if (tileLayOptionService == null) {
+            tileLayOptionService = TileLayOptionService.create(getRoot());
+        }
+        return tileLayOptionService;
+    }
+
+    public synchronized void triggered(Observable observable, Change change) {
+        // the graph gets created including the change
+        if (trackGraph == null) return;
+        changedHexes.add((MapHex) observable.getParent());
+    }
+
+    @Override
+    public void triggeredOnUndoRedo(Observable observable, Change change) {
+        triggered(observable, change);
+    }
+
+    @Override
+    public void triggeredOnRestore(Observable observable) {
+        triggered(observable, null);
+    }
+
     /**
      * A utility to find if a newly laid tile will create a "bridge"
      * (i.e. connect track across a "river" between neighbouring hexes).
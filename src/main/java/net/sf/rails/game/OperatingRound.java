@@ -4126,4 +4126,10 @@ public class OperatingRound extends Round implements Observer {
         return stepObject;
     }
 
+    @Override
+    public boolean requiresImmediateUpdate() {
+        // the step is part of the game engine
+        return true;
+    }
+
 }
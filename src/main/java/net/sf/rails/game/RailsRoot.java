@@ -50,6 +50,9 @@ public class RailsRoot extends Root implements RailsItem {
     // Other Managers
     private ReportManager reportManager;
 
+    // revenue values of stops, created on first use
+    private Stops stops;
+
     private RailsRoot(GameData gameData) {
         super();
 
@@ -68,6 +71,14 @@ public class RailsRoot extends Root implements RailsItem {
         log.debug("RailsRoot: instance created");
         root.init();
         log.debug("RailsRoot: instance initialized");
+        // checkpoints are optional, each one stores the values of all states
+        int checkpointInterval = Config.getInt("undo.checkpoint.interval", 0);
+        int retainedChangeSets = Config.getInt("undo.retention", 0);
+        if (checkpointInterval == 0 && retainedChangeSets > 0) {
+            log.warn("undo.retention requires undo.checkpoint.interval, all actions are kept");
+            retainedChangeSets = 0;
+        }
+        root.getStateManager().getChangeStack().setCheckpointPolicy(checkpointInterval, retainedChangeSets);
         root.initGameFromXML();
         log.debug("RailsRoot: game configuration initialized");
         root.finishConfiguration();
@@ -232,6 +243,13 @@ public class RailsRoot extends Root implements RailsItem {
         return portfolioManager;
     }
 
+    synchronized Stops getStops() {
+        if (stops == null) {
+            stops = new Stops(this);
+        }
+        return stops;
+    }
+
     /**
      * @return the gameName
      */
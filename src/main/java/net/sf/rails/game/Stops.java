@@ -1,8 +1,5 @@
 package net.sf.rails.game;
 
-import java.util.HashMap;
-import java.util.Map;
-
 /**
  * Stops is a class intended to provide a central place
  * for calculation of revenues per stop, possibly dependent
@@ -43,19 +40,17 @@ public class Stops {
     protected PhaseManager phaseManager;
     protected MapManager mapManager;
 
-    protected static Map<RailsRoot, Stops> instances = new HashMap<>();
-
     protected Stops (RailsRoot root) {
         gameManager = root.getGameManager();
         phaseManager = root.getPhaseManager();
         mapManager = root.getMapManager();
     }
 
+    /**
+     * The instance is kept by the root, thus games loaded in parallel do not share it
+     */
     protected static Stops getInstance (RailsRoot root) {
-        if (!instances.containsKey(root)) {
-            instances.put(root, new Stops(root));
-        }
-        return instances.get(root);
+        return root.getStops();
     }
 
     public static Revenue getValue(Stop stop) {
@@ -0,0 +1,247 @@
+package net.sf.rails.game;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+import com.google.common.base.MoreObjects;
+
+import net.sf.rails.game.special.SpecialTileLay;
+import rails.game.action.LayTile;
+
+/**
+ * A TileLayOption combines a MapHex with a tile upgrade of the current tile,
+ * the allowed rotations of the new tile and the cost of the tile lay for a LayTile action.
+ * <p>
+ * Options are created by the {@link TileLayOptionService}, including options that are not legal in the current
+ * state of the game (e.g. due to missing tiles or cash), thus the UI can show the reasons.
+ */
+public final class TileLayOption {
+
+    public enum Invalids {
+        NO_VALID_ORIENTATION, HEX_BLOCKED, HEX_RESERVED, NO_TILES_LEFT,
+        NOT_ALLOWED_FOR_HEX, NOT_ALLOWED_FOR_PHASE, COLOUR_NOT_ALLOWED,
+        COLOUR_RIGHT_MISSING, NO_ROUTE_TO_NEW_TRACK, NOT_ENOUGH_CASH
+    }
+
+    private final LayTile action;
+    private final MapHex hex;
+    private final TileUpgrade upgrade;
+    private final HexSidesSet rotations;
+    private final boolean permissiveRoutePossible;
+    private final int cost;
+    // invalids that are accepted for the action
+    private final Set<Invalids> allowances;
+
+    private TileLayOption(LayTile action, MapHex hex, TileUpgrade upgrade, HexSidesSet rotations,
+            boolean permissiveRoutePossible, int cost, Set<Invalids> allowances) {
+        this.action = action;
+        this.hex = hex;
+        this.upgrade = upgrade;
+        this.rotations = rotations;
+        this.permissiveRoutePossible = permissiveRoutePossible;
+        this.cost = cost;
+        this.allowances = allowances;
+    }
+
+    static TileLayOption create(LayTile action, MapHex hex, TileUpgrade upgrade, HexSidesSet rotations,
+            boolean permissiveRoutePossible, Set<Invalids> allowances) {
+        return new TileLayOption(action, hex, upgrade, rotations, permissiveRoutePossible,
+                action.getPotentialCost(hex), allowances);
+    }
+
+    /**
+     * @return the same option for another action with identical options
+     */
+    TileLayOption createFor(LayTile otherAction) {
+        return new TileLayOption(otherAction, hex, upgrade, rotations, permissiveRoutePossible, cost, allowances);
+    }
+
+    public LayTile getAction() {
+        return action;
+    }
+
+    public MapHex getHex() {
+        return hex;
+    }
+
+    public TileUpgrade getUpgrade() {
+        return upgrade;
+    }
+
+    public Tile getTile() {
+        return upgrade.getTargetTile();
+    }
+
+    /**
+     * @return the allowed rotations of the new tile
+     */
+    public HexSidesSet getRotations() {
+        return rotations;
+    }
+
+    public int getCost() {
+        return cost;
+    }
+
+    public Set<Invalids> getAllowances() {
+        return allowances;
+    }
+
+    /**
+     * @return true if the tile lay is legal in the current state of the game
+     */
+    public boolean isLegal(Phase phase) {
+        return getInvalids(phase).isEmpty();
+    }
+
+    /**
+     * @return the reasons why the tile lay is not legal in the current state of the game, except the allowances
+     */
+    public EnumSet<Invalids> getInvalids(Phase phase) {
+        EnumSet<Invalids> invalids = EnumSet.noneOf(Invalids.class);
+
+        /*MBR 25.11.2018
+        Check if the action causes this Validation is a Special Tile Lay
+        If that is the case the current support special action modifications need to be
+        excluded from the validation:
+        As of the time of this writing, the following actions are supported.
+        A private blocking hex might be unblocked by laying a tile
+        The tile lay might be free of cost, or carry a discount
+        Future Powers consist of Tile lays in a different Colour than the current Phase (1822)
+        */
+        if (action.getType() == LayTile.SPECIAL_PROPERTY) {
+
+            SpecialTileLay sp = action.getSpecialProperty();
+            if (!sp.isFree()) {
+                if (notEnoughCash(0)) {
+                    invalids.add(Invalids.NOT_ENOUGH_CASH);
+                }
+            }
+            if (!(sp.getLocations() != null && sp.getLocations().contains(hex))) {
+                if (hexIsBlocked() && !allowances.contains(Invalids.HEX_BLOCKED)) {
+                    invalids.add(Invalids.HEX_BLOCKED);
+                }
+                if (hexIsReserved() && !allowances.contains(Invalids.HEX_RESERVED)) {
+                    invalids.add(Invalids.HEX_RESERVED);
+                }
+            }
+        } else {
+            if (hexIsBlocked() && !allowances.contains(Invalids.HEX_BLOCKED)) {
+                invalids.add(Invalids.HEX_BLOCKED);
+            }
+            if (hexIsReserved() && !allowances.contains(Invalids.HEX_RESERVED)) {
+                invalids.add(Invalids.HEX_RESERVED);
+            }
+            if (notEnoughCash(0)) {
+                invalids.add(Invalids.NOT_ENOUGH_CASH);
+            }
+        }
+        if (noTileAvailable()) {
+            invalids.add(Invalids.NO_TILES_LEFT);
+        }
+      //TODO: Add 1822 Private Powers to remove a small station with a private power
+        if (notAllowedForHex()) {
+            invalids.add(Invalids.NOT_ALLOWED_FOR_HEX);
+        }
+        //TODO: Add 1822 Private Powers to upgrade a Tile one phase ahead
+        if (notAllowedForPhase(phase)) {
+            invalids.add(Invalids.NOT_ALLOWED_FOR_PHASE);
+        }
+        if (tileColourNotAllowed(phase)) {
+            invalids.add(Invalids.COLOUR_NOT_ALLOWED);
+        }
+        if (tileColourRightMissing()) {
+            invalids.add(Invalids.COLOUR_RIGHT_MISSING);
+        }
+        if (noRouteToNewTrack()) {
+            invalids.add(Invalids.NO_ROUTE_TO_NEW_TRACK);
+        } else if (noValidRotation()) {
+            invalids.add(Invalids.NO_VALID_ORIENTATION);
+        }
+
+        return invalids;
+    }
+
+    public boolean noValidRotation() {
+        return rotations.isEmpty();
+    }
+
+    public boolean hexIsBlocked() {
+        return hex.isBlockedByPrivateCompany();
+    }
+
+    public boolean hexIsReserved() {
+        if (hex.isReservedForCompany() && hex.getReservedForCompany() != action.getCompany()) {
+            //check that the hex has not been upgraded already...
+            return hex.isPreprintedTileCurrent();
+        }
+        return false;
+    }
+
+    public boolean noTileAvailable() {
+        return upgrade.getTargetTile().getFreeCount() == 0;
+    }
+
+    public boolean notAllowedForHex() {
+        return !upgrade.isAllowedForHex(hex);
+    }
+
+    public boolean notAllowedForPhase(Phase phase) {
+        return !upgrade.isAllowedForPhase(phase);
+    }
+
+    public boolean tileColourNotAllowed(Phase phase) {
+        return !phase.isTileColourAllowed(upgrade.getTargetTile().getColourText());
+    }
+
+    public boolean tileColourRightMissing() {
+        if (action.getTileColours() == null) {
+            return false;
+        }
+        Integer tileLays = action.getTileColours().get(upgrade.getTargetTile().getColourText());
+        return (tileLays == null || tileLays == 0);
+    }
+
+    public boolean noRouteToNewTrack() {
+        return noValidRotation() && permissiveRoutePossible;
+    }
+
+    public boolean notEnoughCash(int discount) {
+        // correction action does not require cash
+        if (action.getType() == LayTile.CORRECTION) {
+            return false;
+        }
+        return action.getCompany().getCash() < (cost - discount);
+    }
+
+    /**
+     * @return true if the new tile has to connect to the route of the company
+     */
+    public static boolean requiresConnection(LayTile action, MapHex hex, Tile targetTile) {
+        // Yellow Tile on Company Home
+        if (targetTile.getColourText().equalsIgnoreCase(TileColour.YELLOW.name())
+                && hex.isHomeFor(action.getCompany())) {
+            return false;
+            // Special Property with specified hexes and require connection
+            // TODO: Do we require the second test
+        } else if (action.getType() == LayTile.SPECIAL_PROPERTY) {
+            SpecialTileLay sp = action.getSpecialProperty();
+            if (sp.getLocations() == null
+                    || sp.getLocations().contains(hex)) {
+                return sp.requiresConnection();
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("hex", hex)
+                .add("upgrade", upgrade)
+                .add("rotations", rotations)
+                .add("cost", cost)
+                .toString();
+    }
+
+}
@@ -0,0 +1,240 @@
+package net.sf.rails.game;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Multimap;
+import com.google.common.collect.Sets;
+
+import net.sf.rails.algorithms.NetworkGraph;
+import net.sf.rails.common.GameOption;
+import net.sf.rails.game.special.SpecialSingleTileLay;
+import net.sf.rails.game.special.SpecialTileLay;
+import rails.game.action.LayTile;
+
+/**
+ * TileLayOptionService computes the options (hex, tile, rotations and cost) of LayTile actions without any UI,
+ * thus the UI, AI players and servers use the same rules.
+ * <p>
+ * The options of an action depend on the map, the phase and the route of the company only.
+ * They are cached for the current revision of the map (see MapManager.getRevision) and reused for actions
+ * of the same company with identical attributes, e.g. after the possible actions have been recreated.
+ * Whether an option is legal depends on the current cash and tiles as well, see {@link TileLayOption#isLegal}.
+ */
+public final class TileLayOptionService {
+
+    private static final Logger log = LoggerFactory.getLogger(TileLayOptionService.class);
+
+    private final RailsRoot root;
+
+    private long revision = -1;
+
+    // key is defined by the attributes of the action used to create the options
+    private final Map<List<Object>, List<TileLayOption>> options = new HashMap<>();
+
+    private TileLayOptionService(RailsRoot root) {
+        this.root = root;
+    }
+
+    public static TileLayOptionService create(RailsRoot root) {
+        return new TileLayOptionService(root);
+    }
+
+    /**
+     * @return all options of the action, including those that are not legal in the current state of the game
+     */
+    public synchronized List<TileLayOption> getOptions(LayTile action) {
+        long currentRevision = root.getMapManager().getRevision();
+        if (currentRevision != revision) {
+            options.clear();
+            revision = currentRevision;
+        }
+
+        List<Object> key = Arrays.asList(action.getCompany(), action.getType(), action.getSpecialProperty(),
+                copyOf(action.getLocations()), copyOf(action.getTiles()),
+                action.getTileColours() == null ? null : new HashMap<>(action.getTileColours()));
+        List<TileLayOption> actionOptions = options.get(key);
+        if (actionOptions == null) {
+            actionOptions = createOptions(action);
+            log.debug("TileLayOptions for {} created for revision {}", action, revision);
+        } else if (!actionOptions.isEmpty() && actionOptions.get(0).getAction() != action) {
+            // the options refer to the action they are created for
+            ImmutableList.Builder<TileLayOption> reboundOptions = ImmutableList.builder();
+            for (TileLayOption option : actionOptions) {
+                reboundOptions.add(option.createFor(action));
+            }
+            actionOptions = reboundOptions.build();
+        }
+        options.put(key, actionOptions);
+        return actionOptions;
+    }
+
+    /**
+     * @return the legal options of the action in the current phase
+     */
+    public List<TileLayOption> getLegalOptions(LayTile action) {
+        Phase phase = root.getPhaseManager().getCurrentPhase();
+        ImmutableList.Builder<TileLayOption> legalOptions = ImmutableList.builder();
+        for (TileLayOption option : getOptions(action)) {
+            if (option.isLegal(phase)) {
+                legalOptions.add(option);
+            }
+        }
+        return legalOptions.build();
+    }
+
+    private static <T> List<T> copyOf(List<T> list) {
+        return list == null ? null : new ArrayList<>(list);
+    }
+
+    private List<TileLayOption> createOptions(LayTile action) {
+        ImmutableList.Builder<TileLayOption> builder = ImmutableList.builder();
+        switch (action.getType()) {
+            case LayTile.GENERIC:
+            case LayTile.GENERIC_EXCL_LOCATIONS:
+                addConnectedOptions(action, builder);
+                break;
+            case LayTile.SPECIAL_PROPERTY:
+                SpecialTileLay sp = action.getSpecialProperty();
+                if (sp.requiresConnection()) {
+                    addConnectedOptions(action, builder);
+                    //MBr: 20210120 - So far no Private has connected and neighbours as power,
+                    // so we dont need to add this here.
+                } else if (!((SpecialSingleTileLay) sp).hasNeighbours()) {
+                    // no options yet for the neighbours power (18Chesapeake and 1844)
+                    addLocatedOptions(action, builder);
+                }
+                break;
+            case LayTile.LOCATION_SPECIFIC:
+                addLocatedOptions(action, builder);
+                break;
+            case LayTile.CORRECTION:
+                addCorrectionOptions(action, builder);
+                break;
+            default:
+        }
+        return builder.build();
+    }
+
+    private void addConnectedOptions(LayTile action, ImmutableList.Builder<TileLayOption> builder) {
+        NetworkGraph graph = root.getMapManager().getRouteGraphCache()
+                .getRouteGraph(action.getCompany(), true, false);
+        Map<MapHex, HexSidesSet> mapHexSides = graph.getReachableSides();
+        Multimap<MapHex, Station> mapHexStations = graph.getPassableStations();
+        String routeAlgorithm = GameOption.getValue(root, "RouteAlgorithm");
+
+        boolean allLocations = (action.getLocations() == null
+                || action.getLocations().isEmpty());
+
+        for (MapHex hex : Sets.union(mapHexSides.keySet(), mapHexStations.keySet())) {
+
+            // For the initial Belgium exclusion in 1826
+            if (action.getType() == LayTile.GENERIC_EXCL_LOCATIONS
+                    && !allLocations
+                    && action.getLocations().contains(hex)) {
+                continue;
+            }
+            if (!allLocations && action.getType() != LayTile.GENERIC_EXCL_LOCATIONS
+                    && !action.getLocations().contains(hex)) {
+                continue;
+            }
+            // Accept an immediate tile lay on reserved hexes if the reserving company
+            // president is the current player.
+            Set<TileLayOption.Invalids> allowances = EnumSet.noneOf(TileLayOption.Invalids.class);
+            if (hex.isReservedForCompany()) {
+                // For now we accept this action, but will later check for permission
+                allowances.add(TileLayOption.Invalids.HEX_RESERVED);
+            }
+
+            for (TileUpgrade upgrade : hex.getCurrentTile().getTileUpgrades()) {
+                HexSide fixedRotation = upgrade.getTargetTile().getFixedOrientation();
+                if (fixedRotation != null) {
+                    HexSidesSet.Builder rotations = HexSidesSet.builder();
+                    rotations.set(fixedRotation);
+                    builder.add(TileLayOption.create(action, hex, upgrade, rotations.build(), false, allowances));
+                } else {
+                    boolean restrictive = routeAlgorithm.equalsIgnoreCase("RESTRICTIVE")
+                            || routeAlgorithm.equalsIgnoreCase("SEMI-RESTRICTIVE")
+                            && !upgrade.getTargetTile().hasStations();
+                    builder.add(createOption(action, hex, upgrade, mapHexSides.get(hex),
+                            mapHexStations.get(hex), restrictive, allowances));
+                }
+            }
+        }
+    }
+
+    private void addLocatedOptions(LayTile action, ImmutableList.Builder<TileLayOption> builder) {
+        if (action.getLocations() == null) return;
+
+        Set<TileLayOption.Invalids> allowances = EnumSet.noneOf(TileLayOption.Invalids.class);
+        for (MapHex hex : action.getLocations()) {
+            if (action.getTiles() == null || action.getTiles().isEmpty()) {
+                for (TileUpgrade upgrade : hex.getCurrentTile().getTileUpgrades()) {
+                    builder.add(createOption(action, hex, upgrade, null, null, true, allowances));
+                }
+            } else {
+                for (Tile targetTile : action.getTiles()) {
+                    TileUpgrade upgrade = hex.getCurrentTile().getSpecificUpgrade(targetTile);
+                    builder.add(createOption(action, hex, upgrade, null, null, true, allowances));
+                }
+            }
+        }
+    }
+
+    private void addCorrectionOptions(LayTile action, ImmutableList.Builder<TileLayOption> builder) {
+        Set<TileLayOption.Invalids> allowances = EnumSet.of(TileLayOption.Invalids.HEX_RESERVED);
+        for (MapHex hex : root.getMapManager().getHexes()) {
+            for (TileUpgrade upgrade : hex.getCurrentTile().getTileUpgrades()) {
+                builder.add(createOption(action, hex, upgrade, null, null, true, allowances));
+            }
+        }
+    }
+
+    /* FIXME: this method fails to find a valid orientation
+     * for the 1837 Vienna green upgrade tile #427, which
+     * is a 6-fold symmetric tile where all orientations are OK!
+     * (this has been circumvented by configuring a fixed orientation).
+     */
+    private TileLayOption createOption(LayTile action, MapHex hex, TileUpgrade upgrade, HexSidesSet connectedSides,
+            Collection<Station> stations, boolean restrictive, Set<TileLayOption.Invalids> allowances) {
+
+        // encode HexSides according to the tile current orientation
+        if (connectedSides != null) {
+            connectedSides = HexSidesSet.rotated(connectedSides, hex.getCurrentTileRotation());
+        }
+        // check invalid sides
+        HexSidesSet invalidSides = null;
+        if (hex.getInvalidSides() != null) {
+            invalidSides = HexSidesSet.rotated(hex.getInvalidSides(), hex.getCurrentTileRotation());
+        }
+
+        HexSidesSet rotations;
+        boolean permissiveRoutePossible = false;
+        if (TileLayOption.requiresConnection(action, hex, upgrade.getTargetTile())) {
+            HexSidesSet permissive = upgrade.getAllowedRotations(connectedSides, invalidSides,
+                    hex.getCurrentTileRotation(), stations, false);
+            if (restrictive) {
+                rotations = upgrade.getAllowedRotations(connectedSides, invalidSides,
+                        hex.getCurrentTileRotation(), stations, true);
+                permissiveRoutePossible = !permissive.isEmpty();
+            } else {
+                rotations = permissive;
+            }
+        } else {
+            rotations = upgrade.getAllowedRotations(null, invalidSides,
+                    hex.getCurrentTileRotation(), stations, restrictive);
+        }
+        return TileLayOption.create(action, hex, upgrade, rotations, permissiveRoutePossible, allowances);
+    }
+
+}
@@ -82,6 +82,16 @@ public class TileUpgrade implements Upgrade {
             sidesWithNewTrack = sidesBuilder.build();
         }
 
+        Rotation(HexSidesSet connectedSides, HexSidesSet sidesWithNewTrack, HexSide rotation,
+                 Map<Station, Station> mapping, Set<Station> stationsWithNewTrack, boolean symmetric) {
+            this.connectedSides = connectedSides;
+            this.sidesWithNewTrack = sidesWithNewTrack;
+            this.rotation = rotation;
+            this.stationMapping = mapping;
+            this.stationsWithNewTrack = stationsWithNewTrack;
+            this.symmetric = symmetric;
+        }
+
         public HexSidesSet getConnectedSides() {
             return connectedSides;
         }
@@ -133,9 +143,9 @@ public class TileUpgrade implements Upgrade {
     private Tile targetTile;
 
     /**
-     * Possible rotations given the trackConfiguration
+     * Possible rotations given the trackConfiguration, shared with other games
      */
-    private Map<HexSide, Rotation> rotations;
+    private TileUpgradeTable rotations;
     private HexSidesSet rotationSides;
     private boolean relayBaseTokens;
 
@@ -239,17 +249,8 @@ public class TileUpgrade implements Upgrade {
     }
 
     private void initRotations() {
-        HexSidesSet.Builder sideBuilder = HexSidesSet.builder();
-        ImmutableMap.Builder<HexSide, Rotation> rotationBuilder = ImmutableMap.builder();
-        for (HexSide side : HexSide.all()) {
-            Rotation rotation = processRotations(side);
-            if (rotation != null) {
-                sideBuilder.set(side);
-                rotationBuilder.put(side, rotation);
-            }
-        }
-        rotationSides = sideBuilder.build();
-        rotations = rotationBuilder.build();
+        rotations = TileUpgradeTable.get(baseTile, targetTile, this::processRotations);
+        rotationSides = HexSidesSet.create(rotations.getRotationSides());
     }
 
     private void parsePhases(RailsRoot root) throws ConfigurationException {
@@ -298,57 +299,23 @@ public class TileUpgrade implements Upgrade {
     }
 
 
-    private boolean checkInvalidSides(Rotation rotation, HexSidesSet impassable) {
-        log.trace("Check rotation {} against  impassable{}", rotation, impassable);
-        if (impassable == null) return false; // null implies that no station exists
-        return (rotation.getConnectedSides().intersects(impassable));
-    }
-
-    private boolean checkSideConnectivity(Rotation rotation, HexSidesSet connected, boolean restrictive) {
-        log.trace("Check rotation {} against {}", rotation, connected);
-        if (connected == null) return true; // null implies no connectivity required
-        if (restrictive && !rotation.getSidesWithNewTrack().isEmpty()) {
-            return rotation.getSidesWithNewTrack().intersects(connected);
-        } else {
-            return (rotation.getConnectedSides().intersects(connected));
-        }
-    }
-
-    private boolean checkStationConnectivity(Rotation rotation, Collection<Station> stations) {
-        if (rotation.getStationMapping() == null) return false;
-        log.trace("Check Stations {}, rotation = {}", stations, rotation);
-        for (Station station : stations) {
-            Station targetStation = rotation.getStationMapping().get(station);
-            if (targetStation != null && rotation.getStationsWithNewTrack().contains(targetStation)) {
-                return true;
-            }
-        }
-        return false;
-    }
-
     public HexSidesSet getRotationSet() {
         return rotationSides;
     }
 
     public Rotation getRotation(HexSide rotation) {
-        return rotations.get(rotation);
+        return rotations.createRotation(rotation, baseTile, targetTile);
     }
 
     public HexSidesSet getAllowedRotations(HexSidesSet connected, HexSidesSet impassable, HexSide baseRotation,
                                            Collection<Station> stations, boolean restrictive) {
 
-        HexSidesSet.Builder builder = HexSidesSet.builder();
-        for (HexSide side : rotationSides) {
-            Rotation rotation = rotations.get(side);
-            if (checkInvalidSides(rotation, impassable)) continue;
-            if (checkSideConnectivity(rotation, connected, restrictive) ||
-                    checkStationConnectivity(rotation, stations)) {
-                builder.set(side.rotate(baseRotation));
-            }
+        HexSidesSet allowed = HexSidesSet.create(rotations.getAllowedRotations(connected, impassable,
+                baseRotation, stations, restrictive));
+        if (log.isDebugEnabled()) {
+            log.debug("tile from=#{} to=#{} allowed={} connected={} impassable={} rotationSides={}",
+                    baseTile, targetTile, allowed, connected, impassable, rotationSides);
         }
-        HexSidesSet allowed = builder.build();
-        log.debug("tile from=#{} to=#{} allowed={} connected={} impassable={} rotationSides={}",
-                baseTile, targetTile, allowed, connected, impassable, rotationSides);
         return allowed;
     }
 
@@ -360,7 +327,11 @@ public class TileUpgrade implements Upgrade {
         this.relayBaseTokens = relayBaseTokens;
     }
 
-    private Rotation processRotations(HexSide side) {
+    /**
+     * @return the rotation of the upgrade for a side, null if the rotation is not valid
+     * (only used to create the TileUpgradeTable, which provides the rotations)
+     */
+    Rotation processRotations(HexSide side) {
 
         TrackConfig base = baseTile.getTrackConfig();
         log.debug("----- Tile {} to {}, rot={}",
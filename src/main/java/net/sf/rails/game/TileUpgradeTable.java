@@ -0,0 +1,171 @@
+package net.sf.rails.game;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import com.google.common.collect.ImmutableSet;
+
+import net.sf.rails.game.TileUpgrade.Rotation;
+
+/**
+ * TileUpgradeTable stores the rotations of the upgrade from a base tile to a target tile as bit masks.
+ * <p>
+ * The rotations depend only on the tracks, stations and fixed orientations of both tiles.
+ * Thus the table is computed once for each pair of tile definitions and shared by all games in the JVM.
+ * Sides are encoded as bit n for side n, stations as bit n for the station with number n.
+ */
+final class TileUpgradeTable {
+
+    private static final Map<String, TileUpgradeTable> tables = new ConcurrentHashMap<>();
+
+    private final int rotationSides;
+    private final int[] connectedSides = new int[6];
+    private final int[] sidesWithNewTrack = new int[6];
+    private final int[] stationsWithNewTrack = new int[6];
+    // base stations that are mapped to a target station with new track
+    private final int[] stationsConnectedToNewTrack = new int[6];
+    // numbers of the base stations and of the mapped target stations (0 if the station is removed)
+    private final int[][] stationMapping = new int[6][];
+    private final boolean[] symmetric = new boolean[6];
+
+    private TileUpgradeTable(Function<HexSide, Rotation> rotations) {
+        int sides = 0;
+        for (HexSide side : HexSide.all()) {
+            Rotation rotation = rotations.apply(side);
+            if (rotation == null) continue;
+
+            int s = side.getTrackPointNumber();
+            sides |= 1 << s;
+            connectedSides[s] = rotation.getConnectedSides().toMask();
+            sidesWithNewTrack[s] = rotation.getSidesWithNewTrack().toMask();
+            stationsWithNewTrack[s] = toMask(rotation.getStationsWithNewTrack());
+            symmetric[s] = rotation.isSymmetric();
+            if (rotation.getStationMapping() != null) {
+                List<Map.Entry<Station, Station>> mapping = new ArrayList<>(rotation.getStationMapping().entrySet());
+                stationMapping[s] = new int[2 * mapping.size()];
+                for (int i = 0; i < mapping.size(); i++) {
+                    Station base = mapping.get(i).getKey();
+                    Station target = mapping.get(i).getValue();
+                    stationMapping[s][2 * i] = base.getNumber();
+                    stationMapping[s][2 * i + 1] = target == null ? 0 : target.getNumber();
+                    if (target != null && rotation.getStationsWithNewTrack().contains(target)) {
+                        stationsConnectedToNewTrack[s] |= 1 << base.getNumber();
+                    }
+                }
+            }
+        }
+        rotationSides = sides;
+    }
+
+    /**
+     * @param rotations computes the rotation of the upgrade for a side, if the table is not available yet
+     * @return the table of the upgrade from base to target
+     */
+    static TileUpgradeTable get(Tile base, Tile target, Function<HexSide, Rotation> rotations) {
+        String key = key(base) + ">" + key(target);
+        TileUpgradeTable table = tables.get(key);
+        if (table == null) {
+            // computed outside of the map, a table computed twice by parallel games is identical
+            table = new TileUpgradeTable(rotations);
+            TileUpgradeTable previous = tables.putIfAbsent(key, table);
+            if (previous != null) table = previous;
+        }
+        return table;
+    }
+
+    /**
+     * @return key of all tile properties that are used to compute the rotations
+     */
+    private static String key(Tile tile) {
+        StringBuilder key = new StringBuilder();
+        HexSide fixedOrientation = tile.getFixedOrientation();
+        key.append(fixedOrientation == null ? -1 : fixedOrientation.getTrackPointNumber());
+        for (Station station : tile.getStations()) {
+            key.append(";s").append(station.getNumber()).append('/').append(station.getBaseSlots());
+        }
+        List<String> tracks = new ArrayList<>();
+        for (Track track : tile.getTracks()) {
+            tracks.add(track.getStart().getTrackPointNumber() + "," + track.getEnd().getTrackPointNumber());
+        }
+        Collections.sort(tracks);
+        for (String track : tracks) {
+            key.append(";t").append(track);
+        }
+        return key.toString();
+    }
+
+    private static int toMask(Collection<Station> stations) {
+        int mask = 0;
+        for (Station station : stations) {
+            mask |= 1 << station.getNumber();
+        }
+        return mask;
+    }
+
+    /**
+     * @return bit mask of the valid rotations
+     */
+    int getRotationSides() {
+        return rotationSides;
+    }
+
+    /**
+     * @param connected sides that require a connection, null if no connection is required
+     * @param impassable sides without track allowed, null if none
+     * @param baseRotation rotation of the base tile
+     * @param stations of the base tile that allow a connection
+     * @param restrictive if true, new track has to be connected (if the upgrade has new track to sides)
+     * @return bit mask of the allowed rotations of the target tile
+     */
+    int getAllowedRotations(HexSidesSet connected, HexSidesSet impassable, HexSide baseRotation,
+            Collection<Station> stations, boolean restrictive) {
+        int connectedMask = connected == null ? 0 : connected.toMask();
+        int impassableMask = impassable == null ? 0 : impassable.toMask();
+        int stationMask = stations == null ? 0 : toMask(stations);
+
+        int allowed = 0;
+        for (int side = 0; side < 6; side++) {
+            if ((rotationSides & 1 << side) == 0 || (connectedSides[side] & impassableMask) != 0) continue;
+            int sides = restrictive && sidesWithNewTrack[side] != 0 ? sidesWithNewTrack[side] : connectedSides[side];
+            if (connected == null || (sides & connectedMask) != 0
+                    || (stationsConnectedToNewTrack[side] & stationMask) != 0) {
+                allowed |= 1 << side;
+            }
+        }
+        int rotation = baseRotation.getTrackPointNumber();
+        return (allowed << rotation | allowed >>> 6 - rotation) & 0x3F;
+    }
+
+    /**
+     * @return the rotation with the stations of the tiles of a game, null if the rotation is not valid
+     */
+    Rotation createRotation(HexSide side, Tile base, Tile target) {
+        int s = side.getTrackPointNumber();
+        if ((rotationSides & 1 << s) == 0) return null;
+
+        Map<Station, Station> mapping = null;
+        if (stationMapping[s] != null) {
+            mapping = new HashMap<>();
+            for (int i = 0; i < stationMapping[s].length; i += 2) {
+                int targetNumber = stationMapping[s][i + 1];
+                mapping.put(base.getStation(stationMapping[s][i]),
+                        targetNumber == 0 ? null : target.getStation(targetNumber));
+            }
+        }
+        ImmutableSet.Builder<Station> stations = ImmutableSet.builder();
+        for (Station station : target.getStations()) {
+            if ((stationsWithNewTrack[s] & 1 << station.getNumber()) != 0) {
+                stations.add(station);
+            }
+        }
+        return new Rotation(HexSidesSet.create(connectedSides[s]), HexSidesSet.create(sidesWithNewTrack[s]),
+                side, mapping, stations.build(), symmetric[s]);
+    }
+
+}
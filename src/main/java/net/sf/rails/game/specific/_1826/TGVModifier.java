@@ -5,7 +5,8 @@ import java.util.List;
 
 import net.sf.rails.algorithms.NetworkTrain;
 import net.sf.rails.algorithms.RevenueAdapter;
-import net.sf.rails.algorithms.RevenueDynamicModifier;
+import net.sf.rails.algorithms.RevenueRunSnapshot;
+import net.sf.rails.algorithms.RevenueSnapshotModifier;
 import net.sf.rails.algorithms.RevenueTrainRun;
 import net.sf.rails.common.LocalText;
 
@@ -18,7 +19,7 @@ import org.slf4j.LoggerFactory;
  * implementation allows several tgv trains
  * @author freystef
  */
-public class TGVModifier implements RevenueDynamicModifier {
+public class TGVModifier implements RevenueSnapshotModifier {
 
     final private String TGV_NAME = GameDef_1826.TGV;
 
@@ -69,6 +70,18 @@ public class TGVModifier implements RevenueDynamicModifier {
         return 0;
     }
 
+    @Override
+    public int predictionValue(RevenueRunSnapshot run) {
+        // nothing to do here
+        return 0;
+    }
+
+    @Override
+    public int evaluationValue(RevenueRunSnapshot run) {
+        // nothing to do here
+        return 0;
+    }
+
     @Override
     public void adjustOptimalRun(List<RevenueTrainRun> optimalRuns) {
         // nothing to do
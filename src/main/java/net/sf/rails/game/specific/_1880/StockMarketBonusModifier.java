@@ -3,7 +3,8 @@ package net.sf.rails.game.specific._1880;
 import java.util.List;
 
 import net.sf.rails.algorithms.RevenueAdapter;
-import net.sf.rails.algorithms.RevenueDynamicModifier;
+import net.sf.rails.algorithms.RevenueRunSnapshot;
+import net.sf.rails.algorithms.RevenueSnapshotModifier;
 import net.sf.rails.algorithms.RevenueTrainRun;
 import net.sf.rails.common.LocalText;
 import net.sf.rails.game.PublicCompany;
@@ -13,7 +14,7 @@ import net.sf.rails.game.PublicCompany;
  * implement as a dynamic ex-post modifier
  */
 
-public class StockMarketBonusModifier implements RevenueDynamicModifier {
+public class StockMarketBonusModifier implements RevenueSnapshotModifier {
 
     private int bonusValue;
 
@@ -38,6 +39,16 @@ public class StockMarketBonusModifier implements RevenueDynamicModifier {
         return bonusValue;
     }
 
+    @Override
+    public int predictionValue(RevenueRunSnapshot run) {
+        return bonusValue;
+    }
+
+    @Override
+    public int evaluationValue(RevenueRunSnapshot run) {
+        return bonusValue;
+    }
+
     @Override
     public void adjustOptimalRun(List<RevenueTrainRun> optimalRuns) {}
 
@@ -7,7 +7,8 @@ import net.sf.rails.algorithms.NetworkTrain;
 import net.sf.rails.algorithms.NetworkVertex;
 import net.sf.rails.algorithms.RevenueAdapter;
 import net.sf.rails.algorithms.RevenueBonus;
-import net.sf.rails.algorithms.RevenueDynamicModifier;
+import net.sf.rails.algorithms.RevenueRunSnapshot;
+import net.sf.rails.algorithms.RevenueSnapshotModifier;
 import net.sf.rails.algorithms.RevenueStaticModifier;
 import net.sf.rails.algorithms.RevenueTrainRun;
 import net.sf.rails.common.GameOption;
@@ -19,7 +20,7 @@ import net.sf.rails.game.RailsRoot;
 import net.sf.rails.game.Train;
 
 
-public class NamedTrainRevenueModifier implements RevenueStaticModifier, RevenueDynamicModifier, Configurable {
+public class NamedTrainRevenueModifier implements RevenueStaticModifier, RevenueSnapshotModifier, Configurable {
 
     private boolean dynamic;
     private List<RevenueBonus> bonuses;
@@ -125,6 +126,31 @@ public class NamedTrainRevenueModifier implements RevenueStaticModifier, Revenue
         return bonusValue;
     }
 
+    @Override
+    public int predictionValue(RevenueRunSnapshot run) {
+        return bonusMaximum;
+    }
+
+    @Override
+    public int evaluationValue(RevenueRunSnapshot run) {
+        int bonusValue = 0;
+        for (RevenueBonus bonus:bonuses) {
+            for (int trainId = 0; trainId < run.getNumberOfTrains(); trainId++) {
+                if (containsAllVertices(run, trainId, bonus.getVertices())) {
+                    bonusValue += bonus.getValue();
+                }
+            }
+        }
+        return bonusValue;
+    }
+
+    private boolean containsAllVertices(RevenueRunSnapshot run, int trainId, List<NetworkVertex> vertices) {
+        for (NetworkVertex vertex:vertices) {
+            if (!run.containsVertex(trainId, vertex)) return false;
+        }
+        return true;
+    }
+
     @Override
     public void adjustOptimalRun(List<RevenueTrainRun> optimalRuns) {
         // do nothing here (all is done by changing the evaluation value)
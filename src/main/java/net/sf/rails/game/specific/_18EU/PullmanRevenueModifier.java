@@ -6,12 +6,13 @@ import java.util.List;
 import net.sf.rails.algorithms.NetworkTrain;
 import net.sf.rails.algorithms.NetworkVertex;
 import net.sf.rails.algorithms.RevenueAdapter;
-import net.sf.rails.algorithms.RevenueDynamicModifier;
+import net.sf.rails.algorithms.RevenueRunSnapshot;
+import net.sf.rails.algorithms.RevenueSnapshotModifier;
 import net.sf.rails.algorithms.RevenueTrainRun;
 import net.sf.rails.common.LocalText;
 
 
-public class PullmanRevenueModifier implements RevenueDynamicModifier {
+public class PullmanRevenueModifier implements RevenueSnapshotModifier {
 
     private boolean hasPullman;
     private int maxValue;
@@ -54,6 +55,28 @@ public class PullmanRevenueModifier implements RevenueDynamicModifier {
         return maxValue;
     }
 
+    @Override
+    public int evaluationValue(RevenueRunSnapshot run) {
+        int maximum = 0;
+        for (int trainId = 0; trainId < run.getNumberOfTrains(); trainId++) {
+            for (int p = 0; p < run.getRunLength(trainId); p++) {
+                int element = run.getRunElement(trainId, p);
+                for (int v = 0; v < run.getNumberOfElementVertices(element); v++) {
+                    NetworkVertex vertex = run.getElementVertex(element, v);
+                    if (!vertex.isMajor()) continue;
+                    maximum = Math.max(maximum, vertex.getValue());
+                }
+            }
+            if (maximum == maxValue) break;
+        }
+        return maximum;
+    }
+
+    @Override
+    public int predictionValue(RevenueRunSnapshot run) {
+        return maxValue;
+    }
+
     public boolean providesOwnCalculateRevenue() {
         // does not
         return false;
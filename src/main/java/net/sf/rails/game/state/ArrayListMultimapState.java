@@ -3,6 +3,7 @@ package net.sf.rails.game.state;
 import java.util.List;
 
 import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.Multimap;
 
 public final class ArrayListMultimapState<K,V> extends State {
 
@@ -66,5 +67,20 @@ public final class ArrayListMultimapState<K,V> extends State {
         }
     }
 
+    @Override
+    Object createSnapshot() {
+        return ArrayListMultimap.create(map);
+    }
+
+    @Override
+    boolean restoreSnapshot(Object snapshot) {
+        @SuppressWarnings("unchecked")
+        Multimap<K,V> snapshotMap = (Multimap<K,V>) snapshot;
+        if (map.equals(snapshotMap)) return false;
+        map.clear();
+        map.putAll(snapshotMap);
+        return true;
+    }
+
     
 }
@@ -16,6 +16,9 @@ public final class ArrayListState<E> extends State implements Iterable<E> {
 
     private final ArrayList<E> list;
 
+    // immutable copy of the list, created on demand after each change
+    private ImmutableList<E> view;
+
     /**
      * Creates a prefilled array list state
      *
@@ -115,7 +118,7 @@ public final class ArrayListState<E> extends State implements Iterable<E> {
      * removes all elements
      */
     public void clear() {
-        for (E element : ImmutableList.copyOf(list)) {
+        for (E element : view()) {
             remove(element);
         }
     }
@@ -129,12 +132,15 @@ public final class ArrayListState<E> extends State implements Iterable<E> {
     }
 
     /**
-     * creates an immutable view of the list
+     * creates an immutable view of the list, the copy is reused until the list changes
      *
      * @return immutable copy
      */
     public ImmutableList<E> view() {
-        return ImmutableList.copyOf(list);
+        if (view == null) {
+            view = ImmutableList.copyOf(list);
+        }
+        return view;
     }
 
     public int size() {
@@ -160,7 +166,7 @@ public final class ArrayListState<E> extends State implements Iterable<E> {
      */
     @Override
     public Iterator<E> iterator() {
-        return List.copyOf(list).iterator();
+        return view().iterator();
     }
 
     @Override
@@ -174,6 +180,30 @@ public final class ArrayListState<E> extends State implements Iterable<E> {
         } else {
             list.remove(index);
         }
+        view = null;
+    }
+
+    /**
+     * The immutable view is used as snapshot, thus checkpoints share it as long as the list is unchanged
+     * (immutable copies do not allow null elements)
+     */
+    @Override
+    Object createSnapshot() {
+        if (list.contains(null)) {
+            return new ArrayList<>(list);
+        }
+        return view();
+    }
+
+    @Override
+    boolean restoreSnapshot(Object snapshot) {
+        @SuppressWarnings("unchecked")
+        List<E> snapshotList = (List<E>) snapshot;
+        if (list.equals(snapshotList)) return false;
+        list.clear();
+        list.addAll(snapshotList);
+        view = null;
+        return true;
     }
 
 
@@ -39,4 +39,17 @@ public final class BooleanState extends State {
     public void change(boolean value) {
         this.value = value;
     }
+
+    @Override
+    Object createSnapshot() {
+        return value;
+    }
+
+    @Override
+    boolean restoreSnapshot(Object snapshot) {
+        boolean snapshotValue = (Boolean) snapshot;
+        if (snapshotValue == value) return false;
+        value = snapshotValue;
+        return true;
+    }
 }
@@ -0,0 +1,62 @@
+package net.sf.rails.game.state;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * A ChangeBuffer collects the changes of the open ChangeSet.
+ * <p>
+ * It keeps track of the number of changes and of the affected states while changes are added,
+ * thus the ChangeStack can test for an empty ChangeSet and close it without copying the changes.
+ */
+final class ChangeBuffer {
+
+    private ArrayList<Change> changes;
+    private Set<State> states;
+
+    ChangeBuffer() {
+        clear();
+    }
+
+    void add(Change change) {
+        changes.add(change);
+        states.add(change.getState());
+    }
+
+    boolean isEmpty() {
+        return changes.isEmpty();
+    }
+
+    int size() {
+        return changes.size();
+    }
+
+    /**
+     * @return the distinct states affected by the buffered changes (in order of their first change)
+     */
+    Set<State> getStates() {
+        return Collections.unmodifiableSet(states);
+    }
+
+    /**
+     * Hands over the buffered changes to a new ChangeSet and restarts the buffer
+     */
+    ChangeSet close(ChangeAction action, int index) {
+        changes.trimToSize();
+        ChangeSet changeSet = new ChangeSet(Collections.unmodifiableList(changes),
+                Collections.unmodifiableSet(states), action, index);
+        clear();
+        return changeSet;
+    }
+
+    /**
+     * Discards the buffered changes
+     */
+    void clear() {
+        changes = new ArrayList<>();
+        states = new LinkedHashSet<>();
+    }
+
+}
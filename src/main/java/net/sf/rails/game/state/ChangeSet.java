@@ -1,12 +1,13 @@
 package net.sf.rails.game.state;
 
 import com.google.common.base.MoreObjects;
-import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 
 import static com.google.common.base.Preconditions.checkState;
 
@@ -22,12 +23,16 @@ public class ChangeSet {
     private static final Logger log = LoggerFactory.getLogger(ChangeSet.class);
 
     // static fields
-    private final List<Change> changes;
     private final ChangeAction action;
     private final int index;
 
-    ChangeSet(List<Change> changes, ChangeAction action, int index) {
+    // changes and states are released if the ChangeSet is compacted
+    private List<Change> changes;
+    private Set<State> states;
+
+    ChangeSet(List<Change> changes, Set<State> states, ChangeAction action, int index) {
         this.changes = changes;
+        this.states = states;
         this.action = action;
         this.index = index;
     }
@@ -37,12 +42,8 @@ public class ChangeSet {
      *
      * @return set of all states affected by Changes
      */
-    ImmutableSet<State> getStates() {
-        ImmutableSet.Builder<State> builder = new ImmutableSet.Builder<State>();
-        for (Change change : changes) {
-            builder.add(change.getState());
-        }
-        return builder.build();
+    Set<State> getStates() {
+        return states;
     }
 
     /**
@@ -51,8 +52,10 @@ public class ChangeSet {
      * @ŧhrows IllegalStateException if ChangeSet is still open
      */
     void reexecute() {
+        checkState(changes != null, "ChangeSet is compacted - cannot be redone");
         for (Change change : changes) {
             change.execute();
+            change.getState().informTriggersOnUndoRedo(change);
             log.debug("Redo: {}", change);
         }
     }
@@ -64,15 +67,30 @@ public class ChangeSet {
      */
     void unexecute() {
         checkState(index != -1, "ChangeSet is initial - cannot be undone");
+        checkState(changes != null, "ChangeSet is compacted - cannot be undone");
 
         // iterate reverse
         for (Change change : Lists.reverse(changes)) {
             log.debug("About to undo: {}", change);
             change.undo();
+            change.getState().informTriggersOnUndoRedo(change);
             log.debug("Undone: {}", change);
         }
     }
 
+    /**
+     * releases all Changes of the ChangeSet, afterwards it can neither be undone nor redone
+     * (used by the ChangeStack for ChangeSets covered by a checkpoint)
+     */
+    void compact() {
+        changes = null;
+        states = Collections.emptySet();
+    }
+
+    boolean isCompacted() {
+        return changes == null;
+    }
+
     /**
      * returns the ChangeAction associated with the ChangeSet
      *
@@ -1,16 +1,20 @@
 package net.sf.rails.game.state;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
 
 import java.util.Deque;
+import java.util.Map;
+import java.util.NavigableMap;
 import java.util.Set;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 
 public class ChangeStack {
 
@@ -24,18 +28,29 @@ public class ChangeStack {
 
     private ChangeReporter reporter; // assigned once
 
+    // checkpoint policy, see setCheckpointPolicy()
+    private int checkpointInterval = 0;
+    private int retainedChangeSets = 0;
+
+    // checkpoints by index, all ChangeSets up to compactedIndex are compacted
+    private final NavigableMap<Integer, Checkpoint> checkpoints = Maps.newTreeMap();
+    private int compactedIndex = 0;
+
+    // states created after the first checkpoint (until their first change) and their initial values
+    private final Set<State> newStates = Sets.newHashSet();
+    private final Map<State, Object> initialSnapshots = Maps.newHashMap();
+
     // dynamic fields
-    private ImmutableList.Builder<Change> changeBuilder;
+    private final ChangeBuffer changeBuffer = new ChangeBuffer();
 
     private ChangeStack(StateManager stateManager) {
         this.stateManager = stateManager;
         reporter = null;
-        changeBuilder = ImmutableList.builder();
     }
 
     /**
      * Creates a new ChangeStack
-     * It is initialized automatically, as there is an open ChangeBuilder
+     * It is initialized automatically, as there is an open ChangeBuffer
      */
     public static ChangeStack create(StateManager stateManager) {
         ChangeStack changeStack = new ChangeStack(stateManager);
@@ -51,6 +66,23 @@ public class ChangeStack {
         log.debug("Added ChangeReporter {}", reporter);
     }
 
+    /**
+     * Defines the checkpoints of the ChangeStack, should be set before the first ChangeSet is closed.
+     * <p>
+     * A checkpoint stores the values of all states, thus undo and redo to an index only
+     * has to undo or redo the ChangeSets between the index and the nearest checkpoint.
+     * @param checkpointInterval number of ChangeSets between two checkpoints, 0 disables checkpoints
+     * @param retainedChangeSets number of recent ChangeSets that keep their changes, 0 keeps all.
+     * Older ChangeSets are compacted, for those only the indices of checkpoints are reachable.
+     */
+    public void setCheckpointPolicy(int checkpointInterval, int retainedChangeSets) {
+        checkArgument(checkpointInterval >= 0 && retainedChangeSets >= 0, "Negative checkpoint policy");
+        checkArgument(retainedChangeSets == 0 || checkpointInterval > 0, "Compaction requires checkpoints");
+        this.checkpointInterval = checkpointInterval;
+        this.retainedChangeSets = retainedChangeSets;
+        log.debug("Checkpoint interval = {}, retained ChangeSets = {}", checkpointInterval, retainedChangeSets);
+    }
+
     /**
      * @return the previous (closed) changeSet, null if empty
      */
@@ -63,14 +95,27 @@ public class ChangeStack {
      */
     void addChange(Change change) {
         log.debug("ChangeSet: Add {}", change);
-        changeBuilder.add(change);
+        if (!newStates.isEmpty() && newStates.remove(change.getState())) {
+            initialSnapshots.put(change.getState(), change.getState().createSnapshot());
+        }
+        changeBuffer.add(change);
         // immediate execution and information of models
         change.execute();
         change.getState().informTriggers(change);
     }
 
+    /**
+     * Informs the ChangeStack about a new state
+     */
+    void registerState(State state) {
+        // restoring a checkpoint requires the initial value of states created afterwards
+        if (!checkpoints.isEmpty()) {
+            newStates.add(state);
+        }
+    }
+
     private boolean checkRequirementsForClose(ChangeAction action) {
-        if (changeBuilder.build().isEmpty() || action == null) {
+        if (changeBuffer.isEmpty() || action == null) {
             return false;
         } else {
             return true;
@@ -79,26 +124,64 @@ public class ChangeStack {
 
     public void close(ChangeAction action) {
         if (checkRequirementsForClose(action)) {
-            // this has to be done before the changeBuilder closes
             int index = undoStack.size() + 1;
-            ChangeSet closeSet = new ChangeSet(changeBuilder.build(), action, index);
+            // the changeBuffer hands over its changes and restarts
+            ChangeSet closeSet = changeBuffer.close(action, index);
             log.debug("<<< Closed changeSet {}", closeSet);
             undoStack.addLast(closeSet);
             redoStack.clear();
 
+            // checkpoints of the redo stack are obsolete
+            checkpoints.tailMap(index, true).clear();
+            compactedIndex = Math.min(compactedIndex, index - 1);
+            if (checkpointInterval > 0 && (checkpoints.isEmpty() || index % checkpointInterval == 0)) {
+                createCheckpoint(index);
+            }
+
             if (reporter != null) {
                 reporter.updateOnClose();
             }
 
-            // restart builders
-            restart();
             // inform direct and indirect observers
             updateObservers(closeSet.getStates());
         }
     }
 
     private void restart() {
-        changeBuilder = ImmutableList.builder();
+        changeBuffer.clear();
+    }
+
+    private void createCheckpoint(int index) {
+        Checkpoint checkpoint = Checkpoint.create(index, stateManager.getAllStates());
+        checkpoints.put(index, checkpoint);
+        log.debug("Created {}", checkpoint);
+        if (retainedChangeSets > 0) {
+            compact(index - retainedChangeSets);
+        }
+    }
+
+    /**
+     * Compacts all ChangeSets up to the latest checkpoint at or before the index
+     */
+    private void compact(int index) {
+        Integer checkpointIndex = checkpoints.floorKey(index);
+        if (checkpointIndex == null || checkpointIndex <= compactedIndex) return;
+        for (ChangeSet changeSet : undoStack) {
+            if (changeSet.getIndex() > checkpointIndex) break;
+            if (changeSet.getIndex() > compactedIndex) {
+                changeSet.compact();
+            }
+        }
+        log.debug("Compacted ChangeSets from {} to {}", compactedIndex + 1, checkpointIndex);
+        compactedIndex = checkpointIndex;
+    }
+
+    /**
+     * @return true if the index can be reached by undo or redo,
+     * before the compacted ChangeSets only the indices of checkpoints are reachable
+     */
+    public boolean isIndexReachable(int index) {
+        return index >= compactedIndex || checkpoints.containsKey(index);
     }
 
 
@@ -110,7 +193,7 @@ public class ChangeStack {
 
     // is undo possible (protect first index)
     public boolean isUndoPossible() {
-        return (!undoStack.isEmpty() && undoStack.size() != 1);
+        return (!undoStack.isEmpty() && undoStack.size() != 1 && isIndexReachable(undoStack.size() - 1));
     }
 
     public boolean isUndoPossible(ChangeActionOwner owner) {
@@ -123,13 +206,7 @@ public class ChangeStack {
      */
     public void undo() {
         checkState(isUndoPossible(), "Undo not possible");
-        ChangeSet undoSet = executeUndo();
-        restart();
-        updateObservers(undoSet.getStates());
-
-        if (reporter != null) {
-            reporter.updateAfterUndoRedo();
-        }
+        moveTo(undoStack.size() - 1);
     }
 
     /**
@@ -138,16 +215,9 @@ public class ChangeStack {
      */
 
     public void undo(int index) {
-        checkState(isUndoPossible() && index < undoStack.size() , "Undo not possible");
-        ImmutableSet.Builder<State> states = ImmutableSet.builder();
-        while (undoStack.size() > index) {
-            states.addAll(executeUndo().getStates());
-        }
-        restart();
-        updateObservers(states.build());
-        if (reporter != null) {
-            reporter.updateAfterUndoRedo();
-        }
+        checkState(undoStack.size() > 1 && index < undoStack.size() && isIndexReachable(index),
+                "Undo not possible");
+        moveTo(index);
     }
 
     private ChangeSet executeUndo() {
@@ -165,7 +235,7 @@ public class ChangeStack {
 
 
     public boolean isRedoPossible() {
-        return (!redoStack.isEmpty());
+        return (!redoStack.isEmpty() && isIndexReachable(undoStack.size() + 1));
     }
 
     public boolean isRedoPossible(ChangeActionOwner owner) {
@@ -179,20 +249,28 @@ public class ChangeStack {
      */
     public void redo() {
         checkState(isRedoPossible(), "Redo not possible");
-
-        ChangeSet redoSet = executeRedo();
-        restart();
-        updateObservers(redoSet.getStates());
-        if (reporter != null) {
-            reporter.updateAfterUndoRedo();
-        }
+        moveTo(undoStack.size() + 1);
     }
 
     public void redo(int index) {
-        checkState(index > undoStack.size() && index <= undoStack.size() + redoStack.size(),
-                "Redo not possible");
+        checkState(index > undoStack.size() && index <= undoStack.size() + redoStack.size()
+                && isIndexReachable(index), "Redo not possible");
+        moveTo(index);
+    }
 
+    /**
+     * Moves to the index by undo or redo of ChangeSets, starting either from the current index
+     * or from the nearest checkpoint if this requires less ChangeSets to undo or redo
+     */
+    private void moveTo(int index) {
         ImmutableSet.Builder<State> states = ImmutableSet.builder();
+        Checkpoint checkpoint = selectCheckpoint(index);
+        if (checkpoint != null) {
+            states.addAll(restoreCheckpoint(checkpoint));
+        }
+        while (undoStack.size() > index) {
+            states.addAll(executeUndo().getStates());
+        }
         while (undoStack.size() < index) {
             states.addAll(executeRedo().getStates());
         }
@@ -203,6 +281,75 @@ public class ChangeStack {
         }
     }
 
+    /**
+     * @return the checkpoint to start from, null to start from the current index
+     */
+    private Checkpoint selectCheckpoint(int index) {
+        int current = undoStack.size();
+        int bestDistance = Integer.MAX_VALUE;
+        if (isPathAvailable(current, index)) {
+            bestDistance = Math.abs(current - index);
+        }
+        Checkpoint bestCheckpoint = null;
+        for (Map.Entry<Integer, Checkpoint> entry : Lists.newArrayList(
+                checkpoints.floorEntry(index), checkpoints.ceilingEntry(index))) {
+            if (entry == null || !isPathAvailable(entry.getKey(), index)) continue;
+            // a restore is considered as expensive as the ChangeSets of a checkpoint interval
+            int distance = checkpointInterval + Math.abs(entry.getKey() - index);
+            if (distance < bestDistance) {
+                bestDistance = distance;
+                bestCheckpoint = entry.getValue();
+            }
+        }
+        checkState(bestDistance != Integer.MAX_VALUE, "Index %s not reachable", index);
+        return bestCheckpoint;
+    }
+
+    /**
+     * @return true if no ChangeSet between the two indices is compacted
+     */
+    private boolean isPathAvailable(int from, int to) {
+        return from == to || Math.min(from, to) >= compactedIndex;
+    }
+
+    /**
+     * Restores the values of all states at the checkpoint and moves the ChangeSets
+     * between the stacks accordingly
+     * @return the states whose values have changed
+     */
+    private Set<State> restoreCheckpoint(Checkpoint checkpoint) {
+        log.debug("Restore {}", checkpoint);
+        ImmutableSet<State> previousStates = stateManager.getAllStates();
+        Set<State> changed = checkpoint.restore();
+
+        // states created after the checkpoint are reset to their initial values
+        Set<State> currentStates = stateManager.getAllStates();
+        for (State state : previousStates) {
+            if (!currentStates.contains(state) && initialSnapshots.containsKey(state)
+                    && state.restoreSnapshot(initialSnapshots.get(state))) {
+                changed.add(state);
+            }
+        }
+
+        while (undoStack.size() > checkpoint.getIndex()) {
+            redoStack.addFirst(undoStack.pollLast());
+            if (reporter != null) {
+                reporter.informOnUndo();
+            }
+        }
+        while (undoStack.size() < checkpoint.getIndex()) {
+            undoStack.addLast(redoStack.pollFirst());
+            if (reporter != null) {
+                reporter.informOnRedo();
+            }
+        }
+
+        for (State state : changed) {
+            state.informTriggersOnRestore();
+        }
+        return changed;
+    }
+
     private ChangeSet executeRedo() {
         ChangeSet redoSet = redoStack.pollFirst();
         log.debug("RedoSet = {}", redoSet);
@@ -0,0 +1,60 @@
+package net.sf.rails.game.state;
+
+import java.util.Collection;
+import java.util.Set;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.collect.Sets;
+
+/**
+ * A Checkpoint stores the values of all states at an index of the ChangeStack.
+ * <p>
+ * Checkpoints allow the ChangeStack to jump to an index without undoing or redoing
+ * all ChangeSets in between and to compact old ChangeSets.
+ */
+final class Checkpoint {
+
+    private final int index;
+    private final State[] states;
+    private final Object[] snapshots;
+
+    private Checkpoint(int index, Collection<State> states) {
+        this.index = index;
+        this.states = states.toArray(new State[0]);
+        this.snapshots = new Object[this.states.length];
+        for (int i = 0; i < this.states.length; i++) {
+            snapshots[i] = this.states[i].createSnapshot();
+        }
+    }
+
+    static Checkpoint create(int index, Collection<State> states) {
+        return new Checkpoint(index, states);
+    }
+
+    int getIndex() {
+        return index;
+    }
+
+    /**
+     * Restores the values of all states of the checkpoint
+     * @return the states whose values have changed
+     */
+    Set<State> restore() {
+        Set<State> changed = Sets.newHashSet();
+        for (int i = 0; i < states.length; i++) {
+            if (states[i].restoreSnapshot(snapshots[i])) {
+                changed.add(states[i]);
+            }
+        }
+        return changed;
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("index", index)
+                .add("states", states.length)
+                .toString();
+    }
+
+}
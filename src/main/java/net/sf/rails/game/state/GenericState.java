@@ -67,4 +67,18 @@ public final class GenericState<E> extends State {
         this.object = object;
     }
 
+    @Override
+    Object createSnapshot() {
+        return object;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    boolean restoreSnapshot(Object snapshot) {
+        // identical to set(): objects are compared by identity
+        if (snapshot == object) return false;
+        object = (E) snapshot;
+        return true;
+    }
+
 }
@@ -12,6 +12,9 @@ import com.google.common.collect.ImmutableSet;
 public final class HashBiMapState<K,V> extends MapState<K,V> {
     
     private HashBiMap<K,V> map;
+
+    // immutable copy of the values, created on demand after each change
+    private ImmutableSet<V> values;
     
     private HashBiMapState(Item parent, String id, Map<K,V> map) {
         super(parent, id);
@@ -47,13 +50,18 @@ public final class HashBiMapState<K,V> extends MapState<K,V> {
     // TODO: Check if value is already in map
     //   public V put(K key, V value) 
 
+    @Override
+    protected ImmutableBiMap<K,V> createView() {
+        return ImmutableBiMap.copyOf(map);
+    }
+
     /**
      * creates an immutable copy of the biMap
      * @return immutable version of the biMap
      */
     @Override
     public ImmutableBiMap<K,V> view() {
-        return ImmutableBiMap.copyOf(map);
+        return (ImmutableBiMap<K,V>) super.view();
     }
 
     /**
@@ -62,7 +70,16 @@ public final class HashBiMapState<K,V> extends MapState<K,V> {
      */
     @Override
     public ImmutableSet<V> viewValues() {
-        return ImmutableSet.copyOf(map.values());
+        if (values == null) {
+            values = ImmutableSet.copyOf(map.values());
+        }
+        return values;
+    }
+
+    @Override
+    void clearViews() {
+        super.clearViews();
+        values = null;
     }
     
 }
@@ -15,6 +15,9 @@ public final class HashMapState<K,V> extends MapState<K,V> {
     
     private final HashMap<K,V> map;
 
+    // immutable copy of the values, created on demand after each change
+    private ImmutableList<V> values;
+
     private HashMapState(Item parent, String id, Map<K,V> map) {
         super(parent, id);
         if (map == null) {
@@ -52,6 +55,15 @@ public final class HashMapState<K,V> extends MapState<K,V> {
      */
     @Override
     public ImmutableList<V> viewValues() {
-        return ImmutableList.copyOf(map.values());
+        if (values == null) {
+            values = ImmutableList.copyOf(map.values());
+        }
+        return values;
+    }
+
+    @Override
+    void clearViews() {
+        super.clearViews();
+        values = null;
     }
 }
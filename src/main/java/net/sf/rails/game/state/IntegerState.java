@@ -49,6 +49,19 @@ public final class IntegerState extends State {
         this.value = value;
     }
 
+    @Override
+    Object createSnapshot() {
+        return value;
+    }
+
+    @Override
+    boolean restoreSnapshot(Object snapshot) {
+        int snapshotValue = (Integer) snapshot;
+        if (snapshotValue == value) return false;
+        value = snapshotValue;
+        return true;
+    }
+
     public String toString() {
         return Integer.toString(value);
     }
@@ -2,6 +2,7 @@ package net.sf.rails.game.state;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
 
@@ -16,12 +17,31 @@ import com.google.common.collect.Sets;
 
 public abstract class MapState<K,V> extends State implements Iterable<V> {
 
+    // immutable copies of the map and its keys, created on demand after each change
+    private ImmutableMap<K,V> view;
+    private ImmutableSet<K> keySet;
+
     protected MapState(Item parent, String id) {
         super(parent, id);
     }
     
     protected abstract Map<K,V> getMap();
 
+    /**
+     * @return immutable copy of getMap()
+     */
+    protected ImmutableMap<K,V> createView() {
+        return ImmutableMap.copyOf(getMap());
+    }
+
+    /**
+     * Discards the immutable copies after a change
+     */
+    void clearViews() {
+        view = null;
+        keySet = null;
+    }
+
     /**
      * Add key,value pair to getMap()
      * @param key for mapping
@@ -91,7 +111,7 @@ public abstract class MapState<K,V> extends State implements Iterable<V> {
      * removes all mappings from the getMap()
      */
     public void clear() {
-        for (K key : ImmutableSet.copyOf(getMap().keySet())) {
+        for (K key : viewKeySet()) {
             remove (key);
         }
     }
@@ -125,11 +145,14 @@ public abstract class MapState<K,V> extends State implements Iterable<V> {
     }
     
     /**
-     * creates an immutable copy of the getMap()
+     * creates an immutable copy of the getMap(), the copy is reused until the map changes
      * @return immutable version of the getMap()
      */
     public ImmutableMap<K,V> view() {
-        return ImmutableMap.copyOf(getMap());
+        if (view == null) {
+            view = createView();
+        }
+        return view;
     }
     
     /**
@@ -137,7 +160,10 @@ public abstract class MapState<K,V> extends State implements Iterable<V> {
      * @return immutable keyset of the getMap()
      */
     public ImmutableSet<K> viewKeySet() {
-        return ImmutableSet.copyOf(getMap().keySet());
+        if (keySet == null) {
+            keySet = ImmutableSet.copyOf(getMap().keySet());
+        }
+        return keySet;
     }
     
     public abstract ImmutableCollection<V> viewValues();
@@ -152,6 +178,30 @@ public abstract class MapState<K,V> extends State implements Iterable<V> {
         } else {
             getMap().put(key, value);
         }
+        clearViews();
+    }
+
+    /**
+     * The immutable view is used as snapshot, thus checkpoints share it as long as the map is unchanged
+     * (immutable copies do not allow null keys or values)
+     */
+    @Override
+    Object createSnapshot() {
+        if (getMap().containsKey(null) || getMap().containsValue(null)) {
+            return new HashMap<>(getMap());
+        }
+        return view();
+    }
+
+    @Override
+    boolean restoreSnapshot(Object snapshot) {
+        @SuppressWarnings("unchecked")
+        Map<K,V> snapshotMap = (Map<K,V>) snapshot;
+        if (getMap().equals(snapshotMap)) return false;
+        getMap().clear();
+        getMap().putAll(snapshotMap);
+        clearViews();
+        return true;
     }
     
     @Override
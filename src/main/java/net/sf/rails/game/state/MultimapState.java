@@ -3,10 +3,12 @@ package net.sf.rails.game.state;
 import java.util.Iterator;
 import java.util.Set;
 
+import com.google.common.collect.HashMultimap;
 import com.google.common.collect.ImmutableCollection;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMultimap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSetMultimap;
 import com.google.common.collect.Multimap;
 
 /**
@@ -14,12 +16,33 @@ import com.google.common.collect.Multimap;
  */
 public abstract class MultimapState<K,V> extends State implements Iterable<V> {
     
+    // immutable copies of the multimap, its keys and values, created on demand after each change
+    private ImmutableMultimap<K,V> view;
+    private ImmutableSet<K> keySet;
+    private ImmutableList<V> values;
+
     protected MultimapState(Item parent, String id) {
         super(parent, id);
     }
     
     // Helper function to return the Multimap from the classes below
     protected abstract Multimap<K,V> getMap();
+
+    /**
+     * @return immutable copy of getMap(), a SetMultimap as all implementations store distinct key-value pairs
+     */
+    protected ImmutableMultimap<K,V> createView() {
+        return ImmutableSetMultimap.copyOf(getMap());
+    }
+
+    /**
+     * Discards the immutable copies after a change
+     */
+    void clearViews() {
+        view = null;
+        keySet = null;
+        values = null;
+    }
     
     /**
      * Stores a key-value pair in the multimap
@@ -71,7 +94,10 @@ public abstract class MultimapState<K,V> extends State implements Iterable<V> {
     }
     
     public ImmutableSet<K> keySet() {
-        return ImmutableSet.copyOf(getMap().keySet());
+        if (keySet == null) {
+            keySet = ImmutableSet.copyOf(getMap().keySet());
+        }
+        return keySet;
     }
 
     /**
@@ -79,22 +105,28 @@ public abstract class MultimapState<K,V> extends State implements Iterable<V> {
      */
     public ImmutableCollection<V> values() {
         // ImmutableCollection.copyOf does not exist, uses List instead
-        return ImmutableList.copyOf(getMap().values());
+        if (values == null) {
+            values = ImmutableList.copyOf(getMap().values());
+        }
+        return values;
     }
     
     /**
-     * creates an immutable copy of the Multimap
+     * creates an immutable copy of the Multimap, the copy is reused until the multimap changes
      * @return immutable version of the Multimap
      */
     public ImmutableMultimap<K,V> view() {
-        return ImmutableMultimap.copyOf(getMap());
+        if (view == null) {
+            view = createView();
+        }
+        return view;
     }
     
     /**
      * @return an iterator over all values
      */
     public Iterator<V> iterator() {
-        return ImmutableList.copyOf(getMap().values()).iterator();
+        return values().iterator();
     }
     
     @Override
@@ -108,5 +140,29 @@ public abstract class MultimapState<K,V> extends State implements Iterable<V> {
         } else {
             getMap().remove(key, value);
         }
+        clearViews();
+    }
+
+    /**
+     * The immutable view is used as snapshot, thus checkpoints share it as long as the multimap is unchanged
+     * (immutable copies do not allow null keys or values)
+     */
+    @Override
+    Object createSnapshot() {
+        if (getMap().containsKey(null) || getMap().containsValue(null)) {
+            return HashMultimap.create(getMap());
+        }
+        return view();
+    }
+
+    @Override
+    boolean restoreSnapshot(Object snapshot) {
+        @SuppressWarnings("unchecked")
+        Multimap<K,V> snapshotMap = (Multimap<K,V>) snapshot;
+        if (getMap().equals(snapshotMap)) return false;
+        getMap().clear();
+        getMap().putAll(snapshotMap);
+        clearViews();
+        return true;
     }
 }
@@ -9,4 +9,13 @@ public interface Observer{
     
     public Observable getObservable();
     
+    /**
+     * Observers that are part of the game engine have to be updated immediately after each change.
+     * All others (e.g. UI elements) can be updated deferred, see {@link StateManager#setUpdateExecutor}.
+     * Default is a deferred update.
+     */
+    default boolean requiresImmediateUpdate() {
+        return false;
+    }
+    
 }
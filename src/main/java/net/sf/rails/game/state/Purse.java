@@ -46,6 +46,19 @@ public class Purse extends Wallet<Currency> {
         amount += value;
     }
 
+    @Override
+    Object createSnapshot() {
+        return amount;
+    }
+
+    @Override
+    boolean restoreSnapshot(Object snapshot) {
+        int snapshotAmount = (Integer) snapshot;
+        if (snapshotAmount == amount) return false;
+        amount = snapshotAmount;
+        return true;
+    }
+
     @Override
     public String toText() {
         return currency.format(amount);
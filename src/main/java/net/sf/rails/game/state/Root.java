@@ -3,6 +3,8 @@ package net.sf.rails.game.state;
 import static com.google.common.base.Preconditions.checkArgument;
 
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.google.common.collect.Lists;
 /**
@@ -14,7 +16,12 @@ public class Root extends Context {
    private final static String TEXT_ID = "root";
 
    private StateManager stateManager;
-   private HashMapState<String, Item> items;
+
+   // items created during the setup cannot be removed by undo, thus they are not stored as state
+   private final Map<String, Item> setupItems = new ConcurrentHashMap<>();
+   // items created or removed afterwards
+   private HashMapState<String, Item> createdItems;
+   private HashSetState<Item> removedItems;
 
    // only used during creation
    private boolean delayItems = true;
@@ -42,9 +49,10 @@ public class Root extends Context {
    }
 
    private void initDelayedItems() {
-       items = HashMapState.create(this, "items");
+       createdItems = HashMapState.create(this, "createdItems");
+       removedItems = HashSetState.create(this, "removedItems");
        for (Item item: delayedItems) {
-           items.put(item.getFullURI(), item);
+           setupItems.put(item.getFullURI(), item);
        }
        delayItems = false;
    }
@@ -103,15 +111,20 @@ public class Root extends Context {
    @Override
    public Item locate(String uri) {
        // first try as fullURI
-       Item item = items.get(uri);
+       Item item = locateFullURI(uri);
        if (item != null) return item;
        // otherwise as local
-       return items.get(Item.SEP + uri);
+       return locateFullURI(Item.SEP + uri);
    }
 
    // used by other context
    Item locateFullURI(String uri) {
-       return items.get(uri);
+       Item item = setupItems.get(uri);
+       if (item != null && (removedItems.isEmpty() || !removedItems.contains(item))) {
+           return item;
+       }
+       // a removed setup item might have been replaced by an item with the same URI
+       return createdItems.get(uri);
    }
 
    @Override
@@ -123,21 +136,33 @@ public class Root extends Context {
        }
 
        // check if it already exists
-       checkArgument(!items.containsKey(item.getFullURI()),
+       checkArgument(locateFullURI(item.getFullURI()) == null,
                "Root already contains item with identical fullURI = " + item.getFullURI());
 
        // all preconditions ok => add
-       items.put(item.getFullURI(), item);
+       if (stateManager.isSetup()) {
+           setupItems.put(item.getFullURI(), item);
+       } else if (removedItems.contains(item)) {
+           removedItems.remove(item);
+       } else {
+           createdItems.put(item.getFullURI(), item);
+       }
    }
 
    @Override
    void removeItem(Item item) {
        // check if it already exists
-       checkArgument(items.containsKey(item.getFullURI()),
+       checkArgument(locateFullURI(item.getFullURI()) != null,
                "Root does not contain item with that fullURI = " + item.getFullURI());
 
        // all preconditions ok => remove
-       items.remove(item.getFullURI());
+       if (stateManager.isSetup()) {
+           setupItems.remove(item.getFullURI());
+       } else if (setupItems.get(item.getFullURI()) == item) {
+           removedItems.add(item);
+       } else {
+           createdItems.remove(item.getFullURI());
+       }
    }
 
    @Override
@@ -1,5 +1,6 @@
 package net.sf.rails.game.state;
 
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Set;
 
@@ -7,11 +8,21 @@ import com.google.common.collect.ImmutableSet;
 
 public abstract class SetState<E> extends State implements Iterable<E>  {
     
+    // immutable copy of the set, created on demand after each change
+    private ImmutableSet<E> view;
+
     protected SetState(Item parent, String id) {
         super(parent, id);
     }
     
     protected abstract Set<E> getSet();
+
+    /**
+     * @return immutable copy of getSet()
+     */
+    protected ImmutableSet<E> createView() {
+        return ImmutableSet.copyOf(getSet());
+    }
     
     /**
      * add element
@@ -48,16 +59,19 @@ public abstract class SetState<E> extends State implements Iterable<E>  {
      * removes all elements
      */
     public void clear() {
-        for (E element:ImmutableSet.copyOf(getSet())) {
+        for (E element:view()) {
             remove(element);
         }
     }
 
     /**
-     * @return immutable view of getSet()
+     * @return immutable view of getSet(), the copy is reused until the set changes
      */
     public ImmutableSet<E> view() {
-        return ImmutableSet.copyOf(getSet());
+        if (view == null) {
+            view = createView();
+        }
+        return view;
     }
 
     /**
@@ -89,6 +103,30 @@ public abstract class SetState<E> extends State implements Iterable<E>  {
         } else {
             getSet().remove(element);
         }
+        view = null;
+    }
+
+    /**
+     * The immutable view is used as snapshot, thus checkpoints share it as long as the set is unchanged
+     * (immutable copies do not allow null elements)
+     */
+    @Override
+    Object createSnapshot() {
+        if (getSet().contains(null)) {
+            return new HashSet<>(getSet());
+        }
+        return view();
+    }
+
+    @Override
+    boolean restoreSnapshot(Object snapshot) {
+        @SuppressWarnings("unchecked")
+        Set<E> snapshotSet = (Set<E>) snapshot;
+        if (getSet().equals(snapshotSet)) return false;
+        getSet().clear();
+        getSet().addAll(snapshotSet);
+        view = null;
+        return true;
     }
 
 }
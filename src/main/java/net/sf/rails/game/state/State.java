@@ -29,5 +29,30 @@ public abstract class State extends Observable {
     void informTriggers(Change change) {
         this.getStateManager().informTriggers(this, change);
     }
+
+    void informTriggersOnUndoRedo(Change change) {
+        this.getStateManager().informTriggersOnUndoRedo(this, change);
+    }
+
+    void informTriggersOnRestore() {
+        this.getStateManager().informTriggersOnRestore(this);
+    }
+
+    /**
+     * Creates a copy of the current value, used for the checkpoints of the ChangeStack
+     * The snapshot must not be changed afterwards.
+     * Default is no value (for states without changes)
+     */
+    Object createSnapshot() {
+        return null;
+    }
+
+    /**
+     * Sets the value to a snapshot created by createSnapshot() (without creating a change)
+     * @return true if the value has changed
+     */
+    boolean restoreSnapshot(Object snapshot) {
+        return false;
+    }
    
 }
\ No newline at end of file
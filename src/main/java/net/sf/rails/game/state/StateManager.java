@@ -3,9 +3,13 @@ package net.sf.rails.game.state;
 import static com.google.common.base.Preconditions.checkArgument;
 
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -15,6 +19,8 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.MoreExecutors;
 
 public final class StateManager extends Manager {
 
@@ -22,7 +28,13 @@ public final class StateManager extends Manager {
 
     private final ChangeStack changeStack;
 
-    private final HashSetState<State> allStates = HashSetState.create(this, "allStates");
+    // states created during the setup cannot be removed by undo, thus they are not stored as state
+    private final Set<State> setupStates = ConcurrentHashMap.newKeySet();
+    // states created afterwards
+    private final HashSetState<State> createdStates = HashSetState.create(this, "createdStates");
+    // cached copy of all states, valid as long as the view of createdStates is unchanged
+    private ImmutableSet<State> allStates;
+    private ImmutableSet<State> allStatesCreated;
     private final HashMultimapState<Observable, Model> models = HashMultimapState.create(this, "models");
     private final HashMultimapState<Observable, Triggerable> triggers = HashMultimapState.create(this, "triggers");
 
@@ -31,6 +43,34 @@ public final class StateManager extends Manager {
     // gui eleemnts do not have a state of their own (with respect to the game engine)
     private final HashMultimap<Observable, Observer> observers = HashMultimap.create();
 
+    // observables with pending updates of deferred observers, in the order of their first change
+    private final Set<Observable> pendingUpdates = Sets.newLinkedHashSet();
+    private Executor updateExecutor = MoreExecutors.directExecutor();
+
+    // cached models to update for each observable, derived from models
+    private final Map<Observable, ImmutableList<Model>> modelsToUpdate = Maps.newHashMap();
+    // cached rank of each model in a topological order of all models, null if it has to be recalculated
+    private Map<Model, Integer> modelRanks;
+    private int firstRank, nextRank;
+
+    // models are changed without addModel or removeModel by undo and redo
+    private final Triggerable modelsTrigger = new Triggerable() {
+        @Override
+        public void triggered(Observable observable, Change change) {
+            // addModel and removeModel update the cached order themselves
+        }
+
+        @Override
+        public void triggeredOnUndoRedo(Observable observable, Change change) {
+            invalidateModelOrder();
+        }
+
+        @Override
+        public void triggeredOnRestore(Observable observable) {
+            invalidateModelOrder();
+        }
+    };
+
     // initialized later in init()
     private PortfolioManager portfolioManager;
     private WalletManager walletManager;
@@ -46,8 +86,9 @@ public final class StateManager extends Manager {
 
     void init() {
         // manually register embedded states
-        registerState(allStates);
+        registerState(createdStates);
         registerState(models);
+        addTrigger(modelsTrigger, models);
         // create managers
         portfolioManager = PortfolioManager.create(this, "Portfolios");
         walletManager = WalletManager.create(this, "walletManager");
@@ -57,7 +98,20 @@ public final class StateManager extends Manager {
      * Register states (usually called automatically at state creation)
      */
     void registerState(State state) {
-        allStates.add(state);
+        if (isSetup()) {
+            setupStates.add(state);
+            allStates = null;
+        } else {
+            createdStates.add(state);
+        }
+        changeStack.registerState(state);
+    }
+
+    /**
+     * @return true until the first ChangeSet is closed, as the changes before cannot be undone
+     */
+    boolean isSetup() {
+        return changeStack.getCurrentIndex() == 0;
     }
 
 //    /**
@@ -72,7 +126,12 @@ public final class StateManager extends Manager {
      * set of all states stored in the StateManager
      */
     ImmutableSet<State> getAllStates() {
-        return allStates.view();
+        ImmutableSet<State> created = createdStates.view();
+        if (allStates == null || allStatesCreated != created) {
+            allStates = ImmutableSet.<State>builder().addAll(setupStates).addAll(created).build();
+            allStatesCreated = created;
+        }
+        return allStates;
     }
 
     /**
@@ -105,11 +164,19 @@ public final class StateManager extends Manager {
      * @param observable the observable to monitor
      */
     void addModel(Model model, Observable observable) {
-        models.put(observable, model);
+        if (models.put(observable, model)) {
+            modelsToUpdate.clear();
+            updateModelRanks(model, observable);
+        }
     }
 
     boolean removeModel(Model model, Observable observable) {
-        return models.remove(observable, model);
+        if (models.remove(observable, model)) {
+            // the ranks of the remaining models are still in topological order
+            modelsToUpdate.clear();
+            return true;
+        }
+        return false;
     }
 
     ImmutableSet<Model> getModels(Observable observable) {
@@ -133,48 +200,105 @@ public final class StateManager extends Manager {
         return triggers.get(observable);
     }
 
+    // the reasons to inform triggers
+    private enum TriggerReason {CHANGE, UNDO_REDO, RESTORE}
+
     void informTriggers(State state, Change change) {
+        informTriggers(state, change, TriggerReason.CHANGE);
+    }
+
+    /**
+     * Informs triggers about a change that was undone or redone by the ChangeStack
+     */
+    void informTriggersOnUndoRedo(State state, Change change) {
+        informTriggers(state, change, TriggerReason.UNDO_REDO);
+    }
+
+    /**
+     * Informs triggers about a state whose value was restored by a checkpoint of the ChangeStack
+     */
+    void informTriggersOnRestore(State state) {
+        informTriggers(state, null, TriggerReason.RESTORE);
+    }
+
+    private void informTriggers(State state, Change change, TriggerReason reason) {
 
         // Inform direct triggers
         for (Triggerable t:getTriggers(state)) {
-            t.triggered(state, change);
+            trigger(t, state, change, reason);
             log.debug("State {} sends change to Trigger {}", state, t);
         }
 
-        // check if there are models
-        ImmutableSet<Model> initModels = getModels(state);
-        if (initModels.isEmpty()) return;
-        ImmutableList<Model> allModels = getModelsToUpdate(initModels);
-
         // Inform indirect triggers
+        ImmutableList<Model> allModels = getModelsToUpdate(state);
         for (Model m:allModels) {
             for (Triggerable t:getTriggers(m)) {
-                t.triggered(m, change);
+                trigger(t, m, change, reason);
                 log.debug("Model {} sends change to Trigger {}", m, t);
             }
         }
     }
 
+    private static void trigger(Triggerable t, Observable observable, Change change, TriggerReason reason) {
+        switch (reason) {
+            case CHANGE:
+                t.triggered(observable, change);
+                break;
+            case UNDO_REDO:
+                t.triggeredOnUndoRedo(observable, change);
+                break;
+            case RESTORE:
+                t.triggeredOnRestore(observable);
+                break;
+        }
+    }
+
     /**
      * A set of observables is given as input
      * and then calculates all observer to update in the correct sequence
      *
-     * It uses a topological sort based on DFS
+     * The models to update are cached for each observable and merged
+     * according to a cached topological order of all models
      *
      * @param observables that have been updated
      * @return sorted list of all models to be updated
      */
     ImmutableList<Model> getModelsToUpdate(Collection<? extends Observable> observables) {
-        // Topological sort
-        // Initialize (we do not use WHITE explicitly, but implicit)
-        final Map<Observable, Color> colors = Maps.newHashMap();
-        final LinkedList<Model> topoList = Lists.newLinkedList();
+        if (observables.size() == 1) {
+            return getModelsToUpdate(observables.iterator().next());
+        }
+        Set<Model> allModels = Sets.newHashSet();
+        for (Observable o: observables) {
+            allModels.addAll(getModelsToUpdate(o));
+        }
+        if (allModels.isEmpty()) return ImmutableList.of();
 
-        // For all states
-        for (Observable s: observables) {
-            topoSort(s, colors, topoList);
+        final Map<Model, Integer> ranks = getModelRanks();
+        List<Model> sorted = Lists.newArrayList(allModels);
+        sorted.sort(Comparator.comparing(m -> ranks.getOrDefault(m, Integer.MAX_VALUE)));
+        return ImmutableList.copyOf(sorted);
+    }
+
+    /**
+     * @return sorted list of all models to be updated if the observable is updated
+     * @throws IllegalStateException if the models form a cycle
+     */
+    private ImmutableList<Model> getModelsToUpdate(Observable observable) {
+        ImmutableList<Model> allModels = modelsToUpdate.get(observable);
+        if (allModels == null) {
+            if (models.containsKey(observable)) {
+                // Topological sort based on DFS
+                // Initialize (we do not use WHITE explicitly, but implicit)
+                final Map<Observable, Color> colors = Maps.newHashMap();
+                final LinkedList<Model> topoList = Lists.newLinkedList();
+                topoSort(observable, colors, topoList);
+                allModels = ImmutableList.copyOf(topoList);
+            } else {
+                allModels = ImmutableList.of();
+            }
+            modelsToUpdate.put(observable, allModels);
         }
-        return ImmutableList.copyOf(topoList);
+        return allModels;
     }
 
     private static enum Color {WHITE, GREY, BLACK};
@@ -191,29 +315,130 @@ public final class StateManager extends Manager {
         if (v instanceof Model) topoList.addFirst((Model)v);
     }
 
+    /**
+     * @return the rank of all models in a topological order, models on cycles are ranked arbitrarily
+     */
+    private Map<Model, Integer> getModelRanks() {
+        if (modelRanks == null) {
+            final Set<Observable> visited = Sets.newHashSet();
+            final LinkedList<Model> topoList = Lists.newLinkedList();
+            for (Observable o: models.keySet()) {
+                if (!visited.contains(o)) {
+                    rankSort(o, visited, topoList);
+                }
+            }
+            modelRanks = Maps.newHashMapWithExpectedSize(topoList.size());
+            for (Model m: topoList) {
+                modelRanks.put(m, modelRanks.size());
+            }
+            firstRank = -1;
+            nextRank = modelRanks.size();
+            log.debug("Ranked {} models", modelRanks.size());
+        }
+        return modelRanks;
+    }
+
+    private void rankSort(final Observable v, final Set<Observable> visited, final LinkedList<Model> topoList) {
+        visited.add(v);
+        for (Model m:getModels(v)) {
+            if (!visited.contains(m)) {
+                rankSort(m, visited, topoList);
+            }
+        }
+        if (v instanceof Model) topoList.addFirst((Model)v);
+    }
+
+    /**
+     * Keeps the ranks after a new combination of model to observable, if they are still in topological order.
+     * Models without ranks have no combinations yet, thus they can be ranked first (as observable)
+     * or last (as model).
+     */
+    private void updateModelRanks(Model model, Observable observable) {
+        if (modelRanks == null) return;
+        if (!modelRanks.containsKey(model)) {
+            modelRanks.put(model, nextRank++);
+        }
+        if (observable instanceof Model) {
+            Integer observableRank = modelRanks.get(observable);
+            if (observableRank == null) {
+                modelRanks.put((Model)observable, firstRank--);
+            } else if (observableRank >= modelRanks.get(model)) {
+                invalidateModelOrder();
+            }
+        }
+    }
+
+    private void invalidateModelOrder() {
+        modelsToUpdate.clear();
+        modelRanks = null;
+    }
+
+    /**
+     * Sets the executor that delivers the updates of deferred observers
+     * (see {@link Observer#requiresImmediateUpdate()}), e.g. the event dispatch thread of the UI.
+     * Updates that are still pending are coalesced, thus each observer is updated once
+     * with the latest text of its observable.
+     * By default updates are delivered immediately.
+     */
+    public void setUpdateExecutor(Executor executor) {
+        this.updateExecutor = executor;
+    }
 
     void updateObservers(Set<State> states) {
-        // all direct observers
-        for (State s:states){
-            Set<Observer> observers = getObservers(s);
-            if (observers.isEmpty()) continue;
-            // cache StateText
-            String stateText = s.toText();
-            for (Observer o:observers) {
-                o.update(stateText);
-                log.debug("State {} updates observer {}", s, o);
+        if (observers.isEmpty()) return;
+        boolean schedule;
+        synchronized (pendingUpdates) {
+            schedule = pendingUpdates.isEmpty();
+            // all direct observers
+            for (State s:states){
+                updateImmediateObservers(s);
+            }
+            // all indirect observers
+            for (Model m:getModelsToUpdate(states)) {
+                updateImmediateObservers(m);
             }
+            schedule = schedule && !pendingUpdates.isEmpty();
         }
+        if (schedule) {
+            updateExecutor.execute(this::updateDeferredObservers);
+        }
+    }
 
-        // all indirect observers
-        for (Model m:getModelsToUpdate(states)) {
-            Set<Observer> observers = getObservers(m);
-            if (observers.isEmpty()) continue;
-            // cache ModelText
-            String modelText = m.toText();
+    /**
+     * Updates the observers that require an immediate update,
+     * the observable is added to the pending updates for all others
+     */
+    private void updateImmediateObservers(Observable observable) {
+        Set<Observer> observers = getObservers(observable);
+        if (observers.isEmpty()) return;
+        // cache text
+        String text = null;
+        for (Observer o:observers) {
+            if (o.requiresImmediateUpdate()) {
+                if (text == null) text = observable.toText();
+                o.update(text);
+                log.debug("Observable {} updates observer {}", observable, o);
+            } else {
+                pendingUpdates.add(observable);
+            }
+        }
+    }
+
+    private void updateDeferredObservers() {
+        ImmutableList<Observable> observables;
+        synchronized (pendingUpdates) {
+            observables = ImmutableList.copyOf(pendingUpdates);
+            pendingUpdates.clear();
+        }
+        for (Observable observable:observables) {
+            Set<Observer> observers = getObservers(observable);
+            // cache text
+            String text = null;
             for (Observer o:observers) {
-                o.update(modelText);
-                log.debug("Model {} updates observer {}", m, o);
+                if (o.requiresImmediateUpdate()) continue;
+                if (text == null) text = observable.toText();
+                o.update(text);
+                log.debug("Observable {} updates deferred observer {}", observable, o);
             }
         }
     }
@@ -1,5 +1,7 @@
 package net.sf.rails.game.state;
 
+import com.google.common.base.Objects;
+
 /**
  * A stateful version of a String variable
  */
@@ -76,4 +78,16 @@ public final class StringState extends State {
     void change(String value) {
         this.value = value;
     }
+
+    @Override
+    Object createSnapshot() {
+        return value;
+    }
+
+    @Override
+    boolean restoreSnapshot(Object snapshot) {
+        if (Objects.equal(snapshot, value)) return false;
+        value = (String) snapshot;
+        return true;
+    }
 }
@@ -13,6 +13,10 @@ public final class TreeMultimapState<K extends Comparable<?>, V extends Comparab
     
     private final TreeMultimap<K,V> map = TreeMultimap.create();
 
+    // immutable sorted copies, created on demand after each change
+    private ImmutableSortedSet<K> keySet;
+    private ImmutableSortedSet<V> values;
+
     private TreeMultimapState(Item parent, String id) {
         super(parent, id);
     }
@@ -37,17 +41,43 @@ public final class TreeMultimapState<K extends Comparable<?>, V extends Comparab
     
     @Override
     public ImmutableSortedSet<K> keySet() {
-        return ImmutableSortedSet.copyOf(map.keySet());
+        if (keySet == null) {
+            keySet = ImmutableSortedSet.copyOfSorted(map.keySet());
+        }
+        return keySet;
     }
     
     @Override
     public ImmutableSortedSet<V> values() {
-        return ImmutableSortedSet.copyOf(map.values());
+        if (values == null) {
+            values = ImmutableSortedSet.copyOf(map.values());
+        }
+        return values;
     }
     
     @Override
-    public ImmutableSetMultimap<K,V> view() {
+    protected ImmutableSetMultimap<K,V> createView() {
         return ImmutableSetMultimap.copyOf(map);
     }
 
+    @Override
+    public ImmutableSetMultimap<K,V> view() {
+        return (ImmutableSetMultimap<K,V>) super.view();
+    }
+
+    /**
+     * A TreeMultimap does not contain null keys or values, thus its view is always used as snapshot
+     */
+    @Override
+    Object createSnapshot() {
+        return view();
+    }
+
+    @Override
+    void clearViews() {
+        super.clearViews();
+        keySet = null;
+        values = null;
+    }
+
 }
@@ -5,6 +5,8 @@ import java.util.SortedSet;
 import java.util.TreeSet;
 import java.util.Set;
 
+import com.google.common.collect.ImmutableSortedSet;
+
 public final class TreeSetState<E extends Comparable<?>> extends SetState<E> {
 
     private final TreeSet<E> set;
@@ -37,4 +39,25 @@ public final class TreeSetState<E extends Comparable<?>> extends SetState<E> {
         return set;
     }
 
+    @Override
+    protected ImmutableSortedSet<E> createView() {
+        return ImmutableSortedSet.copyOfSorted(set);
+    }
+
+    /**
+     * A TreeSet does not contain null elements, thus its view is always used as snapshot
+     */
+    @Override
+    Object createSnapshot() {
+        return view();
+    }
+
+    /**
+     * @return immutable sorted view of the set, the copy is reused until the set changes
+     */
+    @Override
+    public ImmutableSortedSet<E> view() {
+        return (ImmutableSortedSet<E>) super.view();
+    }
+
 }
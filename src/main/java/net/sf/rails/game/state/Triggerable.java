@@ -7,5 +7,22 @@ public interface Triggerable {
      */
     public void triggered(Observable observable, Change change);
     
+    /**
+     * Method that is called if a change is undone or redone by the ChangeStack
+     * Default is to ignore those, as all changes caused by the trigger are undone or redone as well.
+     * Triggers that only maintain derived data (e.g. caches) have to override this
+     */
+    default void triggeredOnUndoRedo(Observable observable, Change change) {
+        // do nothing
+    }
+
+    /**
+     * Method that is called if the value of a state is restored by a checkpoint of the ChangeStack,
+     * there is no change for a restored value.
+     * Default is to ignore those, as for undo and redo.
+     */
+    default void triggeredOnRestore(Observable observable) {
+        // do nothing
+    }
     
 }
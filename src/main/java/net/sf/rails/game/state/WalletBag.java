@@ -43,6 +43,19 @@ public class WalletBag<T extends Countable> extends Wallet<T> {
         amount += value;
     }
 
+    @Override
+    Object createSnapshot() {
+        return amount;
+    }
+
+    @Override
+    boolean restoreSnapshot(Object snapshot) {
+        int snapshotAmount = (Integer) snapshot;
+        if (snapshotAmount == amount) return false;
+        amount = snapshotAmount;
+        return true;
+    }
+
     @Override
     public String toText() {
         return Integer.toString(amount);
@@ -1,5 +1,6 @@
 package net.sf.rails.game.state;
 
+import java.util.Map;
 import java.util.TreeMap;
 
 import com.google.common.collect.ImmutableSortedMap;
@@ -57,6 +58,21 @@ public class WalletSet<T extends Countable> extends Wallet<T> {
     void change (T item, int value) {
         wallet.put(item, value(item) + value);
     }
+
+    @Override
+    Object createSnapshot() {
+        return new TreeMap<>(wallet);
+    }
+
+    @Override
+    boolean restoreSnapshot(Object snapshot) {
+        @SuppressWarnings("unchecked")
+        Map<T, Integer> snapshotWallet = (Map<T, Integer>) snapshot;
+        if (wallet.equals(snapshotWallet)) return false;
+        wallet.clear();
+        wallet.putAll(snapshotWallet);
+        return true;
+    }
     
     @Override
     public String toText() {
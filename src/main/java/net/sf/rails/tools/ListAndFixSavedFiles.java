@@ -36,7 +36,7 @@ public class ListAndFixSavedFiles extends JFrame implements ActionListener, KeyL
     private ListAndFixSavedFiles messageWindow;
     private JMenuBar menuBar;
     private JMenu fileMenu, editMenu, taskMenu;
-    private JMenuItem saveItem, loadItem, closeItem, exitItem;
+    private JMenuItem saveItem, convertItem, loadItem, closeItem, exitItem;
     private JMenuItem trimItem, deleteItem, editItem, copyItem, pasteItem;
     private JMenuItem changeBuyTrainFromFile;
 
@@ -68,6 +68,11 @@ public class ListAndFixSavedFiles extends JFrame implements ActionListener, KeyL
         // delayed setting of logger (see also ConfigManager)
         log = LoggerFactory.getLogger(ListAndFixSavedFiles.class);
 
+        // without user interface: -convert legacy|compact|compressed file ...
+        if (args.length > 0 && "-convert".equals(args[0])) {
+            System.exit(convert(args) ? 0 : 1);
+        }
+
         String saveDirectory = Config.get("save.directory");
         log.warn("Save directory = {}", saveDirectory);
 
@@ -124,6 +129,12 @@ public class ListAndFixSavedFiles extends JFrame implements ActionListener, KeyL
         saveItem.setEnabled(true);
         fileMenu.add(saveItem);
 
+        convertItem = new ActionMenuItem("Convert");
+        convertItem.setActionCommand("CONVERT");
+        convertItem.addActionListener(this);
+        convertItem.setEnabled(true);
+        fileMenu.add(convertItem);
+
         closeItem = new ActionMenuItem(LocalText.getText("CLOSE"));
         closeItem.setActionCommand("CLOSE");
         closeItem.setMnemonic(KeyEvent.VK_C);
@@ -344,7 +355,14 @@ public class ListAndFixSavedFiles extends JFrame implements ActionListener, KeyL
         } else if ("UPDATE_BUYTRAIN".equalsIgnoreCase(command)) {
             updateBuyTrainFromFile();
         } else if ("SAVE".equalsIgnoreCase(command)) {
-            save();
+            save(GameSaver.Format.fromConfig());
+        } else if ("CONVERT".equalsIgnoreCase(command)) {
+            GameSaver.Format format = (GameSaver.Format) JOptionPane.showInputDialog(this,
+                    "Select the format of the converted file", "Convert", JOptionPane.QUESTION_MESSAGE,
+                    null, GameSaver.Format.values(), GameSaver.Format.fromConfig());
+            if (format != null) {
+                save(format);
+            }
         } else if ("LOAD".equalsIgnoreCase(command)) {
             load();
         } else if ("CLOSE".equalsIgnoreCase(command)) {
@@ -356,7 +374,49 @@ public class ListAndFixSavedFiles extends JFrame implements ActionListener, KeyL
         }
     }
 
-    private void save() {
+    /**
+     * Converts saved files without user interface, the converted file is stored next to the original
+     * with the format added to its name
+     * @return false if a conversion failed
+     */
+    private static boolean convert(String[] args) {
+        if (args.length < 3) {
+            System.err.println("Usage: ListAndFixSavedFiles -convert legacy|compact|compressed file ...");
+            return false;
+        }
+        GameSaver.Format format;
+        try {
+            format = GameSaver.Format.valueOf(args[1].toUpperCase());
+        } catch (IllegalArgumentException e) {
+            System.err.println("Unknown format " + args[1]);
+            return false;
+        }
+        boolean success = true;
+        for (int i = 2; i < args.length; i++) {
+            File file = new File(args[i]);
+            GameLoader loader = new GameLoader();
+            if (!loader.createFromFile(file) && loader.getActions() == null) {
+                log.error("Cannot load {}", file, loader.getException());
+                success = false;
+                continue;
+            }
+            String name = file.getName();
+            int dot = name.lastIndexOf('.');
+            String converted = (dot < 0 ? name : name.substring(0, dot)) + "_" + format.name().toLowerCase()
+                    + (dot < 0 ? "" : name.substring(dot));
+            File target = new File(file.getAbsoluteFile().getParentFile(), converted);
+            try {
+                new GameSaver(loader).saveGame(target, format);
+                log.info("Converted {} to {}", file, target);
+            } catch (IOException e) {
+                log.error("Cannot save {}", target, e);
+                success = false;
+            }
+        }
+        return success;
+    }
+
+    private void save(GameSaver.Format format) {
         JFileChooser jfc = new JFileChooser();
         if (Util.hasValue(saveDirectory)) {
             jfc.setCurrentDirectory(new File(saveDirectory));
@@ -368,7 +428,7 @@ public class ListAndFixSavedFiles extends JFrame implements ActionListener, KeyL
             File selectedFile = jfc.getSelectedFile();
             GameSaver gameSaver = new GameSaver(gameLoader);
             try {
-                gameSaver.saveGame(selectedFile);
+                gameSaver.saveGame(selectedFile, format);
             } catch (IOException e) {
                 String message = LocalText.getText("SaveFailed", e.getMessage());
                 log.error(message);
@@ -75,9 +75,8 @@ public class MakeGameTileSets {
 
     private void addToTileMap(Map<String, Element> tileMap, String fileName) throws ConfigurationException  {
 
-        // the last arguments refers to the fact that no GameOptions are required
         Element inputTopElement =
-                Tag.findTopTagInFile(fileName, TILES_DIRECTORY, "Tiles", null).getElement();
+                Tag.findTopElementInFile(fileName, TILES_DIRECTORY, "Tiles");
 
         NodeList tList = inputTopElement.getElementsByTagName("Tile");
         for (int i = 0; i < tList.getLength(); i++) {
@@ -111,7 +110,7 @@ public class MakeGameTileSets {
         // Open and read the tile set for this rails.game
         String tileSetPath = "TileSet.xml";
         Element tileSet =
-                Tag.findTopTagInFile(tileSetPath, directory, "TileManager", null).getElement();
+                Tag.findTopElementInFile(tileSetPath, directory, "TileManager");
         if (tileSet == null) return;
         NodeList tiles = tileSet.getElementsByTagName("Tile");
         Map<String, Object> tilesInSet = new HashMap<String, Object>();
@@ -119,7 +118,7 @@ public class MakeGameTileSets {
         // Also open and read the map tiles.
         String mapPath = "Map.xml";
         Element mapHexes =
-                Tag.findTopTagInFile(mapPath, directory, "Map", null).getElement();
+                Tag.findTopElementInFile(mapPath, directory, "Map");
         NodeList hexes = mapHexes.getElementsByTagName("Hex");
 
         String tilesPath = GAMES_OUTPUT_DIRECTORY + "/" + gameName + "/" + GAMES_TILES_FILENAME;
@@ -9,6 +9,7 @@ import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import net.sf.rails.util.ActionJournal;
 import rails.game.action.GameAction;
 
 
@@ -27,6 +28,8 @@ public class AutoLoadPoller extends Thread {
 
     private final String lastSavedFilenameFilepath;
     private String lastSavedFilename;
+    // position after the turns of the journal of the last saved file that are known already
+    private long journalPosition;
 
     public static final int OFF = 0;
     public static final int ON = 1;
@@ -39,7 +42,7 @@ public class AutoLoadPoller extends Thread {
         this.guiMgr = guiMgr;
         this.saveDirectory = saveDirectory;
         this.savePrefix = savePrefix;
-        this.lastSavedFilename = StringUtils.defaultString(lastSavedFilename, "");
+        setLastSavedFilename(StringUtils.defaultString(lastSavedFilename, ""));
         this.ownPostfix = ownPostfix;
         this.pollingStatus = status;
         this.pollingInterval = pollingInterval;
@@ -73,7 +76,15 @@ public class AutoLoadPoller extends Thread {
                     in.close();
                     log.trace("Read filename {}; last seen filename {}", currentFilename, lastSavedFilename);
 
-                    if (!lastSavedFilename.equals(currentFilename)) {
+                    if (lastSavedFilename.equals(currentFilename)) {
+                        // the turns of other players are appended to the journal of the saved file
+                        long turnEnd = ActionJournal.findTurnEnd(getJournalFile(currentFilename), journalPosition);
+                        if (turnEnd > journalPosition) {
+                            journalPosition = turnEnd;
+                            log.debug("New turn in the journal of {} -- triggering reload", currentFilename);
+                            triggerReload(currentFilename);
+                        }
+                    } else {
                         File currFile = new File(saveDirectory+"/"+currentFilename);
                         if ( ! currFile.exists() ) {
                             log.debug("Saved file {} missing, waiting", currFile);
@@ -91,15 +102,10 @@ public class AutoLoadPoller extends Thread {
                                 continue;
                             }
                         }
-                        lastSavedFilename = currentFilename;
+                        setLastSavedFilename(currentFilename);
 
                         log.debug("Read filename {}; last seen filename {} -- triggering reload", currentFilename, lastSavedFilename);
-
-                        final GameAction reload = new GameAction(guiMgr.getRoot(), GameAction.Mode.RELOAD);
-                        reload.setFilepath(saveDirectory+"/"+currentFilename);
-
-                        // The GUI must be accessed on the event dispatch thread only.
-                        SwingUtilities.invokeLater (() -> guiMgr.processAction(reload));
+                        triggerReload(currentFilename);
                     }
                 } catch (IOException e) {
                     log.error("Exception whilst polling {}", lastSavedFilenameFilepath, e);
@@ -112,6 +118,18 @@ public class AutoLoadPoller extends Thread {
         }
     }
 
+    private void triggerReload(String filename) {
+        final GameAction reload = new GameAction(guiMgr.getRoot(), GameAction.Mode.RELOAD);
+        reload.setFilepath(saveDirectory+"/"+filename);
+
+        // The GUI must be accessed on the event dispatch thread only.
+        SwingUtilities.invokeLater (() -> guiMgr.processAction(reload));
+    }
+
+    private File getJournalFile(String filename) {
+        return ActionJournal.getJournalFile(new File(saveDirectory+"/"+filename));
+    }
+
     public String getSaveDirectory() {
         return saveDirectory;
     }
@@ -165,8 +183,12 @@ public class AutoLoadPoller extends Thread {
         return lastSavedFilename;
     }
 
+    /**
+     * Sets the last saved file, its journal is known up to its current end (a reload applies it completely)
+     */
     public void setLastSavedFilename(String lastSavedFilename) {
         this.lastSavedFilename = lastSavedFilename;
+        this.journalPosition = ActionJournal.findTurnEnd(getJournalFile(lastSavedFilename), 0);
     }
 
     public void close() {
@@ -148,6 +148,9 @@ public class GameUIManager implements DialogOwner {
         savePrefix = railsRoot.getGameName();
         gameWasLoaded = wasLoaded;
 
+        // UI observers are updated on the event dispatch thread, once per pending change
+        railsRoot.getStateManager().setUpdateExecutor(SwingUtilities::invokeLater);
+
         initWindowSettings();
         initSaveSettings();
         initFontSettings();
@@ -915,6 +918,15 @@ public class GameUIManager implements DialogOwner {
     }
 
     protected void autoSave(String newPlayer) {
+        // the turn is appended to the journal of the last shared save, until it is compacted into a new save
+        String sharedFilename = autoLoadPoller.getLastSavedFilename();
+        if (Util.hasValue(sharedFilename)
+                && railsRoot.getGameManager().saveTurnToJournal(new File(saveDirectory, sharedFilename))) {
+            log.debug("Autosaved turn to the journal of {}", sharedFilename);
+            lastSavedFilename = sharedFilename;
+            return;
+        }
+
         lastSavedFilename = savePrefix + "_" + saveDateTimeFormat.format(new Date()) + "_" + newPlayer + "." + saveExtension;
         GameAction saveAction = new GameAction(getRoot(), GameAction.Mode.SAVE);
         saveAction.setFilepath(saveDirectory + "/" + lastSavedFilename);
@@ -16,6 +16,7 @@ import rails.game.action.*;
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.*;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -1163,6 +1164,7 @@ implements ActionListener, KeyListener, RevenueListener {
             revenueThread = null;
         }
         if (revenueAdapter != null) {
+            revenueAdapter.cancel();
             revenueAdapter.removeRevenueListener();
             revenueAdapter = null;
         }
@@ -1180,8 +1182,12 @@ implements ActionListener, KeyListener, RevenueListener {
 
             RailsRoot root = orUIManager.getGameUIManager().getRoot();
             revenueAdapter = RevenueAdapter.createRevenueAdapter(root, orComp, root.getPhaseManager().getCurrentPhase());
-            revenueAdapter.initRevenueCalculator(true);
+            revenueAdapter.initRevenueCalculator(true, true);
             revenueAdapter.addRevenueListener(this);
+            int timeLimit = Config.getInt("map.route.timeLimit", 0);
+            if (timeLimit > 0) {
+                revenueAdapter.setRunTimeBudget(Duration.ofSeconds(timeLimit));
+            }
             revenueThread = new Thread(revenueAdapter);
             revenueThread.start();
         } else {
@@ -1295,7 +1301,8 @@ implements ActionListener, KeyListener, RevenueListener {
                 revenueAdapter.drawOptimalRunAsPath(orUIManager.getMap());
 
                 if (isRevenueValueToBeSet) {
-                    orUIManager.getMessagePanel().setInformation("Best Run Value = " + bestRevenue +
+                    String notOptimal = revenueAdapter.isOptimal() ? "" : " " + LocalText.getText("RevenueNotOptimal");
+                    orUIManager.getMessagePanel().setInformation("Best Run Value = " + bestRevenue + notOptimal +
                             " with " + Util.convertToHtml(revenueAdapter.getOptimalRunPrettyPrint(false)));
                     orUIManager.getMessagePanel().setDetail(
                             Util.convertToHtml(revenueAdapter.getOptimalRunPrettyPrint(true)));
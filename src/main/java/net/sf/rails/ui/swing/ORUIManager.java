@@ -10,7 +10,6 @@ import net.sf.rails.algorithms.NetworkAdapter;
 import net.sf.rails.algorithms.NetworkGraph;
 import net.sf.rails.algorithms.NetworkVertex;
 import net.sf.rails.common.Config;
-import net.sf.rails.common.GameOption;
 import net.sf.rails.common.GuiDef;
 import net.sf.rails.common.LocalText;
 import net.sf.rails.game.*;
@@ -40,7 +39,6 @@ import rails.game.correct.OperatingCost;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Multimap;
-import com.google.common.collect.Sets;
 
 import static net.sf.rails.ui.swing.GameUIManager.EXCHANGE_TOKENS_DIALOG;
 
@@ -233,48 +231,14 @@ public class ORUIManager implements DialogOwner {
     }
 
     private void addConnectedTileLays(LayTile layTile) {
-        NetworkGraph graph = networkAdapter.getRouteGraph(layTile.getCompany(), true, false);
-        Map<MapHex, HexSidesSet> mapHexSides = graph.getReachableSides();
-        Multimap<MapHex, Station> mapHexStations = graph.getPassableStations();
         Phase currentPhase = gameUIManager.getCurrentPhase();
 
-        boolean allLocations = (layTile.getLocations() == null
-                || layTile.getLocations().isEmpty());
-
-        for (MapHex hex:Sets.union(mapHexSides.keySet(), mapHexStations.keySet())) {
-
-            // For the initial Belgium exclusion in 1826
-            log.debug("Type={} hex={} locations={} allLocations={}",
-                    layTile.getType(), hex, layTile.getLocations(), allLocations);
-            if (layTile.getType() == LayTile.GENERIC_EXCL_LOCATIONS
-                    && !allLocations
-                    && layTile.getLocations().contains(hex)) {
-                log.debug ("SKIP");
-                continue;
-            }
-            log.debug(" OK");
-            // Accept an immediate tile lay on reserved hexes if the reserving company
-            // president is the current player.
-            EnumSet<TileHexUpgrade.Invalids> allowances
-                    = EnumSet.noneOf(TileHexUpgrade.Invalids.class);
-            if (hex.isReservedForCompany())  {
-                // For now we accept this action, but will later check for permission
-                allowances.add(TileHexUpgrade.Invalids.HEX_RESERVED);
-            }
-            if (allLocations
-                    || layTile.getType() != LayTile.GENERIC_EXCL_LOCATIONS && layTile.getLocations().contains(hex)
-                    || layTile.getType() == LayTile.GENERIC_EXCL_LOCATIONS && !layTile.getLocations().contains(hex))
-            {
-                GUIHex guiHex = map.getHex(hex);
-                String routeAlgorithm = GameOption.getValue(gameUIManager.getRoot(),
-                        "RouteAlgorithm");
-                Set<TileHexUpgrade> upgrades = TileHexUpgrade.create(guiHex,
-                        mapHexSides.get(hex),
-                        mapHexStations.get(hex), layTile, routeAlgorithm);
-                TileHexUpgrade.validates(upgrades, currentPhase, allowances);
-                gameSpecificTileUpgradeValidation (upgrades, layTile, currentPhase);
-                hexUpgrades.putAll(guiHex, upgrades);
-            }
+        for (Map.Entry<GUIHex, List<TileLayOption>> hexOptions : getTileLayOptionsByHex(layTile).entrySet()) {
+            GUIHex guiHex = hexOptions.getKey();
+            Set<TileHexUpgrade> upgrades = TileHexUpgrade.create(guiHex, hexOptions.getValue());
+            TileHexUpgrade.validates(upgrades, currentPhase);
+            gameSpecificTileUpgradeValidation (upgrades, layTile, currentPhase);
+            hexUpgrades.putAll(guiHex, upgrades);
         }
 
         // scroll map to center over companies network
@@ -282,11 +246,27 @@ public class ORUIManager implements DialogOwner {
         if (Util.hasValue(autoScroll) &&  autoScroll.equalsIgnoreCase("no")) {
             // do nothing
         } else {
+            NetworkGraph graph = networkAdapter.getRouteGraph(layTile.getCompany(), true, false);
             mapPanel.scrollPaneShowRectangle(
                     NetworkVertex.getVertexMapCoverage(map, graph.getGraph().vertexSet()));
         }
     }
 
+    /**
+     * @return the tile lay options of the action, grouped by hex in the order of the options
+     */
+    private Map<GUIHex, List<TileLayOption>> getTileLayOptionsByHex(LayTile layTile) {
+        Map<GUIHex, List<TileLayOption>> hexOptions = new LinkedHashMap<>();
+        for (TileLayOption option : getPossibleActions().getTileLayOptions(layTile)) {
+            GUIHex guiHex = map.getHex(option.getHex());
+            if (!hexOptions.containsKey(guiHex)) {
+                hexOptions.put(guiHex, new ArrayList<>());
+            }
+            hexOptions.get(guiHex).add(option);
+        }
+        return hexOptions;
+    }
+
     /**
      * Stub to do additional validation.
      * Used in SOH to prevent showing an upgrade that
@@ -300,23 +280,18 @@ public class ORUIManager implements DialogOwner {
     }
 
     private void addLocatedTileLays(LayTile layTile) {
-        if (layTile.getLocations() != null) {
-            for (MapHex hex : layTile.getLocations()) {
-                GUIHex guiHex = map.getHex(hex);
-                Set<TileHexUpgrade> upgrades = TileHexUpgrade.createLocated(guiHex, layTile);
-                TileHexUpgrade.validates(upgrades, gameUIManager.getCurrentPhase());
-                hexUpgrades.putAll(guiHex, upgrades);
-            }
+        for (Map.Entry<GUIHex, List<TileLayOption>> hexOptions : getTileLayOptionsByHex(layTile).entrySet()) {
+            Set<TileHexUpgrade> upgrades = TileHexUpgrade.create(hexOptions.getKey(), hexOptions.getValue());
+            TileHexUpgrade.validates(upgrades, gameUIManager.getCurrentPhase());
+            hexUpgrades.putAll(hexOptions.getKey(), upgrades);
         }
     }
 
     private void addCorrectionTileLays(LayTile layTile) {
-        EnumSet<TileHexUpgrade.Invalids> allowances
-                = EnumSet.of(TileHexUpgrade.Invalids.HEX_RESERVED);
-        for (GUIHex hex:map.getHexes()) {
-            Set<TileHexUpgrade> upgrades = TileHexUpgrade.createCorrection(hex, layTile);
-            TileHexUpgrade.validates(upgrades, gameUIManager.getCurrentPhase(), allowances);
-            hexUpgrades.putAll(hex, upgrades);
+        for (Map.Entry<GUIHex, List<TileLayOption>> hexOptions : getTileLayOptionsByHex(layTile).entrySet()) {
+            Set<TileHexUpgrade> upgrades = TileHexUpgrade.create(hexOptions.getKey(), hexOptions.getValue());
+            TileHexUpgrade.validates(upgrades, gameUIManager.getCurrentPhase());
+            hexUpgrades.putAll(hexOptions.getKey(), upgrades);
         }
     }
 
@@ -267,6 +267,10 @@ public class ReportWindow extends JFrame implements ActionListener, HyperlinkLis
     }
 
     private void gotoIndex(int index) {
+        // compacted actions can only be reached at checkpoints, use the previous one
+        while (index > 1 && !changeStack.isIndexReachable(index)) {
+            index--;
+        }
         int currentIndex = changeStack.getCurrentIndex();
         if (index > currentIndex) { // move forward
             GameAction action = new GameAction(gameUIManager.getRoot(), GameAction.Mode.REDO);
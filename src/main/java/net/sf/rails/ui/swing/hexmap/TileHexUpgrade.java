@@ -5,7 +5,6 @@ import com.google.common.collect.ComparisonChain;
 import com.google.common.collect.ImmutableSet;
 import net.sf.rails.common.LocalText;
 import net.sf.rails.game.*;
-import net.sf.rails.game.special.SpecialTileLay;
 import rails.game.action.LayTile;
 
 import java.awt.*;
@@ -30,12 +29,12 @@ public class TileHexUpgrade extends HexUpgrade implements Iterable<HexSide> {
     }
 
     // static fields
+    private final TileLayOption option;
     private final TileUpgrade upgrade;
-    private LayTile action; // Not final, must be changeable for SOH
+    private final LayTile action;
 
     // validation fields
-    private HexSidesSet rotations;
-    private boolean permissiveRoutePossible;
+    private final HexSidesSet rotations;
     private final EnumSet<Invalids> invalids = EnumSet.noneOf(Invalids.class);
     private boolean relayBaseTokens;
 
@@ -43,267 +42,93 @@ public class TileHexUpgrade extends HexUpgrade implements Iterable<HexSide> {
     private HexSide selectedRotation;
 
 
-    private TileHexUpgrade(GUIHex hex, TileUpgrade upgrade, LayTile action) {
+    private TileHexUpgrade(GUIHex hex, TileLayOption option) {
         super(hex);
-        this.upgrade = upgrade;
-        this.action = action;
+        this.option = option;
+        this.upgrade = option.getUpgrade();
+        this.action = option.getAction();
+        this.rotations = option.getRotations();
         this.relayBaseTokens = upgrade.isRelayBaseTokens();
+        // initialize selected Rotation
+        selectedRotation = rotations.getNext(HexSide.defaultRotation());
     }
 
-    public static Set<TileHexUpgrade> create(GUIHex hex, HexSidesSet connected, Collection<Station> stations,
-                                             LayTile action, String routeAlgorithm) {
-
-        // use that to define available upgrades
-        ImmutableSet.Builder<TileHexUpgrade> upgrades = ImmutableSet.builder();
-        for (TileUpgrade upgrade : hex.getHex().getCurrentTile().getTileUpgrades()) {
-            TileHexUpgrade hexUpgrade = new TileHexUpgrade(hex, upgrade, action);
-
-            Tile targetTile = upgrade.getTargetTile();
-            HexSide fixedRotation = targetTile.getFixedOrientation();
-            if (fixedRotation != null) {
-                BitSet b = new BitSet();
-                b.set (fixedRotation.getTrackPointNumber());
-                hexUpgrade.rotations = HexSidesSet.create(b);
-                hexUpgrade.selectedRotation = fixedRotation;
-            } else if (routeAlgorithm.equalsIgnoreCase("PERMISSIVE")) {
-                hexUpgrade.findValidRotations(connected, stations, false);
-            } else if (routeAlgorithm.equalsIgnoreCase("RESTRICTIVE")) {
-                hexUpgrade.findValidRotations(connected, stations, true);
-            } else if (routeAlgorithm.equalsIgnoreCase("SEMI-RESTRICTIVE")) {
-                if (upgrade.getTargetTile().hasStations()) {
-                    hexUpgrade.findValidRotations(connected, stations, false);
-                } else {
-                    hexUpgrade.findValidRotations(connected, stations, true);
-                }
-            }
-            upgrades.add(hexUpgrade);
-        }
-        return upgrades.build();
-    }
-
-    public static Set<TileHexUpgrade> createLocated(GUIHex hex, LayTile action) {
-        ImmutableSet.Builder<TileHexUpgrade> upgrades = ImmutableSet.builder();
-
-        if (action.getTiles() == null || action.getTiles().isEmpty()) {
-            for (TileUpgrade upgrade : hex.getHex().getCurrentTile().getTileUpgrades()) {
-                TileHexUpgrade hexUpgrade = new TileHexUpgrade(hex, upgrade, action);
-                hexUpgrade.findValidRotations(null, null, true);
-                upgrades.add(hexUpgrade);
-            }
-        } else {
-            for (Tile targetTile : action.getTiles()) {
-                TileUpgrade upgrade = hex.getHex().getCurrentTile().getSpecificUpgrade(targetTile);
-                TileHexUpgrade hexUpgrade = new TileHexUpgrade(hex, upgrade, action);
-                hexUpgrade.findValidRotations(null, null, true);
-                upgrades.add(hexUpgrade);
-            }
-        }
-        return upgrades.build();
-    }
-
-    public static Set<TileHexUpgrade> createCorrection(GUIHex hex, LayTile action) {
+    /**
+     * @param options of the tile lay on the hex (see {@link net.sf.rails.game.TileLayOptionService})
+     */
+    public static Set<TileHexUpgrade> create(GUIHex hex, Collection<TileLayOption> options) {
         ImmutableSet.Builder<TileHexUpgrade> upgrades = ImmutableSet.builder();
-
-        for (TileUpgrade upgrade : hex.getHex().getCurrentTile().getTileUpgrades()) {
-            TileHexUpgrade hexUpgrade = new TileHexUpgrade(hex, upgrade, action);
-            hexUpgrade.findValidRotations(null, null, true);
-            upgrades.add(hexUpgrade);
+        for (TileLayOption option : options) {
+            upgrades.add(new TileHexUpgrade(hex, option));
         }
         return upgrades.build();
     }
 
-    /* FIXME: this method fails to find a valid orientation
-     * for the 1837 Vienna green upgrade tile #427, which
-     * is a 6-fold symmetric tile where all orientations are OK!
-     * (this has been circumvented by configuring a fixed orientation).
-     */
-    private void findValidRotations(HexSidesSet connectedSides, Collection<Station> stations, boolean restrictive) {
-        MapHex modelHex = hex.getHex();
-
-        // encode HexSides according to the tile current orientation
-        if (connectedSides != null) {
-            connectedSides = HexSidesSet.rotated(connectedSides, modelHex.getCurrentTileRotation());
-        }
-        // check invalid sides
-        HexSidesSet invalidSides = null;
-        if (modelHex.getInvalidSides() != null) {
-            invalidSides = HexSidesSet.rotated(modelHex.getInvalidSides(), modelHex.getCurrentTileRotation());
-        }
-
-        if (requiresConnection()) {
-            HexSidesSet permissive = upgrade.getAllowedRotations(connectedSides, invalidSides,
-                    modelHex.getCurrentTileRotation(), stations, false);
-            if (restrictive) {
-                rotations = upgrade.getAllowedRotations(connectedSides, invalidSides,
-                        modelHex.getCurrentTileRotation(), stations, true);
-                permissiveRoutePossible = !permissive.isEmpty();
-            } else {
-                rotations = permissive;
-            }
-        } else {
-            rotations = upgrade.getAllowedRotations(null, invalidSides,
-                    modelHex.getCurrentTileRotation(), stations, restrictive);
-        }
-        // initialize selected Rotation
-        selectedRotation = rotations.getNext(HexSide.defaultRotation());
-    }
-
     private boolean validate(Phase phase) {
-        return validate(phase, EnumSet.noneOf(Invalids.class));
-    }
-
-    private boolean validate(Phase phase, EnumSet<Invalids> allowances) {
         invalids.clear();
-
-        /*MBR 25.11.2018
-        Check if the action causes this Validation is a Special Tile Lay
-        If that is the case the current support special action modifications need to be
-        excluded from the validation:
-        As of the time of this writing, the following actions are supported.
-        A private blocking hex might be unblocked by laying a tile
-        The tile lay might be free of cost, or carry a discount
-        Future Powers consist of Tile lays in a different Colour than the current Phase (1822)
-        */
-        if (action.getType()== action.SPECIAL_PROPERTY) {
-
-            SpecialTileLay sp = action.getSpecialProperty();
-            if (!sp.isFree()) {
-                if (notEnoughCash(0)) {
-                    invalids.add(Invalids.NOT_ENOUGH_CASH);
-                }
-            }
-            if (!(sp.getLocations() != null && sp.getLocations().contains(hex.getHex()))) {
-                if (hexIsBlocked() && !allowances.contains(Invalids.HEX_BLOCKED)) {
-                    invalids.add(Invalids.HEX_BLOCKED);
-                }
-                if (hexIsReserved() && !allowances.contains(Invalids.HEX_RESERVED)) {
-                    invalids.add(Invalids.HEX_RESERVED);
-                }
-            }
-        } else {
-            if (hexIsBlocked() && !allowances.contains(Invalids.HEX_BLOCKED)) {
-                invalids.add(Invalids.HEX_BLOCKED);
-            }
-            if (hexIsReserved() && !allowances.contains(Invalids.HEX_RESERVED)) {
-                invalids.add(Invalids.HEX_RESERVED);
-            }
-            if (notEnoughCash(0)) {
-                invalids.add(Invalids.NOT_ENOUGH_CASH);
-            }
-        }
-        if (noTileAvailable()) {
-            invalids.add(Invalids.NO_TILES_LEFT);
-        }
-      //TODO: Add 1822 Private Powers to remove a small station with a private power
-        if (notAllowedForHex()) {
-            invalids.add(Invalids.NOT_ALLOWED_FOR_HEX);
-        }
-        //TODO: Add 1822 Private Powers to upgrade a Tile one phase ahead
-        if (notAllowedForPhase(phase)) {
-            invalids.add(Invalids.NOT_ALLOWED_FOR_PHASE);
-        }
-        if (tileColourNotAllowed(phase)) {
-            invalids.add(Invalids.COLOUR_NOT_ALLOWED);
+        for (TileLayOption.Invalids invalid : option.getInvalids(phase)) {
+            invalids.add(Invalids.valueOf(invalid.name()));
         }
-        if (tileColourRightMissing()) {
-            invalids.add(Invalids.COLOUR_RIGHT_MISSING);
-        }
-        if (noRouteToNewTrack()) {
-            invalids.add(Invalids.NO_ROUTE_TO_NEW_TRACK);
-        } else if (noValidRotation()) {
-            invalids.add(Invalids.NO_VALID_ORIENTATION);
-        }
-
         return invalids.isEmpty();
     }
 
     public boolean noValidRotation() {
-        return rotations.isEmpty();
+        return option.noValidRotation();
     }
 
     public boolean hexIsBlocked() {
-        return hex.getHex().isBlockedByPrivateCompany();
+        return option.hexIsBlocked();
     }
 
     public boolean hexIsReserved() {
-        if ( hex.getHex().isReservedForCompany() && hex.getHex().getReservedForCompany() != action.getCompany()) {
-            //check that the hex has not been upgraded already...
-            if (hex.getHex().isPreprintedTileCurrent()) {
-            return true;
-            }
-        }
-        return false;
-
+        return option.hexIsReserved();
     }
 
     public boolean noTileAvailable() {
-        return upgrade.getTargetTile().getFreeCount() == 0;
+        return option.noTileAvailable();
     }
 
     public boolean notAllowedForHex() {
-        return !upgrade.isAllowedForHex(hex.getHex());
+        return option.notAllowedForHex();
     }
 
     public boolean notAllowedForPhase(Phase phase) {
-        return !upgrade.isAllowedForPhase(phase);
+        return option.notAllowedForPhase(phase);
     }
 
     public boolean tileColourNotAllowed(Phase phase) {
-        return !phase.isTileColourAllowed(upgrade.getTargetTile().getColourText());
+        return option.tileColourNotAllowed(phase);
     }
 
     public boolean tileColourRightMissing() {
-        if (action.getTileColours() == null) {
-            return false;
-        }
-        Integer tileLays = action.getTileColours().get(upgrade.getTargetTile().getColourText());
-        return (tileLays == null || tileLays == 0);
+        return option.tileColourRightMissing();
     }
 
     public boolean noRouteToNewTrack() {
-        return noValidRotation() && permissiveRoutePossible;
+        return option.noRouteToNewTrack();
     }
 
     public boolean notEnoughCash() {
-        // correction action does not require cash
-        if (action.getType() == LayTile.CORRECTION) {
-            return false;
-        }
-        return action.getCompany().getCash() < this.getCost();
+        return option.notEnoughCash(0);
     }
 
     public boolean notEnoughCash(int discount) {
-        // correction action does not require cash
-        if (action.getType() == LayTile.CORRECTION) {
-            return false;
-        }
-        return action.getCompany().getCash() < (this.getCost()-discount);
+        return option.notEnoughCash(discount);
     }
 
     public boolean requiresConnection() {
-        // Yellow Tile on Company Home
-        if (upgrade.getTargetTile().getColourText().equalsIgnoreCase(TileColour.YELLOW.name())
-                && hex.getHex().isHomeFor(action.getCompany())) {
-            return false;
-            // Special Property with specified hexes and require connection
-            // TODO: Do we require the second test
-        } else if (action.getType() == LayTile.SPECIAL_PROPERTY) {
-            SpecialTileLay sp = action.getSpecialProperty();
-            if (sp.getLocations() == null
-                    || sp.getLocations().contains(hex.getHex())) {
-                return sp.requiresConnection();
-            }
-        }
-        return true;
-
+        return TileLayOption.requiresConnection(action, hex.getHex(), upgrade.getTargetTile());
     }
 
     public LayTile getAction() {
         return action;
     }
 
-    public void setAction (LayTile action) {
-        this.action = action;
+    /**
+     * @return the option of the tile lay, as provided by the engine
+     */
+    public TileLayOption getOption() {
+        return option;
     }
 
     /**
@@ -361,7 +186,7 @@ public class TileHexUpgrade extends HexUpgrade implements Iterable<HexSide> {
 
     @Override
     public int getCost() {
-        return action.getPotentialCost(hex.getHex());
+        return option.getCost();
     }
 
     @Override
@@ -486,14 +311,8 @@ public class TileHexUpgrade extends HexUpgrade implements Iterable<HexSide> {
      */
     public static void validates(Iterable<TileHexUpgrade> upgrades,
                                  Phase current) {
-        validates(upgrades, current, EnumSet.noneOf(Invalids.class));
-    }
-
-    public static void validates(Iterable<TileHexUpgrade> upgrades,
-                                 Phase current,
-                                 EnumSet<Invalids> allowances) {
         for (TileHexUpgrade upgrade : upgrades) {
-            if (upgrade.validate(current, allowances)) {
+            if (upgrade.validate(current)) {
                 upgrade.setVisible(true);
             } else if (upgrade.tileColourNotAllowed(current)) {
                 upgrade.setVisible(false);
@@ -0,0 +1,326 @@
+package net.sf.rails.util;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import rails.game.action.PossibleAction;
+
+/**
+ * ActionJournal is an append-only file of the actions executed after a game was saved.
+ * It is kept next to the save file (see {@link #getJournalFile(File)}) and applied whenever the save file is loaded.
+ * <p>
+ * The shared autosave appends the actions of each turn instead of saving the whole game, until the journal
+ * is compacted into a new save file. Each record has a length prefix and a checksum, thus an incomplete record
+ * at the end of the journal (e.g. after a crash or while the file is synchronized) is detected and ignored.
+ * <p>
+ * An action record contains the actions of a turn that replace all actions from its index on (the actions of
+ * the turn might have undone previous actions), a turn record completes the turn and sets the number of actions.
+ * Only complete turns are applied.
+ */
+public class ActionJournal implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(ActionJournal.class);
+
+    public static final String JOURNAL_EXTENSION = ".journal";
+
+    /** "RJNL" */
+    private static final int MAGIC = 0x524A4E4C;
+    private static final int VERSION = 1;
+
+    private static final byte ACTION_RECORD = 1;
+    private static final byte TURN_RECORD = 2;
+
+    // type and value of the record
+    private static final int RECORD_HEADER = 5;
+    private static final int MAX_RECORD_LENGTH = 1 << 24;
+
+    private final FileChannel channel;
+    private final int turns;
+
+    private ActionJournal(FileChannel channel, int turns) {
+        this.channel = channel;
+        this.turns = turns;
+    }
+
+    /**
+     * @return the journal file that belongs to a save file
+     */
+    public static File getJournalFile(File saveFile) {
+        return new File(saveFile.getPath() + JOURNAL_EXTENSION);
+    }
+
+    /**
+     * Opens a journal to append a turn. A journal of another game is replaced, an incomplete turn at its end
+     * is removed.
+     * @param file of the journal
+     * @param gameName of the saved game the journal continues
+     * @param baseActionCount number of actions of the saved game, used if the journal is created
+     */
+    public static ActionJournal open(File file, String gameName, int baseActionCount) throws IOException {
+        int[] turns = new int[1];
+        long end = file.exists() ? scan(file, gameName, turns) : -1;
+        if (end < 0) {
+            return create(file, gameName, baseActionCount);
+        }
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE);
+        try {
+            channel.truncate(end);
+            channel.position(end);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        return new ActionJournal(channel, turns[0]);
+    }
+
+    private static ActionJournal create(File file, String gameName, int baseActionCount) throws IOException {
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream header = new DataOutputStream(bytes);
+            header.writeInt(MAGIC);
+            header.writeByte(VERSION);
+            header.writeUTF(gameName);
+            header.writeInt(baseActionCount);
+            write(channel, ByteBuffer.wrap(bytes.toByteArray()));
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        log.debug("Created action journal {} after {} actions", file, baseActionCount);
+        return new ActionJournal(channel, 0);
+    }
+
+    /**
+     * @return the number of complete turns in the journal before it was opened
+     */
+    public int getTurns() {
+        return turns;
+    }
+
+    /**
+     * Appends executed actions
+     * @param index of the first action in the list of executed actions
+     */
+    public void append(int index, List<PossibleAction> actions) throws IOException {
+        writeRecord(ACTION_RECORD, index, CompactGameWriter.encodeActions(actions));
+    }
+
+    /**
+     * Completes the turn and forces the journal to disk
+     * @param actionCount number of executed actions at the end of the turn
+     */
+    public void endTurn(int actionCount) throws IOException {
+        writeRecord(TURN_RECORD, actionCount, new byte[0]);
+        channel.force(false);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private void writeRecord(byte type, int value, byte[] data) throws IOException {
+        ByteBuffer payload = ByteBuffer.allocate(RECORD_HEADER + data.length);
+        payload.put(type).putInt(value).put(data).flip();
+        CRC32 checksum = new CRC32();
+        checksum.update(payload.duplicate());
+
+        ByteBuffer record = ByteBuffer.allocate(8 + payload.remaining());
+        record.putInt(payload.remaining()).putInt((int) checksum.getValue()).put(payload).flip();
+        write(channel, record);
+    }
+
+    private static void write(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * @param turns returns the number of complete turns
+     * @return the position after the last complete turn, -1 if the journal is invalid or of another game
+     */
+    private static long scan(File file, String gameName, int[] turns) {
+        try (CountingInputStream counter = new CountingInputStream(new FileInputStream(file));
+             DataInputStream in = new DataInputStream(counter)) {
+            if (in.readInt() != MAGIC || in.readUnsignedByte() > VERSION || !in.readUTF().equals(gameName)) {
+                return -1;
+            }
+            in.readInt();
+            long end = counter.position;
+            byte[] payload;
+            while ((payload = readRecord(in)) != null) {
+                if (payload[0] == TURN_RECORD) {
+                    turns[0]++;
+                    end = counter.position;
+                }
+            }
+            return end;
+        } catch (IOException e) {
+            log.warn("Unable to read journal {}", file, e);
+            return -1;
+        }
+    }
+
+    /**
+     * Reads the tail of a journal, to detect turns appended by other players
+     * @param position after the turns that are known already, 0 to read the whole journal
+     * @return the position after the last complete turn, the given position if there is no new turn
+     */
+    public static long findTurnEnd(File file, long position) {
+        if (!file.exists()) return position;
+        try (CountingInputStream counter = new CountingInputStream(new FileInputStream(file));
+             DataInputStream in = new DataInputStream(counter)) {
+            if (position == 0) {
+                if (in.readInt() != MAGIC || in.readUnsignedByte() > VERSION) return position;
+                in.readUTF();
+                in.readInt();
+            } else {
+                long skipped = 0;
+                while (skipped < position) {
+                    long count = in.skip(position - skipped);
+                    if (count <= 0) return position;
+                    skipped += count;
+                }
+                counter.position = position;
+            }
+            long end = position;
+            byte[] payload;
+            while ((payload = readRecord(in)) != null) {
+                if (payload[0] == TURN_RECORD) {
+                    end = counter.position;
+                }
+            }
+            return end;
+        } catch (IOException e) {
+            // incomplete journal, e.g. while it is synchronized
+            log.debug("Unable to read journal {}", file, e);
+            return position;
+        }
+    }
+
+    /**
+     * Applies a journal to the actions of the saved game it continues.
+     * The complete turns are applied up to the first incomplete or invalid record.
+     * @param loader of the saved game, its RailsRoot is required to read the actions
+     * @param file of the journal
+     * @param gameName of the saved game
+     * @param actions of the saved game
+     * @return the recovered actions, the actions of the saved game if the journal does not belong to it
+     */
+    static List<PossibleAction> recover(GameLoader loader, File file, String gameName, List<PossibleAction> actions) {
+        List<PossibleAction> recovered = new ArrayList<>(actions);
+        List<PossibleAction> turnEnd = actions;
+        int turns = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readUnsignedByte() > VERSION) {
+                log.warn("Ignored {}, not a valid action journal", file);
+                return actions;
+            }
+            String journalGame = in.readUTF();
+            int baseActionCount = in.readInt();
+            if (!journalGame.equals(gameName) || baseActionCount != actions.size()) {
+                log.warn("Ignored {}, it does not continue the saved game", file);
+                return actions;
+            }
+            byte[] payload;
+            while ((payload = readRecord(in)) != null) {
+                ByteBuffer buffer = ByteBuffer.wrap(payload);
+                byte type = buffer.get();
+                int value = buffer.getInt();
+                if (value < 0 || value > recovered.size()) {
+                    throw new IOException("Invalid action index " + value);
+                }
+                if (type == ACTION_RECORD) {
+                    List<PossibleAction> turnActions = CompactGameReader.decodeActions(loader,
+                            Arrays.copyOfRange(payload, RECORD_HEADER, payload.length));
+                    recovered.subList(value, recovered.size()).clear();
+                    recovered.addAll(turnActions);
+                } else if (type == TURN_RECORD) {
+                    recovered.subList(value, recovered.size()).clear();
+                    turnEnd = new ArrayList<>(recovered);
+                    turns++;
+                } else {
+                    throw new IOException("Unknown record type " + type);
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Recovery from {} stopped after {} turns", file, turns, e);
+        }
+        log.info("Recovered {} journal turns, {} actions instead of {}", turns, turnEnd.size(), actions.size());
+        return turnEnd;
+    }
+
+    /**
+     * @return the payload of the next record, null at the end of the journal or at an incomplete record
+     */
+    private static byte[] readRecord(DataInputStream in) throws IOException {
+        try {
+            int length = in.readInt();
+            int checksum = in.readInt();
+            if (length < RECORD_HEADER || length > MAX_RECORD_LENGTH) {
+                log.warn("Invalid journal record length {}", length);
+                return null;
+            }
+            byte[] payload = new byte[length];
+            in.readFully(payload);
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            if ((int) crc.getValue() != checksum) {
+                log.warn("Invalid checksum of journal record");
+                return null;
+            }
+            return payload;
+        } catch (EOFException e) {
+            // end of journal or incomplete record
+            return null;
+        }
+    }
+
+    /**
+     * Buffered input that keeps track of the position in the file
+     */
+    private static final class CountingInputStream extends BufferedInputStream {
+
+        private long position = 0;
+
+        private CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public synchronized int read() throws IOException {
+            int value = super.read();
+            if (value >= 0) position++;
+            return value;
+        }
+
+        @Override
+        public synchronized int read(byte[] bytes, int offset, int length) throws IOException {
+            int count = super.read(bytes, offset, length);
+            if (count > 0) position += count;
+            return count;
+        }
+    }
+
+}
@@ -0,0 +1,413 @@
+package net.sf.rails.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectStreamClass;
+import java.io.ObjectStreamConstants;
+import java.io.Serializable;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.google.common.collect.Lists;
+
+/**
+ * ClassCodec describes how the objects of a serializable class (usually a PossibleAction)
+ * are written to and read from the compact save format.
+ * <p>
+ * The codec follows the rules of Java serialization: the serializable fields are the non-static
+ * and non-transient fields of each serializable class of the hierarchy (called layers),
+ * objects are created without calling the constructors of serializable classes and
+ * the private readObject methods of the layers are called to resolve the transient fields.
+ * To achieve this, the objects are created by an ObjectInputStream from template data, which
+ * contains the class descriptors of the layers without any field data (see {@link FieldInputStream}).
+ * Contrary to Java serialization, the codec is not tied to the serialVersionUID, fields are
+ * matched by name and missing fields keep their default values.
+ * <p>
+ * Codecs are created once per class and kept in a registry.
+ */
+final class ClassCodec {
+
+    private static final Map<Class<?>, ClassCodec> registry = new ConcurrentHashMap<>();
+
+    /**
+     * Serializable fields and the readObject method of one class of the hierarchy
+     */
+    static final class Layer {
+        private final Class<?> type;
+        private final List<Field> fields;
+        private final boolean readObject;
+
+        private Layer(Class<?> type) {
+            this.type = type;
+            List<Field> fields = new ArrayList<>();
+            for (Field field : type.getDeclaredFields()) {
+                int modifiers = field.getModifiers();
+                if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers)) continue;
+                field.setAccessible(true);
+                fields.add(field);
+            }
+            this.fields = Collections.unmodifiableList(fields);
+            this.readObject = hasReadObject(type);
+        }
+
+        private static boolean hasReadObject(Class<?> type) {
+            try {
+                Method method = type.getDeclaredMethod("readObject", ObjectInputStream.class);
+                return Modifier.isPrivate(method.getModifiers()) && !Modifier.isStatic(method.getModifiers());
+            } catch (NoSuchMethodException e) {
+                return false;
+            }
+        }
+
+        Class<?> getType() {
+            return type;
+        }
+
+        List<Field> getFields() {
+            return fields;
+        }
+
+        Field getField(String name) {
+            for (Field field : fields) {
+                if (field.getName().equals(name)) return field;
+            }
+            return null;
+        }
+
+        /**
+         * Assigns the field values to the object, values that do not fit to the field are ignored
+         * (equivalent to ObjectInputStream.defaultReadObject)
+         */
+        void assignFields(Object object, Map<String, Object> values) throws IOException {
+            for (Field field : fields) {
+                if (!values.containsKey(field.getName())) continue;
+                Object value = convert(field.getType(), values.get(field.getName()));
+                if (value == null && field.getType().isPrimitive()) continue;
+                if (value != null && !field.getType().isPrimitive() && !field.getType().isInstance(value)) continue;
+                try {
+                    field.set(object, value);
+                } catch (IllegalAccessException e) {
+                    throw new IOException("Cannot assign field " + field, e);
+                }
+            }
+        }
+
+        boolean hasReadObject() {
+            return readObject;
+        }
+    }
+
+    private final Class<?> type;
+    private final List<Layer> layers;
+
+    private ClassCodec(Class<?> type) {
+        this.type = type;
+        // layers from the top of the hierarchy, as Java serialization does
+        List<Layer> layers = Lists.newArrayList();
+        Class<?> current = type;
+        while (current != null && Serializable.class.isAssignableFrom(current)) {
+            layers.add(new Layer(current));
+            current = current.getSuperclass();
+        }
+        this.layers = Lists.reverse(layers);
+    }
+
+    /**
+     * @return the codec of a serializable class
+     * @throws IllegalArgumentException if the class is not serializable
+     */
+    static ClassCodec of(Class<?> type) {
+        ClassCodec codec = registry.get(type);
+        if (codec == null) {
+            if (!Serializable.class.isAssignableFrom(type) || type.isEnum() || type.isArray()) {
+                throw new IllegalArgumentException(type.getName() + " has no compact codec");
+            }
+            codec = registry.computeIfAbsent(type, ClassCodec::new);
+        }
+        return codec;
+    }
+
+    Class<?> getType() {
+        return type;
+    }
+
+    List<Layer> getLayers() {
+        return layers;
+    }
+
+    /**
+     * Converts a value read for a field, to allow changes of the primitive field types
+     * @return the converted value, null if the value does not fit to the type
+     */
+    static Object convert(Class<?> fieldType, Object value) {
+        if (!fieldType.isPrimitive() || value == null) {
+            return value;
+        }
+        if (fieldType == boolean.class) {
+            return value instanceof Boolean ? value : null;
+        }
+        if (fieldType == char.class) {
+            return value instanceof Character ? value : null;
+        }
+        if (!(value instanceof Number)) {
+            return null;
+        }
+        Number number = (Number) value;
+        if (fieldType == int.class) return number.intValue();
+        if (fieldType == long.class) return number.longValue();
+        if (fieldType == short.class) return number.shortValue();
+        if (fieldType == byte.class) return number.byteValue();
+        if (fieldType == double.class) return number.doubleValue();
+        if (fieldType == float.class) return number.floatValue();
+        return null;
+    }
+
+    /**
+     * FieldInputStream creates the objects of the compact save format by Java serialization.
+     * For each object it is fed with template data: the class descriptors of the layers without fields
+     * (or references to descriptors already read) and, as custom data of each layer with readObject method,
+     * the index of the layer and a reference to the object itself.
+     * Thus it provides the field values of the current layer to the readObject method by defaultReadObject and
+     * readFields, and the RailsRoot as any RailsObjectInputStream.
+     * The fields of layers without readObject method are assigned before the next readObject method reads its
+     * fields.
+     */
+    static final class FieldInputStream extends GameLoader.RailsObjectInputStream {
+
+        private final TemplateInput input;
+        // handles assigned by the stream so far and the handles of the class descriptors
+        private int handles = 0;
+        private final Map<Class<?>, Integer> descriptorHandles = new HashMap<>();
+        private final ByteArrayOutputStream template = new ByteArrayOutputStream();
+
+        // object read, its values and the index of the next layer to assign
+        private ClassCodec codec;
+        private Map<String, Map<String, Object>> layerValues;
+        private Object object;
+        private int next;
+
+        FieldInputStream(GameLoader loader) throws IOException {
+            this(loader, new TemplateInput());
+        }
+
+        private FieldInputStream(GameLoader loader, TemplateInput input) throws IOException {
+            super(loader, input);
+            this.input = input;
+        }
+
+        /**
+         * Creates an object of the class of the codec and reads its layers, either by their readObject methods
+         * or by assigning the fields
+         * @param layerValues field values by layer name, layers missing are read without values
+         */
+        Object read(ClassCodec codec, Map<String, Map<String, Object>> layerValues) throws IOException {
+            this.codec = codec;
+            this.layerValues = layerValues;
+            this.object = null;
+            this.next = 0;
+            input.setData(createTemplate());
+            try {
+                object = readObject();
+            } catch (ClassNotFoundException e) {
+                throw new IOException("Cannot read " + codec.type.getName(), e);
+            }
+            assignFieldsUpTo(codec.layers.size());
+            return object;
+        }
+
+        private byte[] createTemplate() throws IOException {
+            template.reset();
+            DataOutputStream out = new DataOutputStream(template);
+            out.writeByte(ObjectStreamConstants.TC_OBJECT);
+            writeDescriptor(out, codec.layers.size() - 1);
+            int objectHandle = ObjectStreamConstants.baseWireHandle + handles++;
+            // class data from the top of the hierarchy
+            for (int index = 0; index < codec.layers.size(); index++) {
+                if (!codec.layers.get(index).hasReadObject()) continue;
+                out.writeByte(ObjectStreamConstants.TC_BLOCKDATA);
+                out.writeByte(4);
+                out.writeInt(index);
+                out.writeByte(ObjectStreamConstants.TC_REFERENCE);
+                out.writeInt(objectHandle);
+                out.writeByte(ObjectStreamConstants.TC_ENDBLOCKDATA);
+            }
+            out.flush();
+            return template.toByteArray();
+        }
+
+        private void writeDescriptor(DataOutputStream out, int index) throws IOException {
+            if (index < 0) {
+                out.writeByte(ObjectStreamConstants.TC_NULL);
+                return;
+            }
+            Layer layer = codec.layers.get(index);
+            Integer handle = descriptorHandles.get(layer.getType());
+            if (handle != null) {
+                out.writeByte(ObjectStreamConstants.TC_REFERENCE);
+                out.writeInt(ObjectStreamConstants.baseWireHandle + handle);
+                return;
+            }
+            // the descriptor is assigned its handle before the descriptor of the superclass
+            descriptorHandles.put(layer.getType(), handles++);
+            out.writeByte(ObjectStreamConstants.TC_CLASSDESC);
+            out.writeUTF(layer.getType().getName());
+            out.writeLong(ObjectStreamClass.lookup(layer.getType()).getSerialVersionUID());
+            out.writeByte(ObjectStreamConstants.SC_SERIALIZABLE
+                    | (layer.hasReadObject() ? ObjectStreamConstants.SC_WRITE_METHOD : 0));
+            out.writeShort(0);
+            out.writeByte(ObjectStreamConstants.TC_ENDBLOCKDATA);
+            writeDescriptor(out, index - 1);
+        }
+
+        @Override
+        protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+            // the template describes the layers of the current codec only
+            for (Layer layer : codec.layers) {
+                if (layer.getType().getName().equals(desc.getName())) return layer.getType();
+            }
+            return super.resolveClass(desc);
+        }
+
+        private Map<String, Object> getValues(Layer layer) {
+            Map<String, Object> values = layerValues.get(layer.getType().getName());
+            return values == null ? new HashMap<>() : values;
+        }
+
+        private void assignFieldsUpTo(int index) throws IOException {
+            for (; next < index; next++) {
+                Layer layer = codec.layers.get(next);
+                if (!layer.hasReadObject()) {
+                    layer.assignFields(object, getValues(layer));
+                }
+            }
+        }
+
+        /**
+         * Reads the custom data of the current layer from the template and assigns the fields of the
+         * layers without readObject method before it
+         * @return the current layer
+         */
+        private Layer startLayer() throws IOException {
+            int index = readInt();
+            try {
+                object = readObject();
+            } catch (ClassNotFoundException e) {
+                throw new IOException(e);
+            }
+            assignFieldsUpTo(index);
+            next = index + 1;
+            return codec.layers.get(index);
+        }
+
+        @Override
+        public void defaultReadObject() throws IOException {
+            Layer layer = startLayer();
+            layer.assignFields(object, getValues(layer));
+        }
+
+        @Override
+        public GetField readFields() throws IOException {
+            Layer layer = startLayer();
+            final Map<String, Object> fields = getValues(layer);
+            final Class<?> fieldsType = layer.getType();
+            return new GetField() {
+                @Override
+                public ObjectStreamClass getObjectStreamClass() {
+                    return ObjectStreamClass.lookup(fieldsType);
+                }
+
+                @Override
+                public boolean defaulted(String name) {
+                    return !fields.containsKey(name);
+                }
+
+                private Object get(String name, Class<?> type) {
+                    return convert(type, fields.get(name));
+                }
+
+                @Override
+                public boolean get(String name, boolean val) {
+                    Object value = get(name, boolean.class);
+                    return value == null ? val : (Boolean) value;
+                }
+
+                @Override
+                public byte get(String name, byte val) {
+                    Object value = get(name, byte.class);
+                    return value == null ? val : (Byte) value;
+                }
+
+                @Override
+                public char get(String name, char val) {
+                    Object value = get(name, char.class);
+                    return value == null ? val : (Character) value;
+                }
+
+                @Override
+                public short get(String name, short val) {
+                    Object value = get(name, short.class);
+                    return value == null ? val : (Short) value;
+                }
+
+                @Override
+                public int get(String name, int val) {
+                    Object value = get(name, int.class);
+                    return value == null ? val : (Integer) value;
+                }
+
+                @Override
+                public long get(String name, long val) {
+                    Object value = get(name, long.class);
+                    return value == null ? val : (Long) value;
+                }
+
+                @Override
+                public float get(String name, float val) {
+                    Object value = get(name, float.class);
+                    return value == null ? val : (Float) value;
+                }
+
+                @Override
+                public double get(String name, double val) {
+                    Object value = get(name, double.class);
+                    return value == null ? val : (Double) value;
+                }
+
+                @Override
+                public Object get(String name, Object val) {
+                    return fields.containsKey(name) ? fields.get(name) : val;
+                }
+            };
+        }
+    }
+
+    /**
+     * TemplateInput provides the stream header and then the template data of one object after the other
+     */
+    private static final class TemplateInput extends ByteArrayInputStream {
+
+        private TemplateInput() {
+            super(new byte[] {
+                    (byte) (ObjectStreamConstants.STREAM_MAGIC >> 8), (byte) ObjectStreamConstants.STREAM_MAGIC,
+                    (byte) (ObjectStreamConstants.STREAM_VERSION >> 8), (byte) ObjectStreamConstants.STREAM_VERSION});
+        }
+
+        private void setData(byte[] data) {
+            this.buf = data;
+            this.pos = 0;
+            this.count = data.length;
+            this.mark = 0;
+        }
+    }
+
+}
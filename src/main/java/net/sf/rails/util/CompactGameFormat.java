@@ -0,0 +1,79 @@
+package net.sf.rails.util;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Constants of the compact binary save format.
+ * <p>
+ * Layout of a file:
+ * <ul>
+ * <li>magic number, format version and flags (uncompressed)</li>
+ * <li>header: Rails version, date, game name, game options, configuration options and player names</li>
+ * <li>actions, each as an object value, terminated by a null value</li>
+ * </ul>
+ * If the file is compressed, all data after the flags is deflated.
+ * <p>
+ * Numbers are written as variable length integers. Strings are interned: each distinct string
+ * is written once, later occurrences refer to its index. The same is done for class descriptors,
+ * which contain the names and types of the serializable fields (see {@link ClassCodec}),
+ * thus each action type is described once per file.
+ */
+final class CompactGameFormat {
+
+    /** "RAIL", distinguishes compact files from Java serialization files (starting with 0xACED) */
+    static final int MAGIC = 0x5241494C;
+
+    static final int VERSION = 1;
+
+    static final int FLAG_COMPRESSED = 1;
+
+    // tags of values
+    static final int NULL = 0;
+    static final int STRING = 1;
+    static final int INTEGER = 2;
+    static final int LONG = 3;
+    static final int TRUE = 4;
+    static final int FALSE = 5;
+    static final int INT_ARRAY = 6;
+    static final int STRING_ARRAY = 7;
+    static final int ENUM = 8;
+    static final int COLLECTION = 9;
+    static final int MAP = 10;
+    static final int OBJECT = 11;
+    // any other value, stored by Java serialization
+    static final int SERIALIZED = 12;
+
+    // types of fields in class descriptors, as used by Java serialization
+    static final char OBJECT_TYPE = 'L';
+
+    private CompactGameFormat() {}
+
+    /**
+     * Checks if a stream starts with the compact format, the stream has to support mark
+     */
+    static boolean isCompact(InputStream in) throws IOException {
+        in.mark(4);
+        try {
+            return new DataInputStream(in).readInt() == MAGIC;
+        } catch (IOException e) {
+            return false;
+        } finally {
+            in.reset();
+        }
+    }
+
+    static char typeCode(Class<?> type) {
+        if (type == int.class) return 'I';
+        if (type == boolean.class) return 'Z';
+        if (type == long.class) return 'J';
+        if (type == short.class) return 'S';
+        if (type == byte.class) return 'B';
+        if (type == char.class) return 'C';
+        if (type == float.class) return 'F';
+        if (type == double.class) return 'D';
+        return OBJECT_TYPE;
+    }
+
+}
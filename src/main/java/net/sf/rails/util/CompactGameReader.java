@@ -0,0 +1,381 @@
+package net.sf.rails.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.InflaterInputStream;
+
+import rails.game.action.PossibleAction;
+
+import static net.sf.rails.util.CompactGameFormat.*;
+
+/**
+ * CompactGameReader reads games in the compact binary save format (see {@link CompactGameFormat}).
+ * <p>
+ * Actions are read one by one, they require the RailsRoot of the GameLoader to resolve their references.
+ */
+final class CompactGameReader implements Closeable {
+
+    /**
+     * Class descriptor as stored in the file, the local codec can differ from it
+     */
+    private static final class StreamClass {
+        private final ClassCodec codec;
+        private final String[] layerNames;
+        private final String[][] fieldNames;
+        private final char[][] fieldTypes;
+
+        private StreamClass(ClassCodec codec, String[] layerNames, String[][] fieldNames, char[][] fieldTypes) {
+            this.codec = codec;
+            this.layerNames = layerNames;
+            this.fieldNames = fieldNames;
+            this.fieldTypes = fieldTypes;
+        }
+    }
+
+    private final DataInputStream in;
+    private final GameLoader loader;
+    private final ClassCodec.FieldInputStream fieldStream;
+    private final int version;
+
+    private final List<String> strings = new ArrayList<>();
+    private final List<StreamClass> classes = new ArrayList<>();
+
+    // header data
+    private String railsVersion;
+    private String date;
+    private String gameName;
+    private Map<String, String> gameOptions;
+    private Map<String, String> configOptions;
+    private List<String> playerNames;
+
+    CompactGameReader(GameLoader loader, InputStream stream) throws IOException {
+        this.loader = loader;
+        DataInputStream header = new DataInputStream(stream);
+        if (header.readInt() != MAGIC) {
+            throw new IOException("Not a compact save file");
+        }
+        version = header.readUnsignedByte();
+        if (version > VERSION) {
+            throw new IOException("Compact save format " + version
+                    + " is incompatible with current version " + VERSION);
+        }
+        int flags = header.readUnsignedByte();
+        if ((flags & FLAG_COMPRESSED) != 0) {
+            in = new DataInputStream(new InflaterInputStream(stream));
+        } else {
+            in = header;
+        }
+        fieldStream = new ClassCodec.FieldInputStream(loader);
+    }
+
+    /**
+     * Creates a reader without file header, for single encoded actions
+     */
+    private CompactGameReader(GameLoader loader, DataInputStream in) throws IOException {
+        this.loader = loader;
+        this.in = in;
+        this.version = VERSION;
+        this.fieldStream = new ClassCodec.FieldInputStream(loader);
+    }
+
+    /**
+     * Decodes the actions encoded by CompactGameWriter.encodeActions
+     */
+    static List<PossibleAction> decodeActions(GameLoader loader, byte[] data) throws IOException {
+        CompactGameReader reader = new CompactGameReader(loader, new DataInputStream(new ByteArrayInputStream(data)));
+        List<PossibleAction> actions = new ArrayList<>();
+        PossibleAction action;
+        while ((action = reader.readAction()) != null) {
+            actions.add(action);
+        }
+        return actions;
+    }
+
+    void readHeader() throws IOException {
+        railsVersion = readString();
+        date = readString();
+        gameName = readString();
+        gameOptions = readStringMap();
+        configOptions = readStringMap();
+        int players = readVarInt();
+        playerNames = new ArrayList<>(players);
+        for (int i = 0; i < players; i++) {
+            playerNames.add(readString());
+        }
+    }
+
+    int getVersion() {
+        return version;
+    }
+
+    String getRailsVersion() {
+        return railsVersion;
+    }
+
+    String getDate() {
+        return date;
+    }
+
+    String getGameName() {
+        return gameName;
+    }
+
+    Map<String, String> getGameOptions() {
+        return gameOptions;
+    }
+
+    Map<String, String> getConfigOptions() {
+        return configOptions;
+    }
+
+    List<String> getPlayerNames() {
+        return playerNames;
+    }
+
+    /**
+     * @return the next action, null at the end of the actions
+     */
+    PossibleAction readAction() throws IOException {
+        int tag = in.readUnsignedByte();
+        if (tag == NULL) {
+            return null;
+        } else if (tag != OBJECT) {
+            throw new IOException("Unexpected value tag " + tag + " instead of action");
+        }
+        Object object = readObject();
+        if (!(object instanceof PossibleAction)) {
+            throw new IOException("Unexpected object " + object.getClass().getName() + " instead of action");
+        }
+        return (PossibleAction) object;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private int readVarInt() throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IOException("Malformed variable length integer");
+    }
+
+    private long readVarLong() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 70; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IOException("Malformed variable length integer");
+    }
+
+    private int readSignedInt() throws IOException {
+        int value = readVarInt();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private long readSignedLong() throws IOException {
+        long value = readVarLong();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private String readString() throws IOException {
+        int reference = readVarInt();
+        if (reference == 0) {
+            return null;
+        } else if (reference == 1) {
+            String value = in.readUTF();
+            strings.add(value);
+            return value;
+        } else if (reference - 2 < strings.size()) {
+            return strings.get(reference - 2);
+        }
+        throw new IOException("Unknown string reference " + reference);
+    }
+
+    private Map<String, String> readStringMap() throws IOException {
+        int size = readVarInt();
+        Map<String, String> map = new LinkedHashMap<>();
+        for (int i = 0; i < size; i++) {
+            map.put(readString(), readString());
+        }
+        return map;
+    }
+
+    private StreamClass readClass() throws IOException {
+        int reference = readVarInt();
+        if (reference > 0) {
+            if (reference - 1 < classes.size()) {
+                return classes.get(reference - 1);
+            }
+            throw new IOException("Unknown class reference " + reference);
+        }
+        String className = readString();
+        int layers = readVarInt();
+        String[] layerNames = new String[layers];
+        String[][] fieldNames = new String[layers][];
+        char[][] fieldTypes = new char[layers][];
+        for (int i = 0; i < layers; i++) {
+            layerNames[i] = readString();
+            int fields = readVarInt();
+            fieldNames[i] = new String[fields];
+            fieldTypes[i] = new char[fields];
+            for (int j = 0; j < fields; j++) {
+                fieldNames[i][j] = readString();
+                fieldTypes[i][j] = (char) in.readUnsignedByte();
+            }
+        }
+        ClassCodec codec;
+        try {
+            codec = ClassCodec.of(Class.forName(className));
+        } catch (ClassNotFoundException | IllegalArgumentException e) {
+            throw new IOException("Cannot read objects of class " + className, e);
+        }
+        StreamClass streamClass = new StreamClass(codec, layerNames, fieldNames, fieldTypes);
+        classes.add(streamClass);
+        return streamClass;
+    }
+
+    private Object readObject() throws IOException {
+        StreamClass streamClass = readClass();
+        ClassCodec codec = streamClass.codec;
+
+        // read the values of all layers in the stream
+        Map<String, Map<String, Object>> layerValues = new HashMap<>();
+        for (int i = 0; i < streamClass.layerNames.length; i++) {
+            Map<String, Object> values = new HashMap<>();
+            for (int j = 0; j < streamClass.fieldNames[i].length; j++) {
+                values.put(streamClass.fieldNames[i][j], readField(streamClass.fieldTypes[i][j]));
+            }
+            layerValues.put(streamClass.layerNames[i], values);
+        }
+
+        // and assign them to the local layers, layers missing in the stream are read without values
+        return fieldStream.read(codec, layerValues);
+    }
+
+    private Object readField(char type) throws IOException {
+        switch (type) {
+            case 'Z':
+                return in.readBoolean();
+            case 'I':
+                return readSignedInt();
+            case 'S':
+                return (short) readSignedInt();
+            case 'B':
+                return (byte) readSignedInt();
+            case 'C':
+                return (char) readVarInt();
+            case 'J':
+                return readSignedLong();
+            case 'F':
+                return in.readFloat();
+            case 'D':
+                return in.readDouble();
+            case OBJECT_TYPE:
+                return readValue();
+            default:
+                throw new IOException("Unknown field type " + type);
+        }
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Object readValue() throws IOException {
+        int tag = in.readUnsignedByte();
+        switch (tag) {
+            case NULL:
+                return null;
+            case STRING:
+                return readString();
+            case INTEGER:
+                return readSignedInt();
+            case LONG:
+                return readSignedLong();
+            case TRUE:
+                return Boolean.TRUE;
+            case FALSE:
+                return Boolean.FALSE;
+            case INT_ARRAY: {
+                int[] array = new int[readVarInt()];
+                for (int i = 0; i < array.length; i++) {
+                    array[i] = readSignedInt();
+                }
+                return array;
+            }
+            case STRING_ARRAY: {
+                String[] array = new String[readVarInt()];
+                for (int i = 0; i < array.length; i++) {
+                    array[i] = readString();
+                }
+                return array;
+            }
+            case ENUM: {
+                String className = readString();
+                String name = readString();
+                try {
+                    return Enum.valueOf(Class.forName(className).asSubclass(Enum.class), name);
+                } catch (ClassNotFoundException | ClassCastException | IllegalArgumentException e) {
+                    throw new IOException("Cannot read enum " + className + "." + name, e);
+                }
+            }
+            case COLLECTION: {
+                Collection collection = (Collection) newCollection(readString());
+                int size = readVarInt();
+                for (int i = 0; i < size; i++) {
+                    collection.add(readValue());
+                }
+                return collection;
+            }
+            case MAP: {
+                Map map = (Map) newCollection(readString());
+                int size = readVarInt();
+                for (int i = 0; i < size; i++) {
+                    map.put(readValue(), readValue());
+                }
+                return map;
+            }
+            case OBJECT:
+                return readObject();
+            case SERIALIZED: {
+                byte[] bytes = new byte[readVarInt()];
+                in.readFully(bytes);
+                try (ObjectInputStream ois = new GameLoader.RailsObjectInputStream(loader,
+                        new ByteArrayInputStream(bytes))) {
+                    return ois.readObject();
+                } catch (ClassNotFoundException e) {
+                    throw new IOException("Cannot read serialized value", e);
+                }
+            }
+            default:
+                throw new IOException("Unknown value tag " + tag);
+        }
+    }
+
+    private static Object newCollection(String className) throws IOException {
+        try {
+            Class<?> type = Class.forName(className);
+            if (!Collection.class.isAssignableFrom(type) && !Map.class.isAssignableFrom(type)) {
+                throw new IOException(className + " is no collection");
+            }
+            return type.getConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IOException("Cannot create collection " + className, e);
+        }
+    }
+
+}
@@ -0,0 +1,306 @@
+package net.sf.rails.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.lang.reflect.Field;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+import rails.game.action.PossibleAction;
+
+import static net.sf.rails.util.CompactGameFormat.*;
+
+/**
+ * CompactGameWriter writes games in the compact binary save format (see {@link CompactGameFormat})
+ */
+final class CompactGameWriter implements Closeable {
+
+    private final DataOutputStream out;
+    private final Deflater deflater;
+    private final DeflaterOutputStream deflaterStream;
+
+    private final Map<String, Integer> strings = new HashMap<>();
+    private final Map<Class<?>, Integer> classes = new HashMap<>();
+
+    CompactGameWriter(OutputStream stream, boolean compress) throws IOException {
+        DataOutputStream header = new DataOutputStream(stream);
+        header.writeInt(MAGIC);
+        header.writeByte(VERSION);
+        header.writeByte(compress ? FLAG_COMPRESSED : 0);
+        if (compress) {
+            deflater = new Deflater(Deflater.BEST_COMPRESSION);
+            deflaterStream = new DeflaterOutputStream(stream, deflater, 8192);
+            out = new DataOutputStream(deflaterStream);
+        } else {
+            deflater = null;
+            deflaterStream = null;
+            out = header;
+        }
+    }
+
+    /**
+     * Creates a writer without file header, for single encoded actions
+     */
+    private CompactGameWriter(DataOutputStream out) {
+        this.out = out;
+        this.deflater = null;
+        this.deflaterStream = null;
+    }
+
+    /**
+     * Encodes actions with their own string and class tables, thus they can be decoded on their own
+     * (used by the ActionJournal)
+     */
+    static byte[] encodeActions(List<PossibleAction> actions) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        CompactGameWriter writer = new CompactGameWriter(new DataOutputStream(bytes));
+        for (PossibleAction action : actions) {
+            writer.writeAction(action);
+        }
+        writer.writeEnd();
+        return bytes.toByteArray();
+    }
+
+    void writeHeader(GameIOData gameIOData, Map<String, String> configOptions) throws IOException {
+        writeString(gameIOData.getVersion());
+        writeString(gameIOData.getDate());
+        writeString(gameIOData.getGameData().getGameName());
+        writeStringMap(gameIOData.getGameData().getGameOptions().getOptions());
+        writeStringMap(configOptions);
+        List<String> players = gameIOData.getGameData().getPlayers();
+        writeVarInt(players.size());
+        for (String player : players) {
+            writeString(player);
+        }
+    }
+
+    void writeAction(PossibleAction action) throws IOException {
+        out.writeByte(OBJECT);
+        writeObject(action);
+    }
+
+    /**
+     * Terminates the list of actions and finishes the (compressed) stream
+     */
+    void writeEnd() throws IOException {
+        out.writeByte(NULL);
+        out.flush();
+        if (deflaterStream != null) {
+            deflaterStream.finish();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            out.close();
+        } finally {
+            if (deflater != null) deflater.end();
+        }
+    }
+
+    private void writeVarInt(int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private void writeVarLong(long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    // signed values are zigzag encoded, thus small negative values remain short
+    private void writeSignedInt(int value) throws IOException {
+        writeVarInt((value << 1) ^ (value >> 31));
+    }
+
+    private void writeSignedLong(long value) throws IOException {
+        writeVarLong((value << 1) ^ (value >> 63));
+    }
+
+    /**
+     * Strings are written as reference: 0 = null, 1 = new string follows, n + 2 = string number n
+     */
+    private void writeString(String value) throws IOException {
+        if (value == null) {
+            writeVarInt(0);
+            return;
+        }
+        Integer index = strings.get(value);
+        if (index != null) {
+            writeVarInt(index + 2);
+        } else {
+            strings.put(value, strings.size());
+            writeVarInt(1);
+            out.writeUTF(value);
+        }
+    }
+
+    private void writeStringMap(Map<String, String> map) throws IOException {
+        writeVarInt(map.size());
+        for (Map.Entry<String, String> entry : map.entrySet()) {
+            writeString(entry.getKey());
+            writeString(entry.getValue());
+        }
+    }
+
+    /**
+     * Class descriptors are written as reference: 0 = new descriptor follows, n + 1 = descriptor number n
+     */
+    private void writeClass(ClassCodec codec) throws IOException {
+        Integer index = classes.get(codec.getType());
+        if (index != null) {
+            writeVarInt(index + 1);
+            return;
+        }
+        classes.put(codec.getType(), classes.size());
+        writeVarInt(0);
+        writeString(codec.getType().getName());
+        writeVarInt(codec.getLayers().size());
+        for (ClassCodec.Layer layer : codec.getLayers()) {
+            writeString(layer.getType().getName());
+            writeVarInt(layer.getFields().size());
+            for (Field field : layer.getFields()) {
+                writeString(field.getName());
+                out.writeByte(typeCode(field.getType()));
+            }
+        }
+    }
+
+    private void writeObject(Object object) throws IOException {
+        ClassCodec codec = ClassCodec.of(object.getClass());
+        writeClass(codec);
+        for (ClassCodec.Layer layer : codec.getLayers()) {
+            for (Field field : layer.getFields()) {
+                try {
+                    writeField(field.getType(), field.get(object));
+                } catch (IllegalAccessException e) {
+                    throw new IOException("Cannot write field " + field, e);
+                }
+            }
+        }
+    }
+
+    private void writeField(Class<?> type, Object value) throws IOException {
+        switch (typeCode(type)) {
+            case 'Z':
+                out.writeBoolean((Boolean) value);
+                break;
+            case 'I':
+            case 'S':
+            case 'B':
+                writeSignedInt(((Number) value).intValue());
+                break;
+            case 'C':
+                writeVarInt((Character) value);
+                break;
+            case 'J':
+                writeSignedLong((Long) value);
+                break;
+            case 'F':
+                out.writeFloat((Float) value);
+                break;
+            case 'D':
+                out.writeDouble((Double) value);
+                break;
+            default:
+                writeValue(value);
+        }
+    }
+
+    private void writeValue(Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(NULL);
+        } else if (value instanceof String) {
+            out.writeByte(STRING);
+            writeString((String) value);
+        } else if (value instanceof Integer) {
+            out.writeByte(INTEGER);
+            writeSignedInt((Integer) value);
+        } else if (value instanceof Long) {
+            out.writeByte(LONG);
+            writeSignedLong((Long) value);
+        } else if (value instanceof Boolean) {
+            out.writeByte((Boolean) value ? TRUE : FALSE);
+        } else if (value instanceof int[]) {
+            int[] array = (int[]) value;
+            out.writeByte(INT_ARRAY);
+            writeVarInt(array.length);
+            for (int element : array) {
+                writeSignedInt(element);
+            }
+        } else if (value instanceof String[]) {
+            String[] array = (String[]) value;
+            out.writeByte(STRING_ARRAY);
+            writeVarInt(array.length);
+            for (String element : array) {
+                writeString(element);
+            }
+        } else if (value instanceof Enum) {
+            out.writeByte(ENUM);
+            writeString(((Enum<?>) value).getDeclaringClass().getName());
+            writeString(((Enum<?>) value).name());
+        } else if (value instanceof Collection && isPlainCollection(value)) {
+            Collection<?> collection = (Collection<?>) value;
+            out.writeByte(COLLECTION);
+            writeString(value.getClass().getName());
+            writeVarInt(collection.size());
+            for (Object element : collection) {
+                writeValue(element);
+            }
+        } else if (value instanceof Map && isPlainCollection(value)) {
+            Map<?, ?> map = (Map<?, ?>) value;
+            out.writeByte(MAP);
+            writeString(value.getClass().getName());
+            writeVarInt(map.size());
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                writeValue(entry.getKey());
+                writeValue(entry.getValue());
+            }
+        } else if (value instanceof Serializable && !value.getClass().getName().startsWith("java.")) {
+            out.writeByte(OBJECT);
+            writeObject(value);
+        } else {
+            out.writeByte(SERIALIZED);
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (ObjectOutputStream oos = new ObjectOutputStream(bytes)) {
+                oos.writeObject(value);
+            }
+            writeVarInt(bytes.size());
+            bytes.writeTo(out);
+        }
+    }
+
+    /**
+     * @return true for the java.util collections that can be recreated by their default constructor
+     */
+    private static boolean isPlainCollection(Object value) {
+        Class<?> type = value.getClass();
+        if (!type.getName().startsWith("java.util.")) return false;
+        if (value instanceof SortedSet && ((SortedSet<?>) value).comparator() != null) return false;
+        if (value instanceof SortedMap && ((SortedMap<?, ?>) value).comparator() != null) return false;
+        try {
+            return java.lang.reflect.Modifier.isPublic(type.getConstructor().getModifiers());
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+}
@@ -1,6 +1,8 @@
 package net.sf.rails.util;
 
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 import rails.game.action.PossibleAction;
 
@@ -17,6 +19,7 @@ class GameIOData {
     private String date;
     private long fileVersionID;
     private List<PossibleAction> actions;
+    private Map<String, String> configOptions = Collections.emptyMap();
     
     GameIOData(GameData gameData, String version, String date, Long fileVersionID, List<PossibleAction> actions) {
         this.gameData = gameData;
@@ -69,6 +72,17 @@ class GameIOData {
         return actions;
     }
 
+    /**
+     * @param configOptions game related configuration options of the saved game (e.g. notifications)
+     */
+    void setConfigOptions(Map<String, String> configOptions) {
+        this.configOptions = configOptions;
+    }
+
+    Map<String, String> getConfigOptions() {
+        return configOptions;
+    }
+
     String metaDataAsText() {
         StringBuilder s = new StringBuilder();
         s.append("Rails saveVersion = ").append(version).append("\n");
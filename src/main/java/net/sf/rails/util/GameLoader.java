@@ -37,11 +37,15 @@ public class GameLoader {
 
     // object data
     private ObjectInputStream ois = null;
+    private CompactGameReader compactReader = null;
     private RailsRoot railsRoot = null;
     private Exception exception = null;
 
     private int actionCounter = 1;
 
+    // optional listener that is informed during replay
+    private ReplayListener replayListener = null;
+
     public GameLoader() {
         // do nothing
     }
@@ -82,6 +86,7 @@ public class GameLoader {
             }
         }
 
+        gameLoader.applyConfigOptions();
         GameUIManager gameUIManager = startGameUIManager(gameLoader.getRoot(), true, splashWindow);
 
         gameUIManager.setGameFile(gameFile);
@@ -132,7 +137,12 @@ public class GameLoader {
         // FIXME: Removed the filename replacement expression
         // check if this still works
         // String filename = filePath.replaceAll(".*[/\\\\]", "");
-        ois = new RailsObjectInputStream(this, new FileInputStream(gameFile));
+        InputStream in = new BufferedInputStream(new FileInputStream(gameFile));
+        if (CompactGameFormat.isCompact(in)) {
+            loadCompactGameData(in);
+            return;
+        }
+        ois = new RailsObjectInputStream(this, in);
 
         Object object = ois.readObject();
         String version;
@@ -171,8 +181,52 @@ public class GameLoader {
         log.debug("Saved game: {}", gameName);
 
         // read default and saved game options
-        GameOptionsSet.Builder gameOptions = loadDefaultGameOptions(gameName);
         Map<String, String> savedOptions = (Map<String, String>) ois.readObject();
+        GameOptionsSet.Builder gameOptions = createGameOptions(gameName, savedOptions);
+
+        object = ois.readObject();
+        if (object instanceof Map) {
+            // used to store game file specific configuration options that aren't related to the game itself
+            setConfigOptions((Map<String, String>) object);
+
+            // read the next object which would be the list of player names
+            object = ois.readObject();
+        }
+
+        // read playerNames
+        List<String> playerNames = (List<String>) object;
+        log.debug("Player names = {}", playerNames);
+        GameInfo game = GameInfo.builder().withName(gameName).build();
+
+        gameIOData.setGameData(GameData.create(game, gameOptions, playerNames));
+    }
+
+    /**
+     * Load the gameData from a file in the compact format, the actions are read by convertGameData
+     */
+    private void loadCompactGameData(InputStream in) throws IOException {
+        compactReader = new CompactGameReader(this, in);
+        compactReader.readHeader();
+        gameIOData.setVersion(compactReader.getRailsVersion());
+        gameIOData.setDate(compactReader.getDate());
+        gameIOData.setFileVersionID(compactReader.getVersion());
+        log.debug("Reading Rails {} compact file version {} saved at {}", compactReader.getRailsVersion(),
+                compactReader.getVersion(), compactReader.getDate());
+
+        String gameName = compactReader.getGameName();
+        log.debug("Saved game: {}", gameName);
+        GameOptionsSet.Builder gameOptions = createGameOptions(gameName, compactReader.getGameOptions());
+        setConfigOptions(compactReader.getConfigOptions());
+
+        List<String> playerNames = compactReader.getPlayerNames();
+        log.debug("Player names = {}", playerNames);
+        GameInfo game = GameInfo.builder().withName(gameName).build();
+
+        gameIOData.setGameData(GameData.create(game, gameOptions, playerNames));
+    }
+
+    private GameOptionsSet.Builder createGameOptions(String gameName, Map<String, String> savedOptions) {
+        GameOptionsSet.Builder gameOptions = loadDefaultGameOptions(gameName);
         log.debug("Saved game options = {}", savedOptions);
 
         for (GameOption option : gameOptions.getOptions()) {
@@ -185,28 +239,30 @@ public class GameLoader {
                 log.debug("Missing option in save file {} using default value instead", name);
             }
         }
+        return gameOptions;
+    }
 
-        object = ois.readObject();
-        if (object instanceof Map) {
-            // used to store game file specific configuration options that aren't related to the game itself
-            Map<String, String> configOptions = (Map<String, String>) object;
-            log.debug("Saved file configuration = {}", configOptions);
+    private void setConfigOptions(Map<String, String> configOptions) {
+        log.debug("Saved file configuration = {}", configOptions);
+        gameIOData.setConfigOptions(configOptions);
+    }
 
-            // iterate over configOptions injecting into ConfigManager as needed
-            for (Entry<String, String> config : configOptions.entrySet()) {
-                Config.set(config.getKey(), config.getValue());
-            }
+    /**
+     * @return the configuration options stored in the game file
+     */
+    public Map<String, String> getConfigOptions() {
+        return gameIOData.getConfigOptions();
+    }
 
-            // read the next object which would be the list of player names
-            object = ois.readObject();
+    /**
+     * Injects the configuration options of the game file into the ConfigManager.
+     * This changes the configuration of the whole application, thus it is only called for the game
+     * that is played (and not for games loaded in parallel, e.g. by the ReplayRunner).
+     */
+    public void applyConfigOptions() {
+        for (Entry<String, String> config : gameIOData.getConfigOptions().entrySet()) {
+            Config.set(config.getKey(), config.getValue());
         }
-
-        // read playerNames
-        List<String> playerNames = (List<String>) object;
-        log.debug("Player names = {}", playerNames);
-        GameInfo game = GameInfo.builder().withName(gameName).build();
-
-        gameIOData.setGameData(GameData.create(game, gameOptions, playerNames));
     }
 
     /**
@@ -215,6 +271,10 @@ public class GameLoader {
      */
     @SuppressWarnings("unchecked")
     public void convertGameData() throws Exception {
+        if (compactReader != null) {
+            convertCompactGameData();
+            return;
+        }
         // Read game actions into gameData.listOfActions
         // read next object in stream
         Object actionObject = null;
@@ -273,6 +333,21 @@ public class GameLoader {
         ois = null;
     }
 
+    private void convertCompactGameData() throws IOException {
+        List<PossibleAction> actions = Lists.newArrayList();
+        try {
+            PossibleAction action;
+            while ((action = compactReader.readAction()) != null) {
+                actions.add(action);
+                log.debug("Reading action {}: {}", actions.size(), action.getClass().getSimpleName());
+            }
+        } finally {
+            compactReader.close();
+            compactReader = null;
+        }
+        gameIOData.setActions(actions);
+    }
+
     /**
      * @return false if exception occurred
      */
@@ -289,6 +364,11 @@ public class GameLoader {
             for (PossibleAction action : gameIOData.getActions()) {
                 actionCount = increaseActionCounter();
 
+                if (replayListener != null && !replayListener.beforeAction(railsRoot, action, actionCount)) {
+                    log.debug("Replay of game stopped by listener at action {}", actionCount);
+                    break;
+                }
+
                 if (!gameManager.processOnReload(action)) {
                     log.warn("Replay of game interrupted at action "+actionCount);
                     String message = LocalText.getText("LoadInterrupted", actionCount);
@@ -313,6 +393,39 @@ public class GameLoader {
         return railsRoot;
     }
 
+    /**
+     * Defines a listener that is informed before each action is replayed
+     * @param replayListener listener to use, null to remove it
+     */
+    public void setReplayListener(ReplayListener replayListener) {
+        this.replayListener = replayListener;
+    }
+
+    /**
+     * Listener interface to inspect (or stop) the replay of a loaded game
+     * e.g. for analysis tools and benchmarks that require intermediate game states
+     */
+    public interface ReplayListener {
+        /**
+         * @param root the game that is replayed, in the state before the action
+         * @param action the action that is replayed next
+         * @param actionCount the number of the action
+         * @return false to stop the replay before the action
+         */
+        boolean beforeAction(RailsRoot root, PossibleAction action, int actionCount);
+    }
+
+    /**
+     * Appends the turns of the journal that belongs to the game file (see {@link ActionJournal}) to the actions
+     */
+    private void applyJournal(File gameFile) {
+        File journalFile = ActionJournal.getJournalFile(gameFile);
+        if (!journalFile.exists()) return;
+        List<PossibleAction> actions = gameIOData.getActions() == null ? new ArrayList<>() : gameIOData.getActions();
+        gameIOData.setActions(ActionJournal.recover(this, journalFile,
+                gameIOData.getGameData().getGameName(), actions));
+    }
+
     public Exception getException() {
         return exception;
     }
@@ -330,6 +443,16 @@ public class GameLoader {
      * @return false if exception occurred
      */
     public boolean createFromFile(File gameFile) {
+        // 1st to 4th: create game, 5th: replay game
+        return createGame(gameFile) && replayGame();
+    }
+
+    /**
+     * Creates the game of the file without replay of the actions (e.g. for replay benchmarks)
+     * @param gameFile
+     * @return false if exception occurred
+     */
+    boolean createGame(File gameFile) {
         try {
             // 1st: loadGameData
             loadGameData(gameFile);
@@ -339,6 +462,7 @@ public class GameLoader {
 
             // 3rd: convert game data (retrieve actions)
             convertGameData();
+            applyJournal(gameFile);
 
             // 4th: start game
             railsRoot.start();
@@ -348,8 +472,7 @@ public class GameLoader {
             exception = e;
             return false;
         }
-        // 5th: replay game
-        return replayGame();
+        return true;
     }
 
     /**
@@ -400,6 +523,7 @@ public class GameLoader {
 
             // 2nd: convert game data (retrieve actions)
             convertGameData();
+            applyJournal(file);
 
         } catch (Exception e) {
             log.debug("Exception during createFromFile in gameLoader ", e);
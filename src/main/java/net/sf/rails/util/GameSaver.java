@@ -1,8 +1,10 @@
 package net.sf.rails.util;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.ObjectOutputStream;
+import java.io.OutputStream;
 import java.nio.file.Files;
 import java.text.SimpleDateFormat;
 import java.util.Date;
@@ -41,6 +43,34 @@ public class GameSaver {
     public static final String AUTOSAVE_FOLDER = "autosave";
     public static final String AUTOSAVE_FILE = "18xx_autosave.rails";
 
+    /**
+     * Formats of save files
+     */
+    public enum Format {
+        /** Java serialization of the actions, readable by all Rails versions */
+        LEGACY,
+        /** compact binary format, see CompactGameFormat */
+        COMPACT,
+        /** compact binary format with compression */
+        COMPRESSED;
+
+        /**
+         * @return the format defined by the configuration (save.format), default is legacy
+         */
+        public static Format fromConfig() {
+            String format = Config.get("save.format");
+            if (StringUtils.isBlank(format)) {
+                return LEGACY;
+            }
+            try {
+                return valueOf(format.trim().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                log.warn("Unknown save format {}, legacy format is used", format);
+                return LEGACY;
+            }
+        }
+    }
+
     // game data
     private final GameIOData gameIOData = new GameIOData();
 
@@ -63,15 +93,68 @@ public class GameSaver {
      */
     public GameSaver(GameLoader gameLoader) {
         this(gameLoader.getRoot().getGameData(), gameLoader.getActions());
+        gameIOData.setConfigOptions(gameLoader.getConfigOptions());
     }
 
     /**
-     * Stores the game to a file
+     * Stores the game to a file in the configured format
      * @param file to save game to
      */
     public void saveGame(File file) throws IOException {
-        log.info("Saving to {}", file.getAbsoluteFile());
+        saveGame(file, Format.fromConfig());
+    }
+
+    /**
+     * Stores the game to a file
+     * @param file to save game to
+     * @param format of the file
+     */
+    public void saveGame(File file, Format format) throws IOException {
+        log.info("Saving to {} ({} format)", file.getAbsoluteFile(), format);
+        if (format == Format.LEGACY) {
+            saveLegacy(file);
+        } else {
+            saveCompact(file, format == Format.COMPRESSED);
+        }
+    }
+
+    /**
+     * @return the game play related configuration options, the options of a loaded game file replace the current ones
+     */
+    private Map<String, String> getConfigOptions() {
+        Map<String, String> gameOptions = new HashMap<>();
+        for ( Map.Entry<String, List<ConfigItem>> entry : ConfigManager.getInstance().getConfigSections().entrySet() ) {
+            for ( ConfigItem config : entry.getValue() ) {
+                if ( config.isGameRelated ) {
+                    String value = Config.get(config.name);
+                    if ( StringUtils.isNotBlank(value) ) {
+                        gameOptions.put(config.name, Config.get(config.name));
+                    }
+                }
+            }
+        }
+        gameOptions.putAll(gameIOData.getConfigOptions());
+        return gameOptions;
+    }
 
+    private void saveCompact(File file, boolean compress) throws IOException {
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file.toPath()));
+             CompactGameWriter writer = new CompactGameWriter(out, compress)) {
+            writer.writeHeader(gameIOData, getConfigOptions());
+            for ( PossibleAction action : gameIOData.getActions() ) {
+                try {
+                    writer.writeAction(action);
+                } catch (IOException | RuntimeException e) {
+                    log.error ("Cannot write object {}: {}", action, e.getMessage());
+                    throw new IOException (e);
+                }
+            }
+            writer.writeEnd();
+        }
+        log.debug("File save successful");
+    }
+
+    private void saveLegacy(File file) throws IOException {
         try (ObjectOutputStream oos = new ObjectOutputStream(Files.newOutputStream(file.toPath()))) {
             oos.writeObject(gameIOData.getVersion());
             oos.writeObject(gameIOData.getDate());
@@ -79,17 +162,7 @@ public class GameSaver {
             oos.writeObject(gameIOData.getGameData().getGameName());
             oos.writeObject(gameIOData.getGameData().getGameOptions().getOptions());
             // save game play related options
-            Map<String, String> gameOptions = new HashMap<>();
-            for ( Map.Entry<String, List<ConfigItem>> entry : ConfigManager.getInstance().getConfigSections().entrySet() ) {
-                for ( ConfigItem config : entry.getValue() ) {
-                    if ( config.isGameRelated ) {
-                        String value = Config.get(config.name);
-                        if ( StringUtils.isNotBlank(value) ) {
-                            gameOptions.put(config.name, Config.get(config.name));
-                        }
-                    }
-                }
-            }
+            Map<String, String> gameOptions = getConfigOptions();
             if ( !gameOptions.isEmpty() ) {
                 oos.writeObject(gameOptions);
             }
@@ -0,0 +1,330 @@
+package net.sf.rails.util;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.sf.rails.algorithms.RevenueAdapter;
+import net.sf.rails.common.Config;
+import net.sf.rails.common.ConfigManager;
+import net.sf.rails.game.PublicCompany;
+import net.sf.rails.game.RailsRoot;
+import rails.game.action.PossibleAction;
+import rails.game.action.SetDividend;
+
+/**
+ * RevenueAnalyzer replays saved games without user interface and compares the declared revenue
+ * of each SetDividend action with the optimal revenue calculated by the RevenueAdapter.
+ * <p>
+ * Usage: RevenueAnalyzer [-format csv|json] [-out file] [-threads n] [-budget seconds] [-simple] file|directory ...
+ * <ul>
+ * <li>-format: format of the report, default csv</li>
+ * <li>-out: file of the report, default is standard output</li>
+ * <li>-threads: number of games replayed in parallel, default is the number of processors</li>
+ * <li>-budget: maximum duration of each revenue calculation, default is no limit</li>
+ * <li>-simple: use the simple graph instead of the multigraph for the calculation</li>
+ * </ul>
+ * Directories are searched recursively for saved games.
+ */
+public class RevenueAnalyzer {
+
+    private static final Logger log = LoggerFactory.getLogger(RevenueAnalyzer.class);
+
+    private static final String[] COLUMNS = {"file", "action", "or", "company", "declared", "declaredTreasury",
+            "optimal", "special", "difference", "proven", "timeMs", "evaluations", "error"};
+
+    private enum Format {CSV, JSON}
+
+    private Format format = Format.CSV;
+    private File outputFile = null;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private Duration budget = null;
+    private boolean multiGraph = true;
+    private final List<File> gameFiles = new ArrayList<>();
+
+    /**
+     * Result of the analysis of one SetDividend action
+     */
+    private static class Result {
+        private final String file;
+        private final int action;
+        private final String operatingRound;
+        private final String company;
+        private final int declared;
+        private final int declaredTreasury;
+        private int optimal;
+        private int special;
+        private boolean proven;
+        private long time;
+        private int evaluations;
+        private String error = "";
+
+        private Result(String file, int action, String operatingRound, SetDividend dividend) {
+            this.file = file;
+            this.action = action;
+            this.operatingRound = operatingRound;
+            this.company = dividend.getCompany().getId();
+            this.declared = dividend.getActualRevenue();
+            this.declaredTreasury = dividend.getActualCompanyTreasuryRevenue();
+        }
+
+        private Object[] values() {
+            return new Object[]{file, action, operatingRound, company, declared, declaredTreasury,
+                    optimal, special, optimal - declared, proven, time / 1000000, evaluations, error};
+        }
+    }
+
+    /**
+     * Calculates the optimal revenue before each SetDividend action of the replayed game
+     */
+    private class DividendListener implements GameLoader.ReplayListener {
+
+        private final String fileName;
+        private final List<Result> results = new ArrayList<>();
+
+        private DividendListener(String fileName) {
+            this.fileName = fileName;
+        }
+
+        @Override
+        public boolean beforeAction(RailsRoot root, PossibleAction action, int actionCount) {
+            if (action instanceof SetDividend && root.getRevenueManager() != null) {
+                results.add(analyze(root, (SetDividend) action, actionCount));
+            }
+            return true;
+        }
+
+        private Result analyze(RailsRoot root, SetDividend dividend, int actionCount) {
+            Result result = new Result(fileName, actionCount, root.getGameManager().getORId(), dividend);
+            try {
+                PublicCompany company = dividend.getCompany();
+                long start = System.nanoTime();
+                RevenueAdapter ra = RevenueAdapter.createRevenueAdapter(root, company,
+                        root.getPhaseManager().getCurrentPhase());
+                ra.initRevenueCalculator(multiGraph);
+                result.optimal = ra.calculateRevenue(budget, null);
+                result.time = System.nanoTime() - start;
+                result.special = ra.getSpecialRevenue();
+                result.proven = ra.isOptimal();
+                result.evaluations = ra.getNumberOfEvaluations();
+                log.debug("{} action {}: {}", fileName, actionCount, ra.getStatistics());
+            } catch (Exception e) {
+                // the analysis continues with the next action
+                log.warn("Revenue calculation failed in {} at action {}", fileName, actionCount, e);
+                result.error = e.toString();
+            }
+            return result;
+        }
+    }
+
+    public static void main(String[] args) {
+        RevenueAnalyzer analyzer = new RevenueAnalyzer();
+        if (!analyzer.parseArguments(args)) {
+            System.err.println("Usage: RevenueAnalyzer [-format csv|json] [-out file] [-threads n] "
+                    + "[-budget seconds] [-simple] file|directory ...");
+            System.exit(1);
+        }
+
+        // Initialize configuration
+        ConfigManager.initConfiguration(false);
+
+        try {
+            analyzer.run();
+        } catch (IOException | InterruptedException e) {
+            log.error("Revenue analysis failed", e);
+            System.exit(1);
+        }
+        System.exit(0);
+    }
+
+    private boolean parseArguments(String[] args) {
+        List<File> arguments = new ArrayList<>();
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "-format":
+                        format = Format.valueOf(args[++i].toUpperCase());
+                        break;
+                    case "-out":
+                        outputFile = new File(args[++i]);
+                        break;
+                    case "-threads":
+                        threads = Integer.parseInt(args[++i]);
+                        break;
+                    case "-budget":
+                        budget = Duration.ofMillis(Math.round(Double.parseDouble(args[++i]) * 1000));
+                        break;
+                    case "-simple":
+                        multiGraph = false;
+                        break;
+                    default:
+                        arguments.add(new File(args[i]));
+                }
+            }
+        } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+            return false;
+        }
+        if (arguments.isEmpty() || threads < 1) {
+            return false;
+        }
+        // game files are searched after the configuration is initialized
+        gameFiles.addAll(arguments);
+        return true;
+    }
+
+    private void collectGameFiles(File file, String extension, List<File> files) {
+        if (file.isDirectory()) {
+            File[] children = file.listFiles();
+            if (children == null) return;
+            Arrays.sort(children);
+            for (File child : children) {
+                collectGameFiles(child, extension, files);
+            }
+        } else if (file.getName().endsWith("." + extension)) {
+            files.add(file);
+        } else {
+            log.warn("Skipped {}, not a saved game", file);
+        }
+    }
+
+    private void run() throws IOException, InterruptedException {
+        String extension = Config.get("save.filename.extension");
+        List<File> files = new ArrayList<>();
+        for (File file : gameFiles) {
+            collectGameFiles(file, extension, files);
+        }
+        log.info("Analyzing {} saved games with {} threads", files.size(), threads);
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<List<Result>>> futures = new ArrayList<>();
+        for (File file : files) {
+            futures.add(executor.submit(() -> analyzeGame(file)));
+        }
+        executor.shutdown();
+
+        try (Writer out = outputFile == null ? new OutputStreamWriter(System.out, StandardCharsets.UTF_8)
+                : new OutputStreamWriter(new FileOutputStream(outputFile), StandardCharsets.UTF_8);
+             PrintWriter writer = new PrintWriter(out)) {
+            writeHeader(writer);
+            boolean first = true;
+            // results are written in the order of the files
+            for (int i = 0; i < files.size(); i++) {
+                List<Result> results;
+                try {
+                    results = futures.get(i).get();
+                } catch (ExecutionException e) {
+                    log.error("Analysis of {} failed", files.get(i), e.getCause());
+                    continue;
+                }
+                for (Result result : results) {
+                    writeResult(writer, result, first);
+                    first = false;
+                }
+                writer.flush();
+            }
+            writeFooter(writer);
+        }
+    }
+
+    private List<Result> analyzeGame(File file) {
+        log.info("Replaying {}", file);
+        DividendListener listener = new DividendListener(file.getPath());
+        GameLoader gameLoader = new GameLoader();
+        gameLoader.setReplayListener(listener);
+        if (!gameLoader.createFromFile(file)) {
+            log.warn("Replay of {} failed, report contains the actions before the failure", file,
+                    gameLoader.getException());
+        }
+        return listener.results;
+    }
+
+    private void writeHeader(PrintWriter writer) {
+        if (format == Format.CSV) {
+            writer.println(String.join(",", COLUMNS));
+        } else {
+            writer.println("[");
+        }
+    }
+
+    private void writeResult(PrintWriter writer, Result result, boolean first) {
+        Object[] values = result.values();
+        StringBuilder line = new StringBuilder();
+        if (format == Format.CSV) {
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) line.append(',');
+                line.append(values[i] instanceof String ? csvString((String) values[i]) : values[i]);
+            }
+        } else {
+            if (!first) writer.println(",");
+            line.append("  {");
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) line.append(", ");
+                line.append(jsonString(COLUMNS[i])).append(": ");
+                line.append(values[i] instanceof String ? jsonString((String) values[i]) : values[i]);
+            }
+            line.append('}');
+        }
+        writer.print(line);
+        if (format == Format.CSV) writer.println();
+    }
+
+    private void writeFooter(PrintWriter writer) {
+        if (format == Format.JSON) {
+            writer.println();
+            writer.println("]");
+        }
+    }
+
+    private static String csvString(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    private static String jsonString(String value) {
+        StringBuilder json = new StringBuilder("\"");
+        for (char c : value.toCharArray()) {
+            switch (c) {
+                case '"':
+                    json.append("\\\"");
+                    break;
+                case '\\':
+                    json.append("\\\\");
+                    break;
+                case '\n':
+                    json.append("\\n");
+                    break;
+                case '\r':
+                    json.append("\\r");
+                    break;
+                case '\t':
+                    json.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        json.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+            }
+        }
+        return json.append('"').toString();
+    }
+
+}
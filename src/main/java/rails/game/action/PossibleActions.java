@@ -6,6 +6,8 @@ import java.util.List;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
 
+import net.sf.rails.game.TileLayOption;
+
 /**
  * This class manages the actions that the current user can execute at any point
  * in time. Each possible action is represented by an instance of a subclass of
@@ -81,6 +83,14 @@ public class PossibleActions {
         }
     }
     
+    /**
+     * @return the options (hex, tile, rotations and cost) of a LayTile action of this list,
+     * including those that are not legal in the current state of the game (see TileLayOption.isLegal)
+     */
+    public List<TileLayOption> getTileLayOptions(LayTile action) {
+        return action.getRoot().getMapManager().getTileLayOptionService().getOptions(action);
+    }
+
     public boolean containsCorrections() {
         for (PossibleAction action:actions) {
             if (action.isCorrection()) return true;
@@ -0,0 +1,82 @@
+package net.sf.rails.algorithms;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+import java.io.File;
+import java.util.List;
+
+import net.sf.rails.common.Config;
+import net.sf.rails.common.ConfigManager;
+import net.sf.rails.game.PublicCompany;
+import net.sf.rails.game.RailsRoot;
+import net.sf.rails.util.GameLoader;
+import rails.game.action.PossibleAction;
+import rails.game.action.SetDividend;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class RevenueAdapterTest {
+
+    private static final String GAME_FILE = "real/18EU_A.rails";
+
+    private int nbAborted;
+
+    @BeforeClass
+    public static void setUpClass() {
+        ConfigManager.initConfiguration(true);
+    }
+
+    private static int sumOfRuns(RevenueAdapter ra) {
+        int sum = 0;
+        List<RevenueTrainRun> runs = ra.getOptimalRun();
+        if (runs != null) {
+            for (RevenueTrainRun run : runs) {
+                sum += run.getRunValue();
+            }
+        }
+        return sum;
+    }
+
+    private void checkCancelledCalculation(RailsRoot root, PublicCompany company) {
+        // a cancelled token stops the search at the first poll, thus during the prediction runs
+        CancellationToken token = new CancellationToken();
+        token.cancel();
+        RevenueAdapter cancelled = RevenueAdapter.createRevenueAdapter(root, company,
+                root.getPhaseManager().getCurrentPhase());
+        cancelled.initRevenueCalculator(true);
+        int cancelledValue = cancelled.calculateRevenue(null, token);
+
+        RevenueAdapter complete = RevenueAdapter.createRevenueAdapter(root, company,
+                root.getPhaseManager().getCurrentPhase());
+        complete.initRevenueCalculator(true);
+        int completeValue = complete.calculateRevenue(null, null);
+        assertThat(complete.isOptimal()).isTrue();
+        // the comparison of runs and value requires that no modifier changes the value
+        if (sumOfRuns(complete) != completeValue) return;
+
+        if (!cancelled.isOptimal()) {
+            nbAborted++;
+        }
+        assertThat(cancelledValue).isLessThanOrEqualTo(completeValue);
+        // the reported value is the value of the reported runs
+        assertThat(sumOfRuns(cancelled)).isEqualTo(cancelledValue);
+    }
+
+    @Test
+    public void testCancelDuringPredictions() {
+        GameLoader gameLoader = new GameLoader();
+        gameLoader.setReplayListener(new GameLoader.ReplayListener() {
+            @Override
+            public boolean beforeAction(RailsRoot root, PossibleAction action, int actionCount) {
+                if (action instanceof SetDividend && root.getRevenueManager() != null) {
+                    checkCancelledCalculation(root, ((SetDividend) action).getCompany());
+                }
+                return true;
+            }
+        });
+        assertThat(gameLoader.createFromFile(new File(Config.get("save.directory"), GAME_FILE))).isTrue();
+        assertThat(nbAborted).isGreaterThan(0);
+    }
+
+}
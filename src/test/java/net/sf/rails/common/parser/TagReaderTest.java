@@ -0,0 +1,114 @@
+package net.sf.rails.common.parser;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import net.sf.rails.common.ConfigManager;
+import net.sf.rails.common.GameInfo;
+import net.sf.rails.common.GameOption;
+import net.sf.rails.common.GameOptionsSet;
+import net.sf.rails.common.ResourceLoader;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Compares the tags of the game definitions read by the TagReader with the DOM based tags,
+ * for all games with each number of players and for each value of the game options
+ */
+public class TagReaderTest {
+
+    private static final String GAME_FILE = "Game.xml";
+
+    @BeforeClass
+    public static void setUpClass() {
+        ConfigManager.initConfiguration(true);
+    }
+
+    private static GameOptionsSet createOptions(String gameName, int players, String optionName, String value)
+            throws ConfigurationException {
+        GameOptionsSet.Builder builder = GameOptionsParser.load(gameName).withNumberOfPlayers(players);
+        for (GameOption option : builder.getOptions()) {
+            if (option.getName().equals(optionName)) {
+                option.setSelectedValue(value);
+            }
+        }
+        return builder.build();
+    }
+
+    private static List<String> getValues(GameOption option) {
+        if (option.isBoolean()) {
+            return ImmutableList.of(GameOption.OPTION_VALUE_YES, GameOption.OPTION_VALUE_NO);
+        }
+        return option.getAllowedValues() == null ? ImmutableList.of() : option.getAllowedValues();
+    }
+
+    private static void assertSameTag(String context, Tag expected, Tag actual) throws ConfigurationException {
+        // the iteration order is compared, too
+        assertThat(new ArrayList<>(actual.getAttributes().entrySet())).as(context + " attributes")
+                .isEqualTo(new ArrayList<>(expected.getAttributes().entrySet()));
+        assertThat(actual.getText()).as(context + " text").isEqualTo(expected.getText());
+        assertThat(new ArrayList<>(actual.getChildren().keySet())).as(context + " children")
+                .isEqualTo(new ArrayList<>(expected.getChildren().keySet()));
+        for (Map.Entry<String, List<Tag>> entry : expected.getChildren().entrySet()) {
+            List<Tag> actualChildren = actual.getChildren(entry.getKey());
+            assertThat(actualChildren).as(context + "/" + entry.getKey()).hasSize(entry.getValue().size());
+            for (int i = 0; i < actualChildren.size(); i++) {
+                assertSameTag(context + "/" + entry.getKey() + "[" + i + "]", entry.getValue().get(i),
+                        actualChildren.get(i));
+            }
+        }
+    }
+
+    /**
+     * @return the tag read by the TagReader, after it has been compared with the DOM based tag
+     */
+    private static Tag compareFile(String directory, String file, String tagName, GameOptionsSet gameOptions)
+            throws ConfigurationException {
+        String context = directory + ResourceLoader.SEPARATOR + file + " " + gameOptions.getOptions();
+        Tag domTag = new Tag(Tag.findTopElementInFile(file, directory, tagName), gameOptions);
+        Tag tag = Tag.readTopTag(Tag.readFile(file, directory, tagName), file, tagName,
+                new TagReader(file, gameOptions), gameOptions);
+        assertThat(tag.getElement()).as(context + " resolved").isNull();
+        assertSameTag(context, domTag, tag);
+        return tag;
+    }
+
+    private static void compareGame(String gameName, GameOptionsSet gameOptions) throws ConfigurationException {
+        String directory = GameInfoParser.DIRECTORY + ResourceLoader.SEPARATOR + gameName;
+        Tag gameTag = compareFile(directory, GAME_FILE, XMLTags.COMPONENT_MANAGER_ELEMENT_ID, gameOptions);
+        for (Tag componentTag : gameTag.getChildren(XMLTags.COMPONENT_ELEMENT_ID)) {
+            String name = componentTag.getAttributeAsString(XMLTags.NAME_ATTR);
+            String file = componentTag.getAttributeAsString(XMLTags.FILE_ATTR);
+            if (name == null || file == null) continue;
+            Tag componentTop = compareFile(directory, file, name, gameOptions);
+            // the tile set refers to the tile definitions
+            String tiles = componentTop.getAttributeAsString("tiles");
+            if ("TileManager".equals(name) && tiles != null) {
+                compareFile(directory, tiles, "Tiles", gameOptions);
+            }
+        }
+    }
+
+    @Test
+    public void testGameDefinitions() throws ConfigurationException {
+        for (GameInfo game : new GameInfoParser().processGameList()) {
+            String gameName = game.getName();
+            for (int players = game.getMinPlayers(); players <= game.getMaxPlayers(); players++) {
+                compareGame(gameName, createOptions(gameName, players, null, null));
+            }
+            for (GameOption option : GameOptionsParser.load(gameName).getOptions()) {
+                for (String value : getValues(option)) {
+                    if (value.equals(option.getSelectedValue())) continue;
+                    compareGame(gameName, createOptions(gameName, game.getMinPlayers(), option.getName(), value));
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,180 @@
+package net.sf.rails.game;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import net.sf.rails.common.ConfigManager;
+import net.sf.rails.common.GameData;
+import net.sf.rails.common.GameInfo;
+import net.sf.rails.common.parser.ConfigurationException;
+import net.sf.rails.common.parser.GameOptionsParser;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Compares the rotations provided by the shared TileUpgradeTable with the rotations computed
+ * by processRotations for the upgrades of the tiles of several games
+ */
+public class TileUpgradeTableTest {
+
+    private static final String[] GAMES = {"1830", "1835", "1837", "1856", "18EU", "SOH"};
+
+    // pairs of sides that require a connection and impassable sides, null for none
+    private static final List<HexSidesSet[]> SIDES = new ArrayList<>();
+
+    private int nbFixed;
+    private int nbMapped;
+    private boolean viennaTested;
+
+    @BeforeClass
+    public static void setUpClass() {
+        ConfigManager.initConfiguration(true);
+        // all connected sides without impassable sides
+        SIDES.add(new HexSidesSet[] {null, null});
+        for (int mask = 0; mask < 64; mask++) {
+            SIDES.add(new HexSidesSet[] {HexSidesSet.create(mask), null});
+        }
+        // impassable sides combined with some connected sides
+        for (int impassable : new int[] {0, 1, 2, 4, 8, 16, 32, 0b000111, 0b101010, 0b111111}) {
+            SIDES.add(new HexSidesSet[] {null, HexSidesSet.create(impassable)});
+            for (int connected : new int[] {0b000001, 0b001001, 0b110000, 0b111111}) {
+                SIDES.add(new HexSidesSet[] {HexSidesSet.create(connected), HexSidesSet.create(impassable)});
+            }
+        }
+    }
+
+    private static RailsRoot createGame(String gameName) throws ConfigurationException {
+        GameInfo game = GameInfo.builder().withName(gameName).build();
+        List<String> players = new ArrayList<>();
+        for (int i = 1; i <= 4; i++) {
+            players.add("Player " + i);
+        }
+        return RailsRoot.create(GameData.create(game, GameOptionsParser.load(gameName), players));
+    }
+
+    /**
+     * @return all subsets of the stations
+     */
+    private static List<List<Station>> subsets(List<Station> stations) {
+        List<List<Station>> subsets = new ArrayList<>();
+        for (int mask = 0; mask < 1 << stations.size(); mask++) {
+            List<Station> subset = new ArrayList<>();
+            for (int i = 0; i < stations.size(); i++) {
+                if ((mask & 1 << i) != 0) subset.add(stations.get(i));
+            }
+            subsets.add(subset);
+        }
+        return subsets;
+    }
+
+    /**
+     * @return the allowed rotations as computed from the rotation objects
+     */
+    private static int allowedRotations(TileUpgrade.Rotation[] rotations, HexSidesSet connected,
+            HexSidesSet impassable, HexSide baseRotation, Collection<Station> stations, boolean restrictive) {
+        int allowed = 0;
+        for (HexSide side : HexSide.all()) {
+            TileUpgrade.Rotation rotation = rotations[side.getTrackPointNumber()];
+            if (rotation == null) continue;
+            if (impassable != null && rotation.getConnectedSides().intersects(impassable)) continue;
+            boolean sideConnected;
+            if (connected == null) {
+                sideConnected = true;
+            } else if (restrictive && !rotation.getSidesWithNewTrack().isEmpty()) {
+                sideConnected = rotation.getSidesWithNewTrack().intersects(connected);
+            } else {
+                sideConnected = rotation.getConnectedSides().intersects(connected);
+            }
+            boolean stationConnected = false;
+            if (rotation.getStationMapping() != null) {
+                for (Station station : stations) {
+                    Station target = rotation.getStationMapping().get(station);
+                    if (target != null && rotation.getStationsWithNewTrack().contains(target)) {
+                        stationConnected = true;
+                    }
+                }
+            }
+            if (sideConnected || stationConnected) {
+                allowed |= 1 << side.rotate(baseRotation).getTrackPointNumber();
+            }
+        }
+        return allowed;
+    }
+
+    private void checkUpgrade(Tile base, TileUpgrade upgrade) {
+        String context = base + " => " + upgrade.getTargetTile();
+        TileUpgrade.Rotation[] rotations = new TileUpgrade.Rotation[6];
+        int rotationSides = 0;
+        for (HexSide side : HexSide.all()) {
+            TileUpgrade.Rotation expected = upgrade.processRotations(side);
+            TileUpgrade.Rotation actual = upgrade.getRotation(side);
+            String rotationContext = context + " rotation " + side;
+            rotations[side.getTrackPointNumber()] = expected;
+            if (expected == null) {
+                assertThat(actual).as(rotationContext).isNull();
+                continue;
+            }
+            rotationSides |= 1 << side.getTrackPointNumber();
+            assertThat(actual).as(rotationContext).isNotNull();
+            assertThat(actual.getConnectedSides().toMask()).as(rotationContext + " connected sides")
+                    .isEqualTo(expected.getConnectedSides().toMask());
+            assertThat(actual.getSidesWithNewTrack().toMask()).as(rotationContext + " sides with new track")
+                    .isEqualTo(expected.getSidesWithNewTrack().toMask());
+            assertThat(actual.getStationMapping()).as(rotationContext + " station mapping")
+                    .isEqualTo(expected.getStationMapping());
+            assertThat(actual.getStationsWithNewTrack()).as(rotationContext + " stations with new track")
+                    .isEqualTo(expected.getStationsWithNewTrack());
+            assertThat(actual.isSymmetric()).as(rotationContext + " symmetric").isEqualTo(expected.isSymmetric());
+            if (expected.getStationMapping() != null && base.getNumStations() > 1) {
+                nbMapped++;
+            }
+        }
+        assertThat(upgrade.getRotationSet().toMask()).as(context + " rotation sides").isEqualTo(rotationSides);
+
+        List<List<Station>> stationSets = subsets(new ArrayList<>(base.getStations()));
+        for (HexSide baseRotation : HexSide.all()) {
+            for (HexSidesSet[] sides : SIDES) {
+                for (List<Station> stations : stationSets) {
+                    for (boolean restrictive : new boolean[] {false, true}) {
+                        int actual = upgrade.getAllowedRotations(sides[0], sides[1], baseRotation, stations,
+                                restrictive).toMask();
+                        int expected = allowedRotations(rotations, sides[0], sides[1], baseRotation, stations,
+                                restrictive);
+                        // the description is only created for a failure, as there are many combinations
+                        if (actual != expected) {
+                            assertThat(actual).as(context + " allowed for " + sides[0] + ", " + sides[1] + ", "
+                                    + baseRotation + ", " + stations + ", " + restrictive).isEqualTo(expected);
+                        }
+                    }
+                }
+            }
+        }
+        if (base.getFixedOrientation() != null || upgrade.getTargetTile().getFixedOrientation() != null) {
+            nbFixed++;
+        }
+    }
+
+    @Test
+    public void testUpgradesOfGames() throws ConfigurationException {
+        for (String gameName : GAMES) {
+            RailsRoot root = createGame(gameName);
+            for (Tile tile : root.getTileManager().getTiles()) {
+                for (TileUpgrade upgrade : tile.getTileUpgrades()) {
+                    checkUpgrade(tile, upgrade);
+                    if ("1837".equals(gameName) && "427".equals(tile.getId())
+                            && "436".equals(upgrade.getTileId())) {
+                        viennaTested = true;
+                    }
+                }
+            }
+        }
+        assertThat(nbFixed).isGreaterThan(0);
+        assertThat(nbMapped).isGreaterThan(0);
+        assertThat(viennaTested).isTrue();
+    }
+
+}
@@ -203,6 +203,13 @@ public class ArrayListStateTest {
     public void testView() {
         ImmutableList<Item> list = ImmutableList.of(oneItem);
         assertEquals(list, stateInit.view());
+        // the view is reused until the list changes
+        assertSame(stateInit.view(), stateInit.view());
+        stateInit.add(anotherItem);
+        assertEquals(ImmutableList.of(oneItem, anotherItem), stateInit.view());
+        // and after undo
+        StateTestUtils.closeAndUndo(root);
+        assertEquals(list, stateInit.view());
     }
 
     @Test
@@ -8,6 +8,7 @@ import net.sf.rails.game.state.BooleanState;
 import net.sf.rails.game.state.ChangeAction;
 import net.sf.rails.game.state.ChangeSet;
 import net.sf.rails.game.state.ChangeStack;
+import net.sf.rails.game.state.IntegerState;
 import net.sf.rails.game.state.Root;
 
 import org.junit.Before;
@@ -131,4 +132,89 @@ public class ChangeStackTest {
         testUndoAfterClose();
     }
 
+    // creates a root with the checkpoint policy and closes the change sets 1 to 6
+    // in change set i the integer state is set to i, the new state is created in change set 4
+    private Root setUpCheckpoints(int checkpointInterval, int retainedChangeSets) {
+        Root root = Root.create();
+        root.getStateManager().getChangeStack().setCheckpointPolicy(checkpointInterval, retainedChangeSets);
+        IntegerState integer = IntegerState.create(root, "Integer", 1);
+        StateTestUtils.close(root);
+        for (int i = 2; i <= 6; i++) {
+            integer.set(i);
+            if (i == 4) {
+                IntegerState.create(root, "New").set(10);
+            }
+            StateTestUtils.close(root);
+        }
+        return root;
+    }
+
+    private int value(Root root, String id) {
+        return ((IntegerState) root.locate("/" + id)).value();
+    }
+
+    @Test
+    public void testCheckpoints() {
+        Root root = setUpCheckpoints(2, 0);
+        ChangeStack stack = root.getStateManager().getChangeStack();
+        IntegerState newState = (IntegerState) root.locate("/New");
+        // triggers are informed about restored values without a change
+        final int[] restored = {0};
+        ((IntegerState) root.locate("/Integer")).addTrigger(new Triggerable() {
+            @Override
+            public void triggered(Observable observable, Change change) {
+            }
+
+            @Override
+            public void triggeredOnRestore(Observable observable) {
+                restored[0]++;
+            }
+        });
+
+        stack.undo(1);
+        assertEquals(1, restored[0]);
+        assertEquals(1, stack.getCurrentIndex());
+        assertEquals(1, value(root, "Integer"));
+        assertEquals(0, newState.value());
+        assertFalse(root.getStateManager().getAllStates().contains(newState));
+
+        stack.redo(6);
+        assertEquals(6, stack.getCurrentIndex());
+        assertEquals(6, value(root, "Integer"));
+        assertEquals(10, newState.value());
+
+        stack.undo(3);
+        assertEquals(3, value(root, "Integer"));
+        assertEquals(0, newState.value());
+        stack.redo();
+        assertEquals(4, value(root, "Integer"));
+        assertEquals(10, newState.value());
+    }
+
+    @Test
+    public void testCompaction() {
+        Root root = setUpCheckpoints(2, 2);
+        ChangeStack stack = root.getStateManager().getChangeStack();
+
+        // change sets up to the checkpoint 4 are compacted
+        assertTrue(stack.isIndexReachable(2));
+        assertFalse(stack.isIndexReachable(3));
+        assertTrue(stack.isIndexReachable(5));
+
+        stack.undo(2);
+        assertEquals(2, value(root, "Integer"));
+        assertTrue(stack.isUndoPossible());
+        assertFalse(stack.isRedoPossible());
+        try {
+            stack.redo(3);
+            failBecauseExceptionWasNotThrown(IllegalStateException.class);
+        } catch (Exception e) {
+            assertThat(e).isInstanceOf(IllegalStateException.class);
+        }
+
+        stack.redo(5);
+        assertEquals(5, value(root, "Integer"));
+        assertEquals(10, value(root, "New"));
+    }
+
 }
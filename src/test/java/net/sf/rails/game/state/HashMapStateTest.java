@@ -179,4 +179,21 @@ public class HashMapStateTest {
         assertThat(state_default.viewValues()).containsAll(testMap.values());
     }
 
+    @Test
+    public void testViewsWithNull() {
+        // a null value does not break the keys, a null key does not break the values
+        state_default.put(FIRST_ITEM_ID, null);
+        assertThat(state_default.viewKeySet()).containsOnly(FIRST_ITEM_ID);
+        state_default.remove(FIRST_ITEM_ID);
+        state_default.put(null, secondItem);
+        assertThat(state_default.viewValues()).containsOnly(secondItem);
+        
+        // the cached views follow undo and redo
+        StateTestUtils.closeAndUndo(root);
+        assertThat(state_default.viewKeySet()).isEmpty();
+        assertThat(state_default.viewValues()).isEmpty();
+        StateTestUtils.redo(root);
+        assertThat(state_default.viewValues()).containsOnly(secondItem);
+    }
+
 }
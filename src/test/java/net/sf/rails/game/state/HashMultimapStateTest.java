@@ -184,6 +184,36 @@ public class HashMultimapStateTest {
         assertTestIterator(thirdItem);
     }
 
-    
+    @Test
+    public void testSnapshot() {
+        initState();
+        Object snapshot = state.createSnapshot();
+        // the snapshot is shared until the state changes
+        assertSame(snapshot, state.createSnapshot());
+        state.remove(ITEM_A_ID, itemA);
+        assertNotSame(snapshot, state.createSnapshot());
+        // and restores the previous values
+        assertTrue(state.restoreSnapshot(snapshot));
+        assertThat(state.get(ITEM_A_ID)).containsOnly(itemA, itemB, itemC);
+        assertFalse(state.restoreSnapshot(snapshot));
+    }
+
+    @Test
+    public void testViewsWithNull() {
+        // a null value does not break the keys, a null key does not break the values
+        state.put(ITEM_A_ID, null);
+        assertThat(state.keySet()).containsOnly(ITEM_A_ID);
+        state.remove(ITEM_A_ID, null);
+        state.put(null, itemB);
+        assertThat(state.values()).containsOnly(itemB);
+        
+        // the cached views follow undo and redo
+        StateTestUtils.closeAndUndo(root);
+        assertThat(state.keySet()).isEmpty();
+        assertThat(state.values()).isEmpty();
+        StateTestUtils.redo(root);
+        assertThat(state.values()).containsOnly(itemB);
+    }
+
 
 }
@@ -83,8 +83,11 @@ public class PortfolioMapTest {
         assertThat(portfolioMap.items()).isEmpty();
         item.moveTo(ownerMap);
         assertThat(portfolioMap.items()).containsOnly(item);
+        assertSame(portfolioMap.items(), portfolioMap.items());
         anotherItem.moveTo(ownerMap);
         assertThat(portfolioMap.items()).containsOnly(item, anotherItem);
+        StateTestUtils.closeAndUndo(root);
+        assertThat(portfolioMap.items()).isEmpty();
     }
 
     @Test
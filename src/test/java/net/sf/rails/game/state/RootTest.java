@@ -85,6 +85,40 @@ public class RootTest {
         assertNull(root.locate(item.getFullURI()));
     }
     
+    @Test
+    public void testItemsAfterSetup() {
+        // the setup ends with the first ChangeSet
+        assertTrue(root.getStateManager().isSetup());
+        IntegerState.create(root, "setupState").set(1);
+        StateTestUtils.close(root);
+        assertFalse(root.getStateManager().isSetup());
+
+        // items and states created later are removed by undo
+        Item newItem = new AbstractItemImpl(root, "newItem");
+        State newState = IntegerState.create(root, "newState");
+        StateTestUtils.closeAndUndo(root);
+        assertNull(root.locate(newItem.getFullURI()));
+        assertFalse(root.getStateManager().getAllStates().contains(newState));
+        StateTestUtils.redo(root);
+        assertSame(newItem, root.locate(newItem.getFullURI()));
+        assertTrue(root.getStateManager().getAllStates().contains(newState));
+
+        // and removed items of the setup are restored by undo
+        root.removeItem(item);
+        assertNull(root.locate(item.getFullURI()));
+        StateTestUtils.closeAndUndo(root);
+        assertSame(item, root.locate(item.getFullURI()));
+
+        // a removed item of the setup can be replaced by a new item with the same URI
+        root.removeItem(item);
+        Item replacement = new AbstractItemImpl(root, ITEM_ID);
+        assertSame(replacement, root.locate(item.getFullURI()));
+        root.removeItem(replacement);
+        assertNull(root.locate(item.getFullURI()));
+        StateTestUtils.closeAndUndo(root);
+        assertSame(item, root.locate(item.getFullURI()));
+    }
+
     @Test(expected=IllegalArgumentException.class)
     public void testAddItemFail() {
         root.addItem(item);
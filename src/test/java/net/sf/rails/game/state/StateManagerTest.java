@@ -22,6 +22,7 @@ import org.mockito.junit.MockitoJUnitRunner;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -179,6 +180,46 @@ public class StateManagerTest {
         verifyNoInteractions(o_A2, o_A3, o_C3);
     }
 
+    @Test
+    public void testModelOrderAfterChanges() {
+        // calculate the cached order
+        assertObservables(ImmutableList.of(m_A1, m_A2, m_B1, m_B2, m_C1, m_C2),ImmutableSet.of(m_A1, m_A2));
+        // C1 updates A2 now, B1 updates a new model
+        m_C1.addModel(m_A2);
+        ModelImpl m_G = ModelImpl.create(root, "G", "G");
+        m_B1.addModel(m_G);
+        assertObservables(ImmutableList.of(m_A1, m_A2, m_B1, m_B2, m_C1, m_C2, m_G),ImmutableSet.of(m_A1, m_B2));
+        assertObservables(ImmutableList.of(m_A2, m_B1, m_B2, m_C1, m_C2, m_G),ImmutableSet.of(m_B1, m_C2));
+        // and back
+        m_C1.removeModel(m_A2);
+        assertObservables(ImmutableList.of(m_B1, m_C1, m_G),ImmutableSet.of(m_B1));
+    }
+
+    @Test
+    public void testDeferredObservers() {
+        List<Runnable> scheduled = Lists.newArrayList();
+        sm.setUpdateExecutor(scheduled::add);
+        when(o_A2.requiresImmediateUpdate()).thenReturn(true);
+
+        sm.updateObservers(ImmutableSet.of(m_A1.getState()));
+        sm.updateObservers(ImmutableSet.of(m_A2.getState()));
+        // immediate observers only
+        verify(o_A2).update(ID.get(1));
+        verify(o_A1, never()).update(anyString());
+        verify(o_B2, never()).update(anyString());
+        assertEquals(1, scheduled.size());
+
+        // each deferred observer is updated once
+        scheduled.get(0).run();
+        verify(o_A1).update(ID.get(0));
+        verify(o_B1).update(ID.get(3));
+        verify(o_B2).update(ID.get(4));
+        verify(o_C1).update(ID.get(5));
+        verify(o_C2).update(ID.get(6));
+        verify(o_A2).update(ID.get(1));
+        verifyNoInteractions(o_A3, o_C3);
+    }
+
     @Test
     public void testGetChangeStack() {
         assertNotNull(sm.getChangeStack());
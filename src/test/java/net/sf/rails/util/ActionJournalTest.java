@@ -0,0 +1,169 @@
+package net.sf.rails.util;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.List;
+
+import net.sf.rails.common.Config;
+import net.sf.rails.common.ConfigManager;
+import rails.game.action.PossibleAction;
+
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ActionJournalTest {
+
+    private static final String GAME_FILE = "test/1830_Auction_Test.rails";
+
+    // number of actions of the saved game the journal continues
+    private static final int BASE = 5;
+
+    private static GameLoader loader;
+    private static String gameName;
+    private static List<PossibleAction> actions;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File file;
+
+    @BeforeClass
+    public static void setUpClass() {
+        ConfigManager.initConfiguration(true);
+        loader = new GameLoader();
+        assertThat(loader.createFromFile(new File(Config.get("save.directory"), GAME_FILE))).isTrue();
+        gameName = loader.getRoot().getGameName();
+        actions = loader.getActions();
+        assertThat(actions.size()).isGreaterThan(BASE + 5);
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        file = new File(folder.getRoot(), "game.rails" + ActionJournal.JOURNAL_EXTENSION);
+    }
+
+    private static List<PossibleAction> actions(int from, int to) {
+        return actions.subList(from, to);
+    }
+
+    private List<PossibleAction> recover() {
+        return ActionJournal.recover(loader, file, gameName, actions(0, BASE));
+    }
+
+    private static void assertActions(List<PossibleAction> recovered, int size) {
+        assertThat(recovered).hasSize(size);
+        for (int i = 0; i < size; i++) {
+            assertThat(recovered.get(i).equalsAsAction(actions.get(i))).as("action " + (i + 1)).isTrue();
+        }
+    }
+
+    private void writeTurn(int index, int actionCount) throws IOException {
+        try (ActionJournal journal = ActionJournal.open(file, gameName, BASE)) {
+            journal.append(index, actions(index, actionCount));
+            journal.endTurn(actionCount);
+        }
+    }
+
+    private void truncate(long length) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(length);
+        }
+    }
+
+    @Test
+    public void testRecoverTurns() throws IOException {
+        writeTurn(BASE, BASE + 2);
+        writeTurn(BASE + 2, BASE + 5);
+        assertActions(recover(), BASE + 5);
+        try (ActionJournal journal = ActionJournal.open(file, gameName, BASE)) {
+            assertThat(journal.getTurns()).isEqualTo(2);
+        }
+    }
+
+    @Test
+    public void testTornLastRecord() throws IOException {
+        writeTurn(BASE, BASE + 2);
+        long turnEnd = file.length();
+        writeTurn(BASE + 2, BASE + 5);
+        // the turn record of the second turn is incomplete
+        truncate(file.length() - 3);
+        assertActions(recover(), BASE + 2);
+        assertThat(ActionJournal.findTurnEnd(file, 0)).isEqualTo(turnEnd);
+
+        // the journal is continued after the last complete turn
+        try (ActionJournal journal = ActionJournal.open(file, gameName, BASE)) {
+            assertThat(journal.getTurns()).isEqualTo(1);
+        }
+        assertThat(file.length()).isEqualTo(turnEnd);
+        writeTurn(BASE + 2, BASE + 4);
+        assertActions(recover(), BASE + 4);
+    }
+
+    @Test
+    public void testIncompleteTurnDropped() throws IOException {
+        writeTurn(BASE, BASE + 2);
+        long turnEnd = file.length();
+        try (ActionJournal journal = ActionJournal.open(file, gameName, BASE)) {
+            journal.append(BASE + 2, actions(BASE + 2, BASE + 4));
+        }
+        assertThat(file.length()).isGreaterThan(turnEnd);
+        assertActions(recover(), BASE + 2);
+        assertThat(ActionJournal.findTurnEnd(file, turnEnd)).isEqualTo(turnEnd);
+
+        try (ActionJournal journal = ActionJournal.open(file, gameName, BASE)) {
+            assertThat(journal.getTurns()).isEqualTo(1);
+        }
+        assertThat(file.length()).isEqualTo(turnEnd);
+    }
+
+    @Test
+    public void testOtherGameIgnored() throws IOException {
+        writeTurn(BASE, BASE + 2);
+        assertActions(ActionJournal.recover(loader, file, gameName + "x", actions(0, BASE)), BASE);
+
+        // the saved game has been replaced by a game with more actions
+        assertActions(ActionJournal.recover(loader, file, gameName, actions(0, BASE + 1)), BASE + 1);
+
+        // a journal of another game is replaced
+        try (ActionJournal journal = ActionJournal.open(file, gameName + "x", BASE)) {
+            assertThat(journal.getTurns()).isEqualTo(0);
+        }
+        assertActions(recover(), BASE);
+    }
+
+    @Test
+    public void testUndoTurn() throws IOException {
+        writeTurn(BASE, BASE + 4);
+        // the next turn undoes two actions and executes one of them again
+        writeTurn(BASE + 2, BASE + 3);
+        assertActions(recover(), BASE + 3);
+
+        // a turn that only undoes actions
+        try (ActionJournal journal = ActionJournal.open(file, gameName, BASE)) {
+            journal.endTurn(BASE + 1);
+        }
+        assertActions(recover(), BASE + 1);
+    }
+
+    @Test
+    public void testFindTurnEnd() throws IOException {
+        assertThat(ActionJournal.findTurnEnd(file, 0)).isEqualTo(0);
+        writeTurn(BASE, BASE + 2);
+        long firstEnd = ActionJournal.findTurnEnd(file, 0);
+        assertThat(firstEnd).isEqualTo(file.length());
+        // no new turn
+        assertThat(ActionJournal.findTurnEnd(file, firstEnd)).isEqualTo(firstEnd);
+
+        writeTurn(BASE + 2, BASE + 3);
+        long secondEnd = ActionJournal.findTurnEnd(file, firstEnd);
+        assertThat(secondEnd).isEqualTo(file.length());
+        assertThat(ActionJournal.findTurnEnd(file, 0)).isEqualTo(secondEnd);
+    }
+
+}
@@ -0,0 +1,136 @@
+package net.sf.rails.util;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import net.sf.rails.common.Config;
+import net.sf.rails.common.ConfigManager;
+import rails.game.action.PossibleAction;
+
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Converts the saved test games from the legacy format to the compact format and from there to the
+ * compressed format, the converted games have to contain the same actions and create the same report
+ */
+public class CompactGameFormatTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @BeforeClass
+    public static void setUpClass() {
+        ConfigManager.initConfiguration(true);
+    }
+
+    private static void collectGameFiles(File file, List<File> files) {
+        if (file.isDirectory()) {
+            File[] children = file.listFiles();
+            if (children == null) return;
+            Arrays.sort(children);
+            for (File child : children) {
+                collectGameFiles(child, files);
+            }
+        } else if (file.getName().endsWith("." + Config.get("save.filename.extension"))) {
+            files.add(file);
+        }
+    }
+
+    /**
+     * compares two values by their serializable fields, as the compact format stores them,
+     * the transient fields might differ e.g. the order of hash sets of game objects
+     */
+    private static void assertSameValue(String context, Object expected, Object actual) throws IllegalAccessException {
+        if (expected == null || actual == null) {
+            assertThat(actual).as(context).isEqualTo(expected);
+        } else if (expected.getClass().isArray()) {
+            assertThat((Object) actual.getClass()).as(context + " type").isEqualTo(expected.getClass());
+            assertThat(Array.getLength(actual)).as(context + " length").isEqualTo(Array.getLength(expected));
+            for (int i = 0; i < Array.getLength(expected); i++) {
+                assertSameValue(context + "[" + i + "]", Array.get(expected, i), Array.get(actual, i));
+            }
+        } else if (expected instanceof Collection) {
+            assertThat(actual).as(context).isInstanceOf(Collection.class);
+            assertSameValue(context, ((Collection<?>) expected).toArray(), ((Collection<?>) actual).toArray());
+        } else if (expected instanceof Map) {
+            assertThat(actual).as(context).isInstanceOf(Map.class);
+            Map<?, ?> actualMap = (Map<?, ?>) actual;
+            assertThat((Object) actualMap.keySet()).as(context + " keys").isEqualTo(((Map<?, ?>) expected).keySet());
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) expected).entrySet()) {
+                assertSameValue(context + "[" + entry.getKey() + "]", entry.getValue(), actualMap.get(entry.getKey()));
+            }
+        } else if (expected instanceof String || expected instanceof Number || expected instanceof Boolean
+                || expected instanceof Character || expected instanceof Enum) {
+            assertThat(actual).as(context).isEqualTo(expected);
+        } else {
+            assertThat((Object) actual.getClass()).as(context + " type").isEqualTo(expected.getClass());
+            for (ClassCodec.Layer layer : ClassCodec.of(expected.getClass()).getLayers()) {
+                for (Field field : layer.getFields()) {
+                    assertSameValue(context + "." + field.getName(), field.get(expected), field.get(actual));
+                }
+            }
+        }
+    }
+
+    private static void assertSameActions(String context, List<PossibleAction> expected, List<PossibleAction> actual)
+            throws IllegalAccessException {
+        assertThat(actual).as(context + ": number of actions").hasSize(expected.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertSameValue(context + ": action " + (i + 1), expected.get(i), actual.get(i));
+        }
+    }
+
+    private static void assertSameGame(String context, GameLoader expected, GameLoader actual)
+            throws IllegalAccessException {
+        assertSameActions(context, expected.getActions(), actual.getActions());
+        assertThat(actual.getConfigOptions()).as(context + ": configuration").isEqualTo(expected.getConfigOptions());
+        assertThat(actual.getRoot().getReportManager().getReportBuffer().getAsList()).as(context + ": report")
+                .isEqualTo(expected.getRoot().getReportManager().getReportBuffer().getAsList());
+    }
+
+    private File convert(GameLoader loader, String name, GameSaver.Format format) throws IOException {
+        File file = folder.newFile(name);
+        new GameSaver(loader).saveGame(file, format);
+        return file;
+    }
+
+    private void testGame(File gameFile) throws IOException, IllegalAccessException {
+        String name = gameFile.getName();
+
+        GameLoader legacy = new GameLoader();
+        assertThat(legacy.createFromFile(gameFile)).as(name + ": legacy load").isTrue();
+
+        GameLoader compact = new GameLoader();
+        File compactFile = convert(legacy, name + ".compact", GameSaver.Format.COMPACT);
+        assertThat(compact.createFromFile(compactFile)).as(name + ": compact load").isTrue();
+        assertSameGame(name + " compact", legacy, compact);
+
+        GameLoader compressed = new GameLoader();
+        File compressedFile = convert(compact, name + ".compressed", GameSaver.Format.COMPRESSED);
+        assertThat(compressed.createFromFile(compressedFile)).as(name + ": compressed load").isTrue();
+        assertSameGame(name + " compressed", legacy, compressed);
+    }
+
+    @Test
+    public void testConversionOfTestGames() throws IOException, IllegalAccessException {
+        List<File> gameFiles = new ArrayList<>();
+        collectGameFiles(new File(Config.get("save.directory")), gameFiles);
+        assertThat(gameFiles).isNotEmpty();
+        for (File gameFile : gameFiles) {
+            testGame(gameFile);
+        }
+    }
+
+}